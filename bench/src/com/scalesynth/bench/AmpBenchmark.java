@@ -0,0 +1,59 @@
+package com.scalesynth.bench;
+
+import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.dsp.generators.Envelope;
+import com.scalesynth.dsp.processors.Amp;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static com.scalesynth.bench.BenchmarkRunner.SAMPLES_PER_INVOCATION;
+
+/**
+ * Benchmark of the amplifier (with its envelope in the sustain state).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(SAMPLES_PER_INVOCATION)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AmpBenchmark {
+    @Param({"32", "64", "128", "256", "512", "1024", "2048"})
+    private int bufferSize;
+
+    private Amp amp;
+    private double[][] buffer;
+
+    @Setup
+    public void setup() {
+        var envelope = new Envelope();
+        envelope.setAttackRate(100);
+        envelope.setDecayRate(100);
+        envelope.setSustainLevel(0.5);
+        envelope.setReleaseRate(5);
+
+        amp = new Amp(envelope);
+        amp.setSampleRate(44100);
+        amp.setBufferSize(bufferSize);
+        amp.setAmplitude(0.8);
+        amp.handleKeyboardEvent(KeyboardEvent.noteOn(60, 261.6, 100));
+
+        buffer = new double[2][bufferSize];
+        for (int done = 0; done < 44100; done += bufferSize)
+            amp.process(buffer, bufferSize);
+    }
+
+    @Benchmark
+    public void process(Blackhole blackhole) {
+        for (int done = 0; done < SAMPLES_PER_INVOCATION; done += bufferSize) {
+            for (var channel : buffer)
+                Arrays.fill(channel, 0, bufferSize, 0.5);
+            amp.process(buffer, bufferSize);
+        }
+        blackhole.consume(buffer);
+    }
+}
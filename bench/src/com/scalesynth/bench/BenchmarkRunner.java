@@ -0,0 +1,28 @@
+package com.scalesynth.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for the benchmarks.
+ * <p>
+ * Accepts the usual JMH command line options (i.e. a regex to select benchmarks),
+ * and always adds GC profiler, so allocations per operation are reported too.
+ */
+public class BenchmarkRunner {
+    /**
+     * Number of samples rendered in one benchmark invocation.
+     * Benchmarks split it into blocks of the tested buffer size and report time per sample.
+     */
+    public static final int SAMPLES_PER_INVOCATION = 4096;
+
+    public static void main(String[] args) throws Exception {
+        var options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
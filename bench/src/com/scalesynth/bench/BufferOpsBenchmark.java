@@ -0,0 +1,69 @@
+package com.scalesynth.bench;
+
+import com.scalesynth.dsp.math.BufferOps;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of mixing and gain kernels.
+ * <p>
+ * Kernels are vectorized by C2, so compare runs with different instruction sets, for example:
+ * {@code BenchmarkRunner BufferOps -jvmArgsAppend -XX:-UseSuperWord} (scalar code),
+ * {@code -jvmArgsAppend -XX:UseAVX=2} (AVX2) and {@code -jvmArgsAppend -XX:UseAVX=3} (AVX-512).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferOpsBenchmark {
+    @Param({"32", "64", "128", "256", "512", "1024", "2048"})
+    private int bufferSize;
+
+    private double[] source;
+    private double[] destination;
+    private float[] floatDestination;
+
+    @Setup
+    public void setup() {
+        var random = new Random(42);
+        source = new double[bufferSize];
+        destination = new double[bufferSize];
+        floatDestination = new float[bufferSize];
+        for (int i = 0; i < bufferSize; ++i)
+            source[i] = random.nextDouble() * 2 - 1;
+    }
+
+    @Benchmark
+    public double[] add() {
+        BufferOps.add(source, 0, destination, 0, bufferSize);
+        return destination;
+    }
+
+    @Benchmark
+    public double[] addScaled() {
+        BufferOps.addScaled(source, 0, destination, 0, bufferSize, 0.5);
+        return destination;
+    }
+
+    @Benchmark
+    public double[] multiply() {
+        BufferOps.multiply(destination, 0, source, 0, bufferSize, 0.999);
+        return destination;
+    }
+
+    @Benchmark
+    public float[] toFloat() {
+        BufferOps.toFloat(source, 0, floatDestination, 0, bufferSize);
+        return floatDestination;
+    }
+
+    @Benchmark
+    public float[] addToFloat() {
+        BufferOps.addToFloat(source, 0, floatDestination, 0, bufferSize);
+        return floatDestination;
+    }
+}
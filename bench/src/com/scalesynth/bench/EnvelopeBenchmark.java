@@ -0,0 +1,87 @@
+package com.scalesynth.bench;
+
+import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.dsp.generators.Envelope;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.scalesynth.bench.BenchmarkRunner.SAMPLES_PER_INVOCATION;
+
+/**
+ * Benchmark of the ADSR envelope in each of its states.
+ * <p>
+ * With the slowest rates attack, decay and release last for millions of samples, but a whole iteration renders
+ * far more than that. So the envelope is put back into the tested stage before every invocation,
+ * which is only {@link BenchmarkRunner#SAMPLES_PER_INVOCATION} samples long.
+ * An invocation still takes microseconds, so the overhead of a per-invocation fixture is negligible.
+ * Sustain and disabled states never end, they are entered once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(SAMPLES_PER_INVOCATION)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvelopeBenchmark {
+    // created once: GC profiler counts allocations of the per-invocation fixture too
+    private static final KeyboardEvent NOTE_ON = KeyboardEvent.noteOn(60, 261.6, 100);
+    private static final KeyboardEvent NOTE_OFF = KeyboardEvent.noteOff(60);
+
+    @Param({"32", "64", "128", "256", "512", "1024", "2048"})
+    private int bufferSize;
+
+    @Param({"ATTACK", "DECAY", "SUSTAIN", "RELEASE", "DISABLED"})
+    private String state;
+
+    private Envelope envelope;
+    private double[][] buffer;
+    private boolean finite;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        buffer = new double[1][bufferSize];
+        envelope = new Envelope();
+        envelope.setSampleRate(44100);
+        envelope.setAttackRate(state.equals("ATTACK") ? 1 : 100);
+        envelope.setDecayRate(state.equals("DECAY") ? 1 : 100);
+        envelope.setSustainLevel(state.equals("DECAY") ? 0 : 0.5);
+        envelope.setReleaseRate(1);
+
+        finite = state.equals("ATTACK") || state.equals("DECAY") || state.equals("RELEASE");
+        if (state.equals("SUSTAIN"))
+            enterState();
+    }
+
+    @Setup(Level.Invocation)
+    public void restart() {
+        if (finite)
+            enterState();
+    }
+
+    /**
+     * Starts a note and renders until the envelope reaches the tested stage.
+     */
+    private void enterState() {
+        envelope.handleKeyboardEvent(NOTE_ON);
+        if (state.equals("ATTACK"))
+            return;
+
+        // with fast rates attack is finished after 2048 samples, decay after a second.
+        int settle = state.equals("DECAY") ? 2048 : 44100;
+        for (int done = 0; done < settle; done += bufferSize)
+            envelope.generate(buffer, bufferSize);
+
+        if (state.equals("RELEASE"))
+            envelope.handleKeyboardEvent(NOTE_OFF);
+    }
+
+    @Benchmark
+    public void generate(Blackhole blackhole) {
+        for (int done = 0; done < SAMPLES_PER_INVOCATION; done += bufferSize)
+            envelope.generate(buffer, bufferSize);
+        blackhole.consume(buffer);
+    }
+}
@@ -0,0 +1,104 @@
+package com.scalesynth.bench;
+
+import com.scalesynth.ScaleSynth;
+import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.base.KeyboardEventQueue;
+import com.scalesynth.base.KeyboardEventRing;
+import com.scalesynth.base.KeyboardEventType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.scalesynth.bench.BenchmarkRunner.SAMPLES_PER_INVOCATION;
+
+/**
+ * Stress benchmark of passing keyboard events to the audio thread.
+ * <p>
+ * In the {@code flood} group one thread renders the synthesizer while two other threads (like a MIDI port
+ * and the UI) add controller and note events to their own rings as fast as they can, that is millions
+ * of events per second. Render time per sample should stay close to the {@code quiet} group,
+ * where nothing else is running: neither side ever waits for the other. Events that don't fit into a ring
+ * until the next block are rejected, {@code send} reports how many of them were accepted.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventHandoffBenchmark {
+    private static final int BUFFER_SIZE = 256;
+
+    /**
+     * Synthesizer shared by the threads of the group.
+     */
+    @State(Scope.Group)
+    public static class Engine {
+        private ScaleSynth synth;
+        private float[][] buffer;
+
+        @Setup
+        public void setup() {
+            synth = new ScaleSynth();
+            synth.setSampleRate(44100);
+            synth.setBufferSize(BUFFER_SIZE);
+            buffer = new float[2][BUFFER_SIZE];
+        }
+
+        @TearDown
+        public void tearDown() {
+            synth.stop();
+        }
+    }
+
+    /**
+     * Event source of one producer thread.
+     */
+    @State(Scope.Thread)
+    public static class Source {
+        private KeyboardEventRing ring;
+        private int counter;
+
+        @Setup
+        public void setup(Engine engine) {
+            ring = engine.synth.createEventSource();
+        }
+    }
+
+    @Benchmark
+    @Group("flood")
+    @GroupThreads(1)
+    @OperationsPerInvocation(SAMPLES_PER_INVOCATION)
+    public void render(Engine engine, Blackhole blackhole) {
+        for (int done = 0; done < SAMPLES_PER_INVOCATION; done += BUFFER_SIZE)
+            engine.synth.generate(engine.buffer, BUFFER_SIZE);
+        blackhole.consume(engine.buffer);
+    }
+
+    @Benchmark
+    @Group("flood")
+    @GroupThreads(2)
+    public boolean send(Source source) {
+        int i = source.counter++;
+        int note = 48 + (i >> 4 & 31);
+        long time = KeyboardEventQueue.IMMEDIATELY;
+        switch (i & 15) {
+            case 0:
+                var freq = 440 * Math.pow(2, (note - 69) / 12.0);
+                return source.ring.add(KeyboardEvent.encode(KeyboardEventType.NOTE_ON, note, 100), freq, time);
+            case 15:
+                return source.ring.add(KeyboardEvent.encode(KeyboardEventType.NOTE_OFF, note, -1), -1, time);
+            default:
+                return source.ring.add(KeyboardEvent.encode(KeyboardEventType.CONTROL_CHANGE, 1, i & 127), -1, time);
+        }
+    }
+
+    @Benchmark
+    @Group("quiet")
+    @OperationsPerInvocation(SAMPLES_PER_INVOCATION)
+    public void renderQuiet(Engine engine, Blackhole blackhole) {
+        for (int done = 0; done < SAMPLES_PER_INVOCATION; done += BUFFER_SIZE)
+            engine.synth.generate(engine.buffer, BUFFER_SIZE);
+        blackhole.consume(engine.buffer);
+    }
+}
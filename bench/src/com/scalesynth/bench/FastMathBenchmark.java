@@ -0,0 +1,108 @@
+package com.scalesynth.bench;
+
+import com.scalesynth.dsp.math.FastMath;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link FastMath} approximations with {@link Math} and {@link StrictMath}.
+ * Arguments are taken from ranges typical for pitch and filter computations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(FastMathBenchmark.SIZE)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FastMathBenchmark {
+    static final int SIZE = 1024;
+
+    private final double[] exponents = new double[SIZE];
+    private final double[] positives = new double[SIZE];
+    private final double[] fractions = new double[SIZE];
+
+    @Setup
+    public void setup() {
+        var random = new Random(42);
+        for (int i = 0; i < SIZE; ++i) {
+            exponents[i] = random.nextDouble() * 8 - 4;
+            positives[i] = 20 + random.nextDouble() * 20000;
+            fractions[i] = random.nextDouble() * 0.5;
+        }
+    }
+
+    @Benchmark
+    public double exp2Fast() {
+        double sum = 0;
+        for (var x : exponents)
+            sum += FastMath.exp2(x);
+        return sum;
+    }
+
+    @Benchmark
+    public double exp2Math() {
+        double sum = 0;
+        for (var x : exponents)
+            sum += Math.pow(2, x);
+        return sum;
+    }
+
+    @Benchmark
+    public double exp2Strict() {
+        double sum = 0;
+        for (var x : exponents)
+            sum += StrictMath.pow(2, x);
+        return sum;
+    }
+
+    @Benchmark
+    public double log2Fast() {
+        double sum = 0;
+        for (var x : positives)
+            sum += FastMath.log2(x);
+        return sum;
+    }
+
+    @Benchmark
+    public double log2Math() {
+        double sum = 0;
+        for (var x : positives)
+            sum += Math.log(x) / Math.log(2);
+        return sum;
+    }
+
+    @Benchmark
+    public double log2Strict() {
+        double sum = 0;
+        for (var x : positives)
+            sum += StrictMath.log(x) / StrictMath.log(2);
+        return sum;
+    }
+
+    @Benchmark
+    public double tanPiFast() {
+        double sum = 0;
+        for (var x : fractions)
+            sum += FastMath.tanPi(x);
+        return sum;
+    }
+
+    @Benchmark
+    public double tanPiMath() {
+        double sum = 0;
+        for (var x : fractions)
+            sum += Math.tan(Math.PI * x);
+        return sum;
+    }
+
+    @Benchmark
+    public double tanPiStrict() {
+        double sum = 0;
+        for (var x : fractions)
+            sum += StrictMath.tan(Math.PI * x);
+        return sum;
+    }
+}
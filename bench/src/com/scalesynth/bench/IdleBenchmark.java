@@ -0,0 +1,64 @@
+package com.scalesynth.bench;
+
+import com.scalesynth.ScaleSynth;
+import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.base.KeyboardEventType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.scalesynth.bench.BenchmarkRunner.SAMPLES_PER_INVOCATION;
+
+/**
+ * Benchmark of the synthesizer with nothing to play.
+ * <p>
+ * {@code idle} renders a synthesizer that has never received a note, {@code released} one whose only note
+ * has been released and has decayed: both should take a small constant time per block, with no voice rendering.
+ * {@code held} keeps one note sounding for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(SAMPLES_PER_INVOCATION)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdleBenchmark {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int BUFFER_SIZE = 256;
+
+    @Param({"idle", "released", "held"})
+    private String state;
+
+    private ScaleSynth synth;
+    private float[][] buffer;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        synth = new ScaleSynth();
+        synth.setSampleRate(SAMPLE_RATE);
+        synth.setBufferSize(BUFFER_SIZE);
+        buffer = new float[2][BUFFER_SIZE];
+
+        if (!state.equals("idle"))
+            synth.scheduleEvent(KeyboardEvent.encode(KeyboardEventType.NOTE_ON, 60, 100), 261.6, 0);
+        if (state.equals("released"))
+            synth.scheduleEvent(KeyboardEvent.encode(KeyboardEventType.NOTE_OFF, 60, -1), -1, SAMPLE_RATE / 10);
+
+        // long enough for the released note to fade out.
+        for (int done = 0; done < 10 * SAMPLE_RATE; done += BUFFER_SIZE)
+            synth.generate(buffer, BUFFER_SIZE);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        synth.stop();
+    }
+
+    @Benchmark
+    public void render(Blackhole blackhole) {
+        for (int done = 0; done < SAMPLES_PER_INVOCATION; done += BUFFER_SIZE)
+            blackhole.consume(synth.generate(buffer, BUFFER_SIZE));
+    }
+}
@@ -0,0 +1,137 @@
+package com.scalesynth.bench;
+
+import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.base.generators.Generator;
+import com.scalesynth.base.processors.Processor;
+import com.scalesynth.dsp.generators.DualOscillator;
+import com.scalesynth.dsp.generators.Envelope;
+import com.scalesynth.dsp.oversampling.OversampledGenerator;
+import com.scalesynth.dsp.oversampling.OversampledProcessor;
+import com.scalesynth.dsp.processors.SvfFilter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.scalesynth.bench.BenchmarkRunner.SAMPLES_PER_INVOCATION;
+
+/**
+ * Benchmark of oversampling: the bare up/down conversion around a processor that does nothing,
+ * and the oscillators with the filter of one voice running at 1, 2 and 4 times the sample rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(SAMPLES_PER_INVOCATION)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OversamplingBenchmark {
+    private static final int BUFFER_SIZE = 256;
+
+    @Param({"1", "2", "4"})
+    private int factor;
+
+    @Param({"1", "8"})
+    private int unison;
+
+    private OversampledProcessor conversion;
+    private OversampledGenerator voice;
+    private double[][] input;
+    private double[][] buffer;
+
+    @Setup
+    public void setup() {
+        conversion = new OversampledProcessor(new Processor() {
+            @Override
+            public void process(double[][] inputs, int offset, int n) {
+            }
+
+            @Override
+            public void process(float[][] inputs, int offset, int n) {
+            }
+
+            @Override
+            public void setSampleRate(double sampleRate) {
+            }
+
+            @Override
+            public void setBufferSize(int bufferSize) {
+            }
+
+            @Override
+            public void handleKeyboardEvent(KeyboardEvent keyboardEvent) {
+            }
+
+            @Override
+            public boolean isActive() {
+                return true;
+            }
+        });
+        conversion.setSampleRate(44100);
+        conversion.setBufferSize(BUFFER_SIZE);
+        conversion.setFactor(factor);
+
+        voice = new OversampledGenerator(createVoice());
+        voice.setSampleRate(44100);
+        voice.setBufferSize(BUFFER_SIZE);
+        voice.setFactor(factor);
+        voice.handleKeyboardEvent(KeyboardEvent.noteOn(84, 1046.5, 100));
+
+        var random = new Random(42);
+        input = new double[2][BUFFER_SIZE];
+        buffer = new double[2][BUFFER_SIZE];
+        for (var channel : input)
+            for (int i = 0; i < BUFFER_SIZE; ++i)
+                channel[i] = 2 * random.nextDouble() - 1;
+    }
+
+    /**
+     * Creates oscillators with a filter, the same as in a synthesizer voice.
+     *
+     * @return a new generator.
+     */
+    private Generator createVoice() {
+        var oscillator = new DualOscillator();
+        oscillator.setMasterAmplitude(1);
+        oscillator.setSlaveAmplitude(0.5);
+        oscillator.setSlaveOctave(1);
+        oscillator.setSlaveMix(1);
+        oscillator.setMasterPulseWidth(0.5);
+        oscillator.setSlavePulseWidth(0.5);
+        oscillator.setSyncEnabled(true);
+        oscillator.setUnisonVoices(unison);
+        oscillator.setUnisonDetune(0.1);
+        oscillator.setUnisonStereo(0.1);
+
+        var filterEnvelope = new Envelope();
+        filterEnvelope.setAttackRate(5);
+        filterEnvelope.setDecayRate(5);
+        filterEnvelope.setSustainLevel(0.6);
+        filterEnvelope.setReleaseRate(5);
+        var filter = new SvfFilter(filterEnvelope);
+        filter.setCutoff(2000);
+        filter.setQ(0.71);
+        filter.setEnvelopeAmount(1);
+
+        return oscillator.then(filter);
+    }
+
+    @Benchmark
+    public void conversion(Blackhole blackhole) {
+        for (int done = 0; done < SAMPLES_PER_INVOCATION; done += BUFFER_SIZE) {
+            for (int ch = 0; ch < 2; ++ch)
+                System.arraycopy(input[ch], 0, buffer[ch], 0, BUFFER_SIZE);
+            conversion.process(buffer, BUFFER_SIZE);
+        }
+        blackhole.consume(buffer);
+    }
+
+    @Benchmark
+    public void voice(Blackhole blackhole) {
+        for (int done = 0; done < SAMPLES_PER_INVOCATION; done += BUFFER_SIZE)
+            voice.generate(buffer, BUFFER_SIZE);
+        blackhole.consume(buffer);
+    }
+}
@@ -0,0 +1,113 @@
+package com.scalesynth.bench;
+
+import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.base.generators.Generator;
+import com.scalesynth.base.generators.PolyGenerator;
+import com.scalesynth.dsp.generators.DualOscillator;
+import com.scalesynth.dsp.generators.Envelope;
+import com.scalesynth.dsp.processors.Amp;
+import com.scalesynth.dsp.processors.SvfFilter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.scalesynth.bench.BenchmarkRunner.SAMPLES_PER_INVOCATION;
+
+/**
+ * Benchmark of the whole polyphonic engine with all voices playing (oscillators, filter and amplifier).
+ * <p>
+ * {@code single} precision renders voices into float buffers (see {@link PolyGenerator#setSinglePrecision(boolean)}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(SAMPLES_PER_INVOCATION)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PolyGeneratorBenchmark {
+    @Param({"32", "64", "128", "256", "512", "1024", "2048"})
+    private int bufferSize;
+
+    @Param({"1", "8", "32"})
+    private int voices;
+
+    @Param({"1", "2", "4", "8"})
+    private int unison;
+
+    @Param({"double", "single"})
+    private String precision;
+
+    private PolyGenerator generator;
+    private double[][] buffer;
+    private float[][] floatBuffer;
+
+    @Setup
+    public void setup() {
+        generator = new PolyGenerator(voices, this::createVoice);
+        generator.setSampleRate(44100);
+        generator.setBufferSize(bufferSize);
+        generator.setSinglePrecision(precision.equals("single"));
+        buffer = new double[2][bufferSize];
+        floatBuffer = new float[2][bufferSize];
+
+        for (int i = 0; i < voices; ++i) {
+            int note = 36 + i;
+            generator.handleKeyboardEvent(KeyboardEvent.noteOn(note, 440 * Math.pow(2, (note - 69) / 12.0), 100));
+        }
+    }
+
+    /**
+     * Creates a voice similar to the one used in the synthesizer.
+     *
+     * @return a new voice.
+     */
+    private Generator createVoice() {
+        var oscillator = new DualOscillator();
+        oscillator.setMasterAmplitude(1);
+        oscillator.setSlaveAmplitude(0.5);
+        oscillator.setSlaveOctave(1);
+        oscillator.setSlaveMix(1);
+        oscillator.setMasterPulseWidth(0.5);
+        oscillator.setSlavePulseWidth(0.5);
+        oscillator.setSyncEnabled(true);
+        oscillator.setNoiseAmplitude(1e-3);
+        oscillator.setUnisonVoices(unison);
+        oscillator.setUnisonDetune(0.1);
+        oscillator.setUnisonStereo(0.1);
+
+        var filterEnvelope = new Envelope();
+        filterEnvelope.setAttackRate(5);
+        filterEnvelope.setDecayRate(5);
+        filterEnvelope.setSustainLevel(0.6);
+        filterEnvelope.setReleaseRate(5);
+        var filter = new SvfFilter(filterEnvelope);
+        filter.setCutoff(2000);
+        filter.setQ(0.71);
+        filter.setEnvelopeAmount(1);
+
+        var ampEnvelope = new Envelope();
+        ampEnvelope.setAttackRate(5);
+        ampEnvelope.setDecayRate(5);
+        ampEnvelope.setSustainLevel(0.6);
+        ampEnvelope.setReleaseRate(5);
+        var amp = new Amp(ampEnvelope);
+        amp.setAmplitude(1);
+
+        return oscillator.then(filter).then(amp);
+    }
+
+    @Benchmark
+    public void generate(Blackhole blackhole) {
+        if (precision.equals("single")) {
+            for (int done = 0; done < SAMPLES_PER_INVOCATION; done += bufferSize)
+                generator.generate(floatBuffer, 0, bufferSize);
+            blackhole.consume(floatBuffer);
+        } else {
+            for (int done = 0; done < SAMPLES_PER_INVOCATION; done += bufferSize)
+                generator.generate(buffer, bufferSize);
+            blackhole.consume(buffer);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.scalesynth.bench;
+
+import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.dsp.generators.Envelope;
+import com.scalesynth.dsp.processors.SvfFilter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.scalesynth.bench.BenchmarkRunner.SAMPLES_PER_INVOCATION;
+
+/**
+ * Benchmark of recursive components decaying into silence.
+ * <p>
+ * The filter rings out after a burst of noise and the envelope decays to zero sustain level.
+ * The envelope attack is short and is over by the end of the burst, so no tail length measures the attack.
+ * Time per sample should be the same for every tail length: otherwise state has reached subnormal numbers.
+ * <p>
+ * A whole iteration renders minutes of audio, so every invocation starts from the same point of the tail:
+ * the burst and the tail are rendered again in a per-invocation fixture. The burst is long enough to wipe out
+ * whatever the filter held before, and a note on restarts the envelope. Long tails make the fixture slow,
+ * but it isn't timed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(SAMPLES_PER_INVOCATION)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReleaseTailBenchmark {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int BUFFER_SIZE = 256;
+    private static final int BURST_BLOCKS = (SAMPLE_RATE / 10 + BUFFER_SIZE - 1) / BUFFER_SIZE;
+    // created once: GC profiler counts allocations of the per-invocation fixture too
+    private static final KeyboardEvent NOTE_ON = KeyboardEvent.noteOn(60, 261.6, 100);
+
+    @Param({"0", "1", "10", "60"})
+    private int tailSeconds;
+
+    private SvfFilter filter;
+    private Envelope envelope;
+    private double[][] buffer;
+    private double[][] noise;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        buffer = new double[2][BUFFER_SIZE];
+
+        var filterEnvelope = new Envelope();
+        filter = new SvfFilter(filterEnvelope);
+        filter.setSampleRate(SAMPLE_RATE);
+        filter.setBufferSize(BUFFER_SIZE);
+        filter.setCutoff(2000);
+        filter.setQ(4);
+        filter.setMode(0);
+
+        envelope = new Envelope();
+        envelope.setSampleRate(SAMPLE_RATE);
+        envelope.setAttackRate(100);
+        envelope.setDecayRate(30);
+        envelope.setSustainLevel(0);
+
+        var random = new Random(42);
+        noise = new double[2][BURST_BLOCKS * BUFFER_SIZE];
+        for (var channel : noise)
+            for (int i = 0; i < channel.length; ++i)
+                channel[i] = random.nextDouble() * 2 - 1;
+    }
+
+    @Setup(Level.Invocation)
+    public void restart() {
+        envelope.handleKeyboardEvent(NOTE_ON);
+
+        for (int block = 0; block < BURST_BLOCKS; ++block) {
+            for (int ch = 0; ch < buffer.length; ++ch)
+                System.arraycopy(noise[ch], block * BUFFER_SIZE, buffer[ch], 0, BUFFER_SIZE);
+            filter.process(buffer, BUFFER_SIZE);
+            envelope.generate(buffer, BUFFER_SIZE);
+        }
+
+        for (long done = 0; done < (long) tailSeconds * SAMPLE_RATE; done += BUFFER_SIZE)
+            renderSilence();
+    }
+
+    private void renderSilence() {
+        for (var channel : buffer)
+            Arrays.fill(channel, 0);
+        filter.process(buffer, BUFFER_SIZE);
+        envelope.generate(buffer, BUFFER_SIZE);
+    }
+
+    @Benchmark
+    public void tail(Blackhole blackhole) {
+        for (int done = 0; done < SAMPLES_PER_INVOCATION; done += BUFFER_SIZE)
+            renderSilence();
+        blackhole.consume(buffer);
+    }
+}
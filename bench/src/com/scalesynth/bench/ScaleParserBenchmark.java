@@ -0,0 +1,41 @@
+package com.scalesynth.bench;
+
+import com.scalesynth.scl.ScaleParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of .scl parser. It doesn't depend on buffer size, so it is parameterized by scale size instead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScaleParserBenchmark {
+    @Param({"12", "72", "1024"})
+    private int notes;
+
+    private byte[] scale;
+
+    @Setup
+    public void setup() {
+        var builder = new StringBuilder("! benchmark.scl\n!\nBenchmark scale\n ").append(notes).append("\n!\n");
+        for (int i = 1; i <= notes; ++i) {
+            if (i % 2 == 0)
+                builder.append(1200.0 * i / notes).append('\n');
+            else
+                builder.append(notes + i).append('/').append(notes).append('\n');
+        }
+        scale = builder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public Object parse() {
+        return new ScaleParser().parse(new ByteArrayInputStream(scale));
+    }
+}
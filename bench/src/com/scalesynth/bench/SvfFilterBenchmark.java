@@ -0,0 +1,69 @@
+package com.scalesynth.bench;
+
+import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.dsp.generators.Envelope;
+import com.scalesynth.dsp.processors.SvfFilter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.scalesynth.bench.BenchmarkRunner.SAMPLES_PER_INVOCATION;
+
+/**
+ * Benchmark of the stereo SVF filter (with its envelope), with static and modulated cutoff.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(SAMPLES_PER_INVOCATION)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SvfFilterBenchmark {
+    @Param({"32", "64", "128", "256", "512", "1024", "2048"})
+    private int bufferSize;
+
+    @Param({"0", "2"})
+    private double envelopeAmount;
+
+    private SvfFilter filter;
+    private double[][] input;
+    private double[][] buffer;
+
+    @Setup
+    public void setup() {
+        var envelope = new Envelope();
+        envelope.setAttackRate(1);
+        envelope.setDecayRate(5);
+        envelope.setSustainLevel(0.5);
+        envelope.setReleaseRate(5);
+
+        filter = new SvfFilter(envelope);
+        filter.setSampleRate(44100);
+        filter.setBufferSize(bufferSize);
+        filter.setCutoff(1000);
+        filter.setQ(2);
+        filter.setMode(45);
+        filter.setEnvelopeAmount(envelopeAmount);
+        filter.handleKeyboardEvent(KeyboardEvent.noteOn(60, 261.6, 100));
+
+        var random = new Random(42);
+        input = new double[2][bufferSize];
+        buffer = new double[2][bufferSize];
+        for (var channel : input)
+            for (int i = 0; i < bufferSize; ++i)
+                channel[i] = 2 * random.nextDouble() - 1;
+    }
+
+    @Benchmark
+    public void process(Blackhole blackhole) {
+        for (int done = 0; done < SAMPLES_PER_INVOCATION; done += bufferSize) {
+            for (int ch = 0; ch < 2; ++ch)
+                System.arraycopy(input[ch], 0, buffer[ch], 0, bufferSize);
+            filter.process(buffer, bufferSize);
+        }
+        blackhole.consume(buffer);
+    }
+}
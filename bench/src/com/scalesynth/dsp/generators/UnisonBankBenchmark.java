@@ -0,0 +1,64 @@
+package com.scalesynth.dsp.generators;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.scalesynth.bench.BenchmarkRunner.SAMPLES_PER_INVOCATION;
+
+/**
+ * Benchmark of a bank of BLEP oscillators.
+ * It is placed in the oscillator package because {@link UnisonBank} is package private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(SAMPLES_PER_INVOCATION)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnisonBankBenchmark {
+    @Param({"32", "64", "128", "256", "512", "1024", "2048"})
+    private int bufferSize;
+
+    @Param({"1", "8", "64"})
+    private int voices;
+
+    @Param({"false", "true"})
+    private boolean sync;
+
+    @Param({"0", "0.5", "1"})
+    private double mix;
+
+    private UnisonBank bank;
+    private double[] left;
+    private double[] right;
+
+    @Setup
+    public void setup() {
+        bank = new UnisonBank();
+        bank.setVoiceCount(voices);
+        bank.setSampleRate(44100);
+        for (int voice = 0; voice < voices; ++voice) {
+            var detune = Math.pow(2, (voice - voices / 2.0) / 24 / voices);
+            bank.setFreq(voice, 440 * 1.5 * detune);
+            bank.setMasterFreq(voice, 440 * detune);
+            bank.setGains(voice, 0.5 / voices, 0.5 / voices);
+            bank.reset(voice, Math.random(), Math.random());
+        }
+        bank.setSyncEnabled(sync);
+        bank.setMix(mix);
+        bank.setPulseWidth(0.3);
+        left = new double[bufferSize];
+        right = new double[bufferSize];
+    }
+
+    @Benchmark
+    public void generate(Blackhole blackhole) {
+        for (int done = 0; done < SAMPLES_PER_INVOCATION; done += bufferSize)
+            bank.generate(left, right, 0, bufferSize);
+        blackhole.consume(left);
+        blackhole.consume(right);
+    }
+}
@@ -0,0 +1,130 @@
+package com.scalesynth.cli;
+
+import com.scalesynth.ScaleSynth;
+import com.scalesynth.audio.AudioBackend;
+import com.scalesynth.audio.AudioSettings;
+import com.scalesynth.services.ScaleService;
+import com.scalesynth.services.SynthSerializationService;
+
+import javax.sound.midi.MidiSystem;
+import java.io.FileInputStream;
+import java.nio.file.Path;
+
+/**
+ * Headless entry point: renders a Standard MIDI File to a WAV file faster than real time,
+ * or plays it with any other audio backend.
+ */
+public class Main {
+    private static final String USAGE = "Usage: scalesynth-cli <input.mid> <output> [options]\n" +
+            "Output is a WAV file for the wav backend, a device name for sound card backends\n" +
+            "(\"default\" for the default device), it is ignored by the null backend.\n" +
+            "Options:\n" +
+            "  --backend <name>        audio backend: " + String.join(", ", AudioBackend.getAvailableNames()) +
+            " (default wav)\n" +
+            "  --preset <file.ssynth>  synth settings to use\n" +
+            "  --scale <file.scl>      scale to use\n" +
+            "  --sample-rate <hz>      output sample rate (default 44100)\n" +
+            "  --buffer <samples>      render block size (default 256)\n" +
+            "  --threads <n>           voice render threads (default 1)\n" +
+            "  --precision <p>         voice render precision: double or single (default double)\n" +
+            "  --tail <seconds>        audio rendered after the last event (default 2)\n" +
+            "  --seed <n>              seed of noise, drift and phases (random by default)";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+
+        var input = Path.of(args[0]);
+        var output = args[1];
+        String backendName = "wav";
+        String preset = null;
+        String scale = null;
+        int sampleRate = 44100;
+        int bufferSize = 256;
+        int threads = 1;
+        boolean singlePrecision = false;
+        double tail = 2;
+        Long seed = null;
+
+        for (int i = 2; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                System.err.println(USAGE);
+                System.exit(1);
+            }
+            var value = args[i + 1];
+            switch (args[i]) {
+                case "--backend":
+                    backendName = value;
+                    break;
+                case "--preset":
+                    preset = value;
+                    break;
+                case "--scale":
+                    scale = value;
+                    break;
+                case "--sample-rate":
+                    sampleRate = Integer.parseInt(value);
+                    break;
+                case "--buffer":
+                    bufferSize = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--precision":
+                    if (!value.equals("double") && !value.equals("single")) {
+                        System.err.println(USAGE);
+                        System.exit(1);
+                    }
+                    singlePrecision = value.equals("single");
+                    break;
+                case "--tail":
+                    tail = Double.parseDouble(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    System.err.println(USAGE);
+                    System.exit(1);
+            }
+        }
+
+        var synth = new ScaleSynth();
+        var scaleService = new ScaleService();
+        if (preset != null)
+            try (var stream = new FileInputStream(preset)) {
+                new SynthSerializationService(synth.getParameters()).open(stream);
+            }
+        if (scale != null)
+            try (var stream = new FileInputStream(scale)) {
+                scaleService.enable(stream);
+            }
+
+        synth.setRenderThreads(threads);
+        synth.setSinglePrecision(singlePrecision);
+        if (seed != null)
+            synth.setSeed(seed);
+        var backend = AudioBackend.create(backendName);
+        var sequence = MidiSystem.getSequence(input.toFile());
+        var scheduler = new MidiFileScheduler(synth, scaleService);
+        long length = scheduler.schedule(sequence, sampleRate) + Math.round(tail * sampleRate);
+        var device = output.equals("default") && !backendName.equals("wav") ? null : output;
+
+        long start = System.nanoTime();
+        backend.start(scheduler, new AudioSettings(sampleRate, bufferSize, device, length));
+        backend.awaitCompletion();
+        backend.stop();
+        double totalSeconds = (System.nanoTime() - start) / 1e9;
+        synth.stop();
+
+        double audioSeconds = (double) backend.getRenderedSamples() / sampleRate;
+        double renderSeconds = backend.getRenderNanos() / 1e9;
+        System.out.printf("Rendered %.2f s of audio in %.2f s (%.2f s in the synthesizer).%n",
+                audioSeconds, totalSeconds, renderSeconds);
+        System.out.printf("Real-time factor: %.1fx (synthesizer only: %.1fx)%n",
+                audioSeconds / totalSeconds, audioSeconds / renderSeconds);
+    }
+}
@@ -0,0 +1,189 @@
+package com.scalesynth.cli;
+
+import com.scalesynth.ScaleSynth;
+import com.scalesynth.audio.AudioSource;
+import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.base.KeyboardEventRing;
+import com.scalesynth.base.KeyboardEventType;
+import com.scalesynth.services.ScaleService;
+
+import javax.sound.midi.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Schedules all notes of a Standard MIDI File on the synthesizer.
+ * <p>
+ * The file is converted to encoded events once. Scheduler is an audio source that wraps the synthesizer:
+ * before every block the events of that block are passed to the synthesizer, so playback doesn't allocate anything.
+ */
+public class MidiFileScheduler implements AudioSource {
+    private static final int SET_TEMPO = 0x51;
+    private static final long DEFAULT_TEMPO = 500_000; // microseconds per quarter note (120 bpm).
+
+    private final ScaleSynth synth;
+    private final ScaleService scaleService;
+    private final KeyboardEventRing events;
+    private long[] positions = new long[1024];
+    private long[] codes = new long[1024];
+    private double[] freqs = new double[1024];
+    private int size;
+    private int next;
+    private long renderedSamples;
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param synth        synthesizer to schedule events on.
+     * @param scaleService scale used to convert notes to frequencies.
+     */
+    public MidiFileScheduler(ScaleSynth synth, ScaleService scaleService) {
+        this.synth = synth;
+        this.scaleService = scaleService;
+        this.events = synth.createEventSource();
+    }
+
+    /**
+     * Converts events of the sequence to sample positions (position 0 is the start of the sequence).
+     * Events are passed to the synthesizer later, when their blocks are rendered.
+     *
+     * @param sequence   a sequence to schedule.
+     * @param sampleRate sample rate used for rendering.
+     * @return position of the last event.
+     */
+    public long schedule(Sequence sequence, double sampleRate) {
+        List<MidiEvent> events = new ArrayList<>();
+        for (var track : sequence.getTracks())
+            for (int i = 0; i < track.size(); ++i)
+                events.add(track.get(i));
+        events.sort(Comparator.comparingLong(MidiEvent::getTick));
+
+        long tempo = DEFAULT_TEMPO;
+        long lastTick = 0;
+        double microseconds = 0;
+        long position = 0;
+
+        for (var event : events) {
+            microseconds += ticksToMicroseconds(sequence, event.getTick() - lastTick, tempo);
+            lastTick = event.getTick();
+            position = Math.round(microseconds * sampleRate / 1e6);
+
+            var message = event.getMessage();
+            if (message instanceof MetaMessage && ((MetaMessage) message).getType() == SET_TEMPO) {
+                var data = ((MetaMessage) message).getData();
+                tempo = ((data[0] & 0xFF) << 16) | ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
+            } else if (message instanceof ShortMessage) {
+                schedule((ShortMessage) message, position);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Passes events of the block to the synthesizer and renders it.
+     *
+     * @param outputs buffers to place generated audio into.
+     * @param n       how many samples to generate.
+     * @return false if the block is silent and {@code outputs} weren't written.
+     */
+    @Override
+    public boolean generate(float[][] outputs, int n) {
+        dispatch(renderedSamples + n);
+        renderedSamples += n;
+        return synth.generate(outputs, n);
+    }
+
+    @Override
+    public void setSampleRate(double sampleRate) {
+        synth.setSampleRate(sampleRate);
+    }
+
+    @Override
+    public void setBufferSize(int bufferSize) {
+        synth.setBufferSize(bufferSize);
+    }
+
+    /**
+     * Passes all events that are due before the given position to the synthesizer.
+     * If the synthesizer can't take more events in this block, the rest is passed in the next call.
+     *
+     * @param until position after the last sample of the block that is going to be rendered.
+     */
+    private void dispatch(long until) {
+        while (next < size && positions[next] < until) {
+            if (!events.add(codes[next], freqs[next], positions[next]))
+                break;
+            ++next;
+        }
+    }
+
+    /**
+     * Converts note on, note off, pitch bend, control change and channel pressure messages to encoded events.
+     *
+     * @param message  a message to schedule.
+     * @param position sample position of the message.
+     */
+    private void schedule(ShortMessage message, long position) {
+        int data1 = message.getData1();
+        int data2 = message.getData2();
+        switch (message.getCommand()) {
+            case ShortMessage.NOTE_ON:
+                if (data2 == 0) {
+                    add(position, KeyboardEvent.encode(KeyboardEventType.NOTE_OFF, data1, -1), -1);
+                    break;
+                }
+                double freq = scaleService.getFreq(data1);
+                if (freq <= 20000)
+                    add(position, KeyboardEvent.encode(KeyboardEventType.NOTE_ON, data1, data2), freq);
+                break;
+            case ShortMessage.NOTE_OFF:
+                add(position, KeyboardEvent.encode(KeyboardEventType.NOTE_OFF, data1, -1), -1);
+                break;
+            case ShortMessage.PITCH_BEND:
+                var ratio = KeyboardEvent.bendRatio(data1, data2);
+                add(position, KeyboardEvent.encode(KeyboardEventType.PITCH_BEND, -1, -1), ratio);
+                break;
+            case ShortMessage.CONTROL_CHANGE:
+                add(position, KeyboardEvent.encode(KeyboardEventType.CONTROL_CHANGE, data1, data2), -1);
+                break;
+            case ShortMessage.CHANNEL_PRESSURE:
+                add(position, KeyboardEvent.encode(KeyboardEventType.CHANNEL_PRESSURE, -1, data1), -1);
+                break;
+        }
+    }
+
+    /**
+     * Appends an encoded event to the list of events to dispatch.
+     *
+     * @param position sample position of the event.
+     * @param code     encoded event.
+     * @param freq     frequency value of the event.
+     */
+    private void add(long position, long code, double freq) {
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+            codes = Arrays.copyOf(codes, size * 2);
+            freqs = Arrays.copyOf(freqs, size * 2);
+        }
+        positions[size] = position;
+        codes[size] = code;
+        freqs[size] = freq;
+        ++size;
+    }
+
+    /**
+     * Converts a number of ticks to microseconds.
+     *
+     * @param sequence a sequence with timing information.
+     * @param ticks    number of ticks.
+     * @param tempo    current tempo in microseconds per quarter note.
+     * @return duration in microseconds.
+     */
+    private static double ticksToMicroseconds(Sequence sequence, long ticks, long tempo) {
+        if (sequence.getDivisionType() == Sequence.PPQ)
+            return (double) ticks * tempo / sequence.getResolution();
+        return ticks * 1e6 / (sequence.getDivisionType() * sequence.getResolution());
+    }
+}
@@ -0,0 +1,6 @@
+module scalesynth.cli {
+    requires java.desktop;
+    requires scalesynth.dsp;
+
+    exports com.scalesynth.cli;
+}
@@ -1,21 +1,46 @@
 package com.scalesynth;
 
+import com.scalesynth.audio.AudioSource;
 import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.base.KeyboardEventQueue;
+import com.scalesynth.base.KeyboardEventRing;
+import com.scalesynth.base.ScratchArena;
 import com.scalesynth.base.generators.Generator;
 import com.scalesynth.base.generators.PolyGenerator;
-import com.scalesynth.base.parameters.Parameter;
-import com.scalesynth.dsp.generators.DualOscillator;
-import com.scalesynth.dsp.generators.Envelope;
-import com.scalesynth.dsp.processors.Amp;
-import com.scalesynth.dsp.processors.SvfFilter;
+import com.scalesynth.dsp.modulation.ModulationBus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Main synthesizer class.
  * It is used to fill buffers with n samples.
  */
-public class ScaleSynth implements Generator {
+public class ScaleSynth implements Generator, AudioSource {
     private final ScaleSynthParameters parameters = new ScaleSynthParameters();
-    private final Generator generator = new PolyGenerator(8, this::createVoice);
+    private final List<ScaleSynthVoice> voices = new ArrayList<>();
+    private final ModulationBus modulation = new ModulationBus();
+    private final PolyGenerator generator = new PolyGenerator(8, this::createVoice);
+    private final KeyboardEventQueue events = new KeyboardEventQueue();
+    private volatile ScaleSynthSnapshot snapshot = new ScaleSynthSnapshot(parameters, 0);
+    private volatile double sampleRate = 44100;
+    private int bufferSize = ScratchArena.DEFAULT_SIZE;
+    private long samplePosition;
+
+    // Position of the block that is rendered after the current one, and the time current block was started.
+    // It is written by the audio thread and read by the event producers (see getSamplePosition).
+    private volatile long clockSequence;
+    private volatile long clockSamples;
+    private volatile long clockNanos;
+
+    /**
+     * Constructs a new synthesizer instance.
+     */
+    public ScaleSynth() {
+        for (var parameter : parameters.getAll())
+            parameter.addListener(value -> publishSnapshot());
+    }
 
     /**
      * Returns a new generator, representing one voice.
@@ -23,177 +48,210 @@ public class ScaleSynth implements Generator {
      * @return a new voice.
      */
     private Generator createVoice() {
-        Envelope ampEnvelope = createAmpEnvelope();
-        Envelope filterEnvelope = createFilterEnvelope();
-        SvfFilter filter = createFilter(filterEnvelope);
-        DualOscillator dualOscillator = createOscillators();
-        Amp amp = createAmp(ampEnvelope);
+        var voice = new ScaleSynthVoice(modulation);
+        voice.apply(new ScaleSynthSnapshot(parameters, 0));
+        voices.add(voice);
+        return voice;
+    }
 
-        return dualOscillator.then(filter).then(amp);
+    /**
+     * Publishes current parameter values to the audio thread.
+     * This is called from the thread that changes parameters (typically UI thread).
+     */
+    private synchronized void publishSnapshot() {
+        snapshot = new ScaleSynthSnapshot(parameters, snapshot.generation + 1);
     }
 
     /**
-     * Sets up and returns an amplifier.
-     *
-     * @param ampEnvelope an envelope to use.
-     * @return new amplifier processor.
+     * Applies the latest published snapshot to all voices.
+     * This is called from the audio thread once per block, voices are updated only if snapshot has changed.
      */
-    private Amp createAmp(Envelope ampEnvelope) {
-        var amp = new Amp(ampEnvelope);
-        amp.setAmplitude(parameters.ampAmplitude.getDefault());
-        parameters.ampAmplitude.addListener(amp::setAmplitude);
-        return amp;
+    private void applySnapshot() {
+        var current = snapshot;
+        modulation.setVibratoRate(current.vibratoRate);
+        modulation.setVibratoDepth(current.vibratoDepth);
+        modulation.setFilterLfoRate(current.filterLfoRate);
+        modulation.setFilterLfoAmount(current.filterLfoAmount);
+        for (int i = 0; i < voices.size(); ++i)
+            voices.get(i).apply(current);
     }
 
     /**
-     * Sets up and returns a new oscillator.
+     * Returns an object containing all parameters of this synth.
      *
-     * @return a new oscillator.
+     * @return an instance of the ScaleSynthParameters class used in this synth.
      */
-    private DualOscillator createOscillators() {
-        var osc = new DualOscillator();
-
-        osc.setSlaveOctave(parameters.slaveOctave.getDefault());
-        parameters.slaveOctave.addListener(osc::setSlaveOctave);
-
-        osc.setSlaveSemi(parameters.slaveSemi.getDefault());
-        parameters.slaveSemi.addListener(osc::setSlaveSemi);
-
-        osc.setSlaveFine(parameters.slaveFine.getDefault());
-        parameters.slaveFine.addListener(osc::setSlaveFine);
-
-        osc.setDrift(parameters.drift.getDefault());
-        parameters.drift.addListener(osc::setDrift);
-
-        osc.setSyncEnabled(parameters.syncEnabled.getDefault());
-        parameters.syncEnabled.addListener(osc::setSyncEnabled);
-
-        osc.setMasterMix(parameters.masterMix.getDefault());
-        parameters.masterMix.addListener(osc::setMasterMix);
-
-        osc.setSlaveMix(parameters.slaveMix.getDefault());
-        parameters.slaveMix.addListener(osc::setSlaveMix);
-
-        osc.setMasterPulseWidth(parameters.masterPW.getDefault());
-        parameters.masterPW.addListener(osc::setMasterPulseWidth);
-
-        osc.setSlavePulseWidth(parameters.slavePW.getDefault());
-        parameters.slavePW.addListener(osc::setSlavePulseWidth);
-
-        osc.setMasterAmplitude(parameters.masterAmplitude.getDefault());
-        parameters.masterAmplitude.addListener(osc::setMasterAmplitude);
-
-        osc.setSlaveAmplitude(parameters.slaveAmplitude.getDefault());
-        parameters.slaveAmplitude.addListener(osc::setSlaveAmplitude);
-
-        osc.setNoiseAmplitude(parameters.noiseAmplitude.getDefault());
-        parameters.noiseAmplitude.addListener(osc::setNoiseAmplitude);
-
-        osc.setUnisonVoices(parameters.unisonVoices.getDefault());
-        parameters.unisonVoices.addListener(osc::setUnisonVoices);
-
-        osc.setUnisonDetune(parameters.unisonDetune.getDefault());
-        parameters.unisonDetune.addListener(osc::setUnisonDetune);
-
-        osc.setUnisonStereo(parameters.unisonStereo.getDefault());
-        parameters.unisonStereo.addListener(osc::setUnisonStereo);
-
-        return osc;
+    public ScaleSynthParameters getParameters() {
+        return parameters;
     }
 
     /**
-     * Sets up and returns a new filter.
+     * Generates of the audio.
+     * Note that content of {@code outputs} can be overwritten (this behaviour depends on a subclass).
+     * <p>
+     * The block is split at the positions of scheduled keyboard events, so they are sample accurate.
+     * Blocks longer than the buffer size are split as well, and so are blocks longer than
+     * {@link ModulationBus#CONTROL_BLOCK} while an LFO is running.
      *
-     * @param filterEnvelope an envelope to modulate new filter.
-     * @return a new filter.
+     * @param outputs buffers to place generated audio into.
+     * @param offset  index of the first sample to generate in {@code outputs}.
+     * @param n       how many samples to generate.
      */
-    private SvfFilter createFilter(Envelope filterEnvelope) {
-        var filter = new SvfFilter(filterEnvelope);
-
-        filter.setCutoff(parameters.filterCutoff.getDefault());
-        parameters.filterCutoff.addListener(filter::setCutoff);
-
-        filter.setQ(parameters.filterQ.getDefault());
-        parameters.filterQ.addListener(filter::setQ);
-
-        filter.setKeyboardTracking(parameters.filterKeyboardTracking.getDefault());
-        parameters.filterKeyboardTracking.addListener(filter::setKeyboardTracking);
-
-        filter.setEnvelopeAmount(parameters.filterEgAmount.getDefault());
-        parameters.filterEgAmount.addListener(filter::setEnvelopeAmount);
-
-        filter.setMode(parameters.filterMode.getDefault());
-        parameters.filterMode.addListener(filter::setMode);
-        return filter;
+    @Override
+    public void generate(double[][] outputs, int offset, int n) {
+        if (!render(outputs, null, offset, n))
+            for (var output : outputs)
+                Arrays.fill(output, offset, offset + n, 0.0);
     }
 
     /**
-     * Sets up and returns a new filter envelope.
+     * Generates of the audio in single precision, the block is split like in {@link #generate(double[][], int, int)}.
+     * Voices are rendered in single precision only if it is enabled (see {@link #setSinglePrecision(boolean)}).
      *
-     * @return a new filter envelope.
+     * @param outputs buffers to place generated audio into.
+     * @param offset  index of the first sample to generate in {@code outputs}.
+     * @param n       how many samples to generate.
      */
-    private Envelope createFilterEnvelope() {
-        var filterEnvelope = new Envelope();
-
-        filterEnvelope.setAttackRate(parameters.filterEgAttackRate.getDefault());
-        parameters.filterEgAttackRate.addListener(filterEnvelope::setAttackRate);
-
-        filterEnvelope.setDecayRate(parameters.filterEgDecayRate.getDefault());
-        parameters.filterEgDecayRate.addListener(filterEnvelope::setDecayRate);
-
-        filterEnvelope.setSustainLevel(parameters.filterEgSustainLevel.getDefault());
-        parameters.filterEgSustainLevel.addListener(filterEnvelope::setSustainLevel);
-
-        filterEnvelope.setReleaseRate(parameters.filterEgReleaseRate.getDefault());
-        parameters.filterEgReleaseRate.addListener(filterEnvelope::setReleaseRate);
-        return filterEnvelope;
+    @Override
+    public void generate(float[][] outputs, int offset, int n) {
+        if (!render(null, outputs, offset, n))
+            for (var output : outputs)
+                Arrays.fill(output, offset, offset + n, 0.0f);
     }
 
     /**
-     * Sets up and returns a new amplifier envelope.
+     * Generates of the audio in single precision (the format audio devices usually work with).
+     * <p>
+     * While the synthesizer is idle (see {@link #isIdle(int)}), the block isn't rendered at all
+     * and {@code outputs} are left untouched.
      *
-     * @return a new amplifier envelope.
+     * @param outputs buffers to place generated audio into.
+     * @param n       how many samples to generate.
+     * @return false if the block is silent and {@code outputs} weren't written.
      */
-    private Envelope createAmpEnvelope() {
-        var ampEnvelope = new Envelope();
-
-        ampEnvelope.setAttackRate(parameters.ampEgAttackRate.getDefault());
-        parameters.ampEgAttackRate.addListener(ampEnvelope::setAttackRate);
+    @Override
+    public boolean generate(float[][] outputs, int n) {
+        return render(null, outputs, 0, n);
+    }
 
-        ampEnvelope.setDecayRate(parameters.ampEgDecayRate.getDefault());
-        parameters.ampEgDecayRate.addListener(ampEnvelope::setDecayRate);
+    /**
+     * Renders a block into one of the outputs, the other one is null.
+     * The block is split into parts at the event positions, every part is rendered straight into the outputs.
+     *
+     * @param outputs      double precision buffers or null.
+     * @param floatOutputs single precision buffers or null.
+     * @param offset       index of the first sample to generate in the outputs.
+     * @param n            how many samples to generate.
+     * @return false if the block is silent and the outputs weren't written.
+     */
+    private boolean render(double[][] outputs, float[][] floatOutputs, int offset, int n) {
+        try {
+            startBlock(n);
+            if (isIdle(n)) {
+                skipBlock(n);
+                return false;
+            }
+            for (int done = 0; done < n; ) {
+                int length = dispatchEvents(n - done);
+                modulation.update(length);
+                if (outputs != null)
+                    generator.generate(outputs, offset + done, length);
+                else
+                    generator.generate(floatOutputs, offset + done, length);
+                samplePosition += length;
+                done += length;
+            }
+        } catch (Throwable e) {
+            e.printStackTrace();
+        }
+        return true;
+    }
 
-        ampEnvelope.setSustainLevel(parameters.ampEgSustainLevel.getDefault());
-        parameters.ampEgSustainLevel.addListener(ampEnvelope::setSustainLevel);
+    /**
+     * Checks whether the next block would be silent: no voice is sounding and no event is due in the block.
+     * Called after {@link #startBlock(int)}, so an event that has just arrived wakes the synthesizer
+     * in the very block it is scheduled at.
+     *
+     * @param n size of the block.
+     * @return true if the block doesn't have to be rendered.
+     */
+    private boolean isIdle(int n) {
+        return !generator.isActive() && events.peekTime() >= samplePosition + n;
+    }
 
-        ampEnvelope.setReleaseRate(parameters.ampEgReleaseRate.getDefault());
-        parameters.ampEgReleaseRate.addListener(ampEnvelope::setReleaseRate);
-        return ampEnvelope;
+    /**
+     * Advances time over a silent block without rendering it. LFOs keep running, so their phase
+     * is the same as if the block was rendered.
+     *
+     * @param n size of the block.
+     */
+    private void skipBlock(int n) {
+        modulation.update(n);
+        samplePosition += n;
     }
 
     /**
-     * Returns an object containing all parameters of this synth.
+     * Prepares rendering of the next block: applies parameters, takes new events and updates the clock.
      *
-     * @return an instance of the ScaleSynthParameters class used in this synth.
+     * @param n size of the block.
      */
-    public ScaleSynthParameters getParameters() {
-        return parameters;
+    private void startBlock(int n) {
+        applySnapshot();
+        events.drain();
+
+        clockSequence++;
+        clockSamples = samplePosition + n;
+        clockNanos = System.nanoTime();
+        clockSequence++;
     }
 
     /**
-     * Generates of the audio.
-     * Note that content of {@code outputs} can be overwritten (this behaviour depends on a subclass).
+     * Passes all events that are due to the voices, modulation events are passed to the modulation bus.
      *
-     * @param outputs buffers to place generated audio into.
-     * @param n       how many samples to generate.
+     * @param remaining number of samples left in the current block.
+     * @return how many samples can be rendered before the next event (no more than the buffer size
+     * and the modulation control block).
      */
-    @Override
-    public void generate(double[][] outputs, int n) {
-        try {
-            generator.generate(outputs, n);
-        } catch (Throwable e) {
-            e.printStackTrace();
+    private int dispatchEvents(int remaining) {
+        while (events.peekTime() <= samplePosition) {
+            var event = events.poll();
+            if (ModulationBus.accepts(event))
+                modulation.handleKeyboardEvent(event);
+            else
+                generator.handleKeyboardEvent(event);
         }
+        var maxLength = Math.min(Math.min(remaining, bufferSize), modulation.getMaxBlockSize());
+        return (int) Math.min(maxLength, events.peekTime() - samplePosition);
+    }
+
+    /**
+     * Converts {@link System#nanoTime()} value to the sample position.
+     * <p>
+     * Events are delayed by exactly one block: event that happened while the current block was played
+     * is placed at the same offset of the next block. That constant delay is much better than quantization
+     * of all events to the block start.
+     * <p>
+     * The position is never more than one block after the start of the next block. When rendering stalls
+     * (the driver is restarted, the callback is late), events that come meanwhile are played as soon as
+     * it resumes instead of being delayed by the whole stall.
+     *
+     * @param nanoTime time of the event.
+     * @return a sample position to schedule the event at.
+     */
+    public long getSamplePosition(long nanoTime) {
+        long sequence;
+        long samples;
+        long nanos;
+        do {
+            sequence = clockSequence;
+            samples = clockSamples;
+            nanos = clockNanos;
+        } while ((sequence & 1) != 0 || sequence != clockSequence);
+
+        if (sequence == 0)
+            return KeyboardEventQueue.IMMEDIATELY; // nothing was rendered yet.
+        var offset = (long) ((nanoTime - nanos) * sampleRate / 1e9);
+        return samples + Math.min(offset, bufferSize);
     }
 
     /**
@@ -203,35 +261,115 @@ public class ScaleSynth implements Generator {
      */
     @Override
     public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+        modulation.setSampleRate(sampleRate);
         generator.setSampleRate(sampleRate);
     }
 
+    /**
+     * Sets a maximum number of samples that will be requested in one call.
+     * Should be called with the device buffer size before audio is started.
+     * Larger blocks still can be requested, they are rendered in several parts.
+     *
+     * @param bufferSize new maximum buffer size.
+     */
+    @Override
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        generator.setBufferSize(bufferSize);
+    }
+
     /**
      * Called when the user presses or releases any key.
      * Useful for retriggering envelopes and LFOs.
+     * <p>
+     * The event is applied at the start of the next block. This method is thread safe.
      *
      * @param keyboardEvent represent a type of keyboard event.
      */
     @Override
     public void handleKeyboardEvent(KeyboardEvent keyboardEvent) {
-        generator.handleKeyboardEvent(keyboardEvent);
+        events.add(keyboardEvent, KeyboardEventQueue.IMMEDIATELY);
+    }
+
+    /**
+     * Schedules the event at given sample position (see {@link #getSamplePosition(long)}).
+     * Events scheduled in the past are applied at the start of the next block. This method is thread safe.
+     *
+     * @param keyboardEvent  represent a type of keyboard event.
+     * @param samplePosition position of the event.
+     */
+    public void handleKeyboardEvent(KeyboardEvent keyboardEvent, long samplePosition) {
+        events.add(keyboardEvent, samplePosition);
+    }
+
+    /**
+     * Schedules an encoded event at given sample position. This method is thread safe and doesn't allocate anything,
+     * so it is preferred for dense event streams (e.g. MIDI controllers).
+     * <p>
+     * At most {@link KeyboardEventQueue#CAPACITY} events can be added per block, events above that are rejected.
+     *
+     * @param code           encoded event (see {@link KeyboardEvent#encode(com.scalesynth.base.KeyboardEventType, int, int)}).
+     * @param freq           frequency value of the event (or other floating point value).
+     * @param samplePosition position of the event.
+     * @return false if the event was rejected.
+     */
+    public boolean scheduleEvent(long code, double freq, long samplePosition) {
+        return events.add(code, freq, samplePosition);
+    }
+
+    /**
+     * Creates a lock-free event ring for an input source with its own thread (e.g. a MIDI port).
+     * Events added to the ring are applied like the scheduled ones (see {@link #scheduleEvent(long, double, long)}),
+     * but the source doesn't compete with other threads that add events.
+     *
+     * @return a new ring, only one thread at a time may add events to it.
+     */
+    public KeyboardEventRing createEventSource() {
+        return events.createSource();
     }
 
     /**
-     * Removes all listeners of ScalSynthParameter instance.
+     * Sets a number of threads used to render voices (including the audio thread).
+     * Should be called before audio is started.
+     *
+     * @param threads number of render threads (1 means serial rendering).
+     */
+    public void setRenderThreads(int threads) {
+        generator.setRenderThreads(threads);
+    }
+
+    /**
+     * Sets if voices are rendered in single precision when single precision output is requested
+     * (see {@link #generate(float[][], int)}). That halves memory traffic of the voice buffers and lets
+     * vector instructions process twice as many samples, filter and oscillator state stay in double precision.
+     * Double precision output is always rendered in double precision.
+     * <p>
+     * This method shouldn't be called while audio is being rendered.
+     *
+     * @param singlePrecision true to render voices in single precision.
+     */
+    public void setSinglePrecision(boolean singlePrecision) {
+        generator.setSinglePrecision(singlePrecision);
+    }
+
+    /**
+     * Seeds random generators of all voices, so noise, drift and oscillator phases are reproducible.
+     * This method shouldn't be called while audio is being rendered.
+     *
+     * @param seed a new seed.
+     */
+    public void setSeed(long seed) {
+        for (int i = 0; i < voices.size(); ++i)
+            voices.get(i).setSeed(seed + i);
+    }
+
+    /**
+     * Removes all listeners of ScalSynthParameter instance and stops render threads.
      */
     public void stop() {
-        var fields = parameters.getClass().getDeclaredFields();
-        try {
-            for (var field : fields) {
-                var parameter = field.get(parameters);
-                if (Parameter.class.isAssignableFrom(field.getType())) {
-                    var method = field.getType().getMethod("close");
-                    method.invoke(parameter);
-                }
-            }
-        } catch (ReflectiveOperationException e) {
-            e.printStackTrace();
-        }
+        for (var parameter : parameters.getAll())
+            parameter.close();
+        generator.setRenderThreads(1);
     }
 }
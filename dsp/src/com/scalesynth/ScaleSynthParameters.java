@@ -2,6 +2,10 @@ package com.scalesynth;
 
 import com.scalesynth.base.parameters.NumericParameter;
 import com.scalesynth.base.parameters.Parameter;
+import com.scalesynth.dsp.processors.SilenceDetector;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Exposed parameters of the synth.
@@ -54,7 +58,11 @@ public class ScaleSynthParameters {
             new NumericParameter<>("stereo", 0.1, 0.0, 1.0, "%");
 
     public final NumericParameter<Integer> unisonVoices =
-            new NumericParameter<>("voices", 3, 1, 8, "%");
+            new NumericParameter<>("voices", 3, 1, 64, "%");
+
+    // 0 is BLEP, 1 is wavetable (see OscillatorEngine)
+    public final NumericParameter<Integer> oscillatorEngine =
+            new NumericParameter<>("engine", 0, 0, 1, "");
 
     // amp eg
 
@@ -105,4 +113,49 @@ public class ScaleSynthParameters {
 
     public final NumericParameter<Double> filterKeyboardTracking =
             new NumericParameter<>("tracking", 0.0, 0.0, 1.0, "%");
+
+
+    // lfo
+
+    public final NumericParameter<Double> vibratoRate =
+            new NumericParameter<>("rate", 5.0, 0.1, 20.0, "hz");
+
+    // maximum depth, it is reached with mod wheel or channel pressure at maximum
+    public final NumericParameter<Double> vibratoDepth =
+            new NumericParameter<>("vibrato", 0.5, 0.0, 2.0, "semitones");
+
+    public final NumericParameter<Double> filterLfoRate =
+            new NumericParameter<>("rate", 1.0, 0.05, 20.0, "hz");
+
+    public final NumericParameter<Double> filterLfoAmount =
+            new NumericParameter<>("lfo", 0.0, 0.0, 4.0, "octaves");
+
+
+    // quality
+
+    // oscillators and filter run at 2^oversampling times the sample rate
+    public final NumericParameter<Integer> oversampling =
+            new NumericParameter<>("oversampling", 0, 0, 2, "octaves");
+
+    // released voices are freed once their output stays below this level, the minimum turns it off
+    public final NumericParameter<Double> silenceThreshold =
+            new NumericParameter<>("silence", -96.0, SilenceDetector.DISABLED, -48.0, "dB");
+
+    /**
+     * Returns all parameters declared in this class.
+     * Order of the list is unspecified (reflection doesn't guarantee declaration order).
+     *
+     * @return a list of all parameters.
+     */
+    public List<Parameter<?>> getAll() {
+        var result = new ArrayList<Parameter<?>>();
+        try {
+            for (var field : getClass().getDeclaredFields())
+                if (Parameter.class.isAssignableFrom(field.getType()))
+                    result.add((Parameter<?>) field.get(this));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
 }
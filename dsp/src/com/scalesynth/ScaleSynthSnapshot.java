@@ -0,0 +1,127 @@
+package com.scalesynth;
+
+import com.scalesynth.base.parameters.Parameter;
+
+/**
+ * Immutable copy of all {@link ScaleSynthParameters} values.
+ * <p>
+ * A new snapshot is published every time any parameter changes.
+ * The audio thread picks it up once per block and compares generations to find out if anything changed,
+ * so parameter setters of the voices are never called concurrently with rendering.
+ */
+class ScaleSynthSnapshot {
+    final long generation;
+
+    // oscillators and mixer
+    final int slaveOctave;
+    final int slaveSemi;
+    final int slaveFine;
+    final double drift;
+    final boolean syncEnabled;
+    final double masterMix;
+    final double slaveMix;
+    final double masterPW;
+    final double slavePW;
+    final double masterAmplitude;
+    final double slaveAmplitude;
+    final double noiseAmplitude;
+    final double unisonDetune;
+    final double unisonStereo;
+    final int unisonVoices;
+    final int oscillatorEngine;
+
+    // amp eg
+    final double ampEgAttackRate;
+    final double ampEgDecayRate;
+    final double ampEgSustainLevel;
+    final double ampEgReleaseRate;
+    final double ampAmplitude;
+
+    // filter eg
+    final double filterEgAttackRate;
+    final double filterEgDecayRate;
+    final double filterEgSustainLevel;
+    final double filterEgReleaseRate;
+    final double filterEgAmount;
+
+    // filter
+    final double filterCutoff;
+    final double filterQ;
+    final double filterMode;
+    final double filterKeyboardTracking;
+
+    // lfo
+    final double vibratoRate;
+    final double vibratoDepth;
+    final double filterLfoRate;
+    final double filterLfoAmount;
+
+    // quality
+    final int oversampling;
+    final double silenceThreshold;
+
+    /**
+     * Reads current values of the parameters.
+     * Parameters that were never set are replaced by their default values.
+     *
+     * @param parameters parameters to read.
+     * @param generation number of this snapshot (it is increased on every change).
+     */
+    ScaleSynthSnapshot(ScaleSynthParameters parameters, long generation) {
+        this.generation = generation;
+
+        slaveOctave = valueOf(parameters.slaveOctave);
+        slaveSemi = valueOf(parameters.slaveSemi);
+        slaveFine = valueOf(parameters.slaveFine);
+        drift = valueOf(parameters.drift);
+        syncEnabled = valueOf(parameters.syncEnabled);
+        masterMix = valueOf(parameters.masterMix);
+        slaveMix = valueOf(parameters.slaveMix);
+        masterPW = valueOf(parameters.masterPW);
+        slavePW = valueOf(parameters.slavePW);
+        masterAmplitude = valueOf(parameters.masterAmplitude);
+        slaveAmplitude = valueOf(parameters.slaveAmplitude);
+        noiseAmplitude = valueOf(parameters.noiseAmplitude);
+        unisonDetune = valueOf(parameters.unisonDetune);
+        unisonStereo = valueOf(parameters.unisonStereo);
+        unisonVoices = valueOf(parameters.unisonVoices);
+        oscillatorEngine = valueOf(parameters.oscillatorEngine);
+
+        ampEgAttackRate = valueOf(parameters.ampEgAttackRate);
+        ampEgDecayRate = valueOf(parameters.ampEgDecayRate);
+        ampEgSustainLevel = valueOf(parameters.ampEgSustainLevel);
+        ampEgReleaseRate = valueOf(parameters.ampEgReleaseRate);
+        ampAmplitude = valueOf(parameters.ampAmplitude);
+
+        filterEgAttackRate = valueOf(parameters.filterEgAttackRate);
+        filterEgDecayRate = valueOf(parameters.filterEgDecayRate);
+        filterEgSustainLevel = valueOf(parameters.filterEgSustainLevel);
+        filterEgReleaseRate = valueOf(parameters.filterEgReleaseRate);
+        filterEgAmount = valueOf(parameters.filterEgAmount);
+
+        filterCutoff = valueOf(parameters.filterCutoff);
+        filterQ = valueOf(parameters.filterQ);
+        filterMode = valueOf(parameters.filterMode);
+        filterKeyboardTracking = valueOf(parameters.filterKeyboardTracking);
+
+        vibratoRate = valueOf(parameters.vibratoRate);
+        vibratoDepth = valueOf(parameters.vibratoDepth);
+        filterLfoRate = valueOf(parameters.filterLfoRate);
+        filterLfoAmount = valueOf(parameters.filterLfoAmount);
+
+        oversampling = valueOf(parameters.oversampling);
+        silenceThreshold = valueOf(parameters.silenceThreshold);
+    }
+
+    /**
+     * Returns current value of the parameter, or its default value if it was never set.
+     *
+     * @param parameter parameter to read.
+     * @param <T>       type of the value.
+     * @return value of the parameter.
+     */
+    private static <T> T valueOf(Parameter<T> parameter) {
+        var value = parameter.getValue();
+        return value != null ? value : parameter.getDefault();
+    }
+}
@@ -0,0 +1,190 @@
+package com.scalesynth;
+
+import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.base.KeyboardEventType;
+import com.scalesynth.base.ScratchArena;
+import com.scalesynth.base.generators.Generator;
+import com.scalesynth.dsp.generators.DualOscillator;
+import com.scalesynth.dsp.generators.Envelope;
+import com.scalesynth.dsp.generators.OscillatorEngine;
+import com.scalesynth.dsp.modulation.ModulationBus;
+import com.scalesynth.dsp.oversampling.OversampledGenerator;
+import com.scalesynth.dsp.processors.Amp;
+import com.scalesynth.dsp.processors.SvfFilter;
+
+/**
+ * One voice of the synthesizer: oscillators, filter and amplifier with their envelopes.
+ * <p>
+ * Parameters of the voice components are updated only from the audio thread by {@link #apply(ScaleSynthSnapshot)}.
+ * Global modulation is read from the shared {@link ModulationBus} when the voice is rendered.
+ * <p>
+ * Each voice has its own oversampler, but the factor comes from one global parameter. A sounding voice keeps
+ * its factor (changing it would reset oscillator phases), it takes the new one when it is idle or at the next note on.
+ */
+class ScaleSynthVoice implements Generator {
+    private static final OscillatorEngine[] ENGINES = OscillatorEngine.values();
+    private final Envelope ampEnvelope = new Envelope();
+    private final Envelope filterEnvelope = new Envelope();
+    private final DualOscillator oscillator = new DualOscillator();
+    private final SvfFilter filter = new SvfFilter(filterEnvelope);
+    private final Amp amp = new Amp(ampEnvelope);
+    private final OversampledGenerator oversampled = new OversampledGenerator(oscillator.then(filter));
+    private final Generator chain = oversampled.then(amp);
+    private final ModulationBus modulation;
+    private long generation = -1;
+    private long modulationGeneration = -1;
+    private int oversamplingFactor = 1;
+
+    /**
+     * Constructs a new voice.
+     *
+     * @param modulation modulation bus shared by all voices.
+     */
+    ScaleSynthVoice(ModulationBus modulation) {
+        this.modulation = modulation;
+    }
+
+    /**
+     * Updates all components with values from the snapshot.
+     * Nothing is done if this snapshot was already applied.
+     *
+     * @param snapshot parameter values to use.
+     */
+    void apply(ScaleSynthSnapshot snapshot) {
+        if (snapshot.generation == generation)
+            return;
+        generation = snapshot.generation;
+
+        applyOscillators(snapshot);
+        applyFilter(snapshot);
+        applyFilterEnvelope(snapshot);
+        applyAmpEnvelope(snapshot);
+        amp.setAmplitude(snapshot.ampAmplitude);
+        amp.setSilenceThreshold(snapshot.silenceThreshold);
+        oversamplingFactor = 1 << snapshot.oversampling;
+        if (!isActive())
+            oversampled.setFactor(oversamplingFactor);
+    }
+
+    /**
+     * Sets a seed of the voice random generator.
+     *
+     * @param seed a new seed.
+     */
+    void setSeed(long seed) {
+        oscillator.setSeed(seed);
+    }
+
+    /**
+     * Updates the oscillators.
+     *
+     * @param snapshot parameter values to use.
+     */
+    private void applyOscillators(ScaleSynthSnapshot snapshot) {
+        oscillator.setSlaveOctave(snapshot.slaveOctave);
+        oscillator.setSlaveSemi(snapshot.slaveSemi);
+        oscillator.setSlaveFine(snapshot.slaveFine);
+        oscillator.setDrift(snapshot.drift);
+        oscillator.setSyncEnabled(snapshot.syncEnabled);
+        oscillator.setMasterMix(snapshot.masterMix);
+        oscillator.setSlaveMix(snapshot.slaveMix);
+        oscillator.setMasterPulseWidth(snapshot.masterPW);
+        oscillator.setSlavePulseWidth(snapshot.slavePW);
+        oscillator.setMasterAmplitude(snapshot.masterAmplitude);
+        oscillator.setSlaveAmplitude(snapshot.slaveAmplitude);
+        oscillator.setNoiseAmplitude(snapshot.noiseAmplitude);
+        oscillator.setUnisonVoices(snapshot.unisonVoices);
+        oscillator.setUnisonDetune(snapshot.unisonDetune);
+        oscillator.setUnisonStereo(snapshot.unisonStereo);
+        oscillator.setEngine(ENGINES[snapshot.oscillatorEngine]);
+    }
+
+    /**
+     * Updates the filter.
+     *
+     * @param snapshot parameter values to use.
+     */
+    private void applyFilter(ScaleSynthSnapshot snapshot) {
+        filter.setCutoff(snapshot.filterCutoff);
+        filter.setQ(snapshot.filterQ);
+        filter.setKeyboardTracking(snapshot.filterKeyboardTracking);
+        filter.setEnvelopeAmount(snapshot.filterEgAmount);
+        filter.setMode(snapshot.filterMode);
+    }
+
+    /**
+     * Updates the filter envelope.
+     *
+     * @param snapshot parameter values to use.
+     */
+    private void applyFilterEnvelope(ScaleSynthSnapshot snapshot) {
+        filterEnvelope.setAttackRate(snapshot.filterEgAttackRate);
+        filterEnvelope.setDecayRate(snapshot.filterEgDecayRate);
+        filterEnvelope.setSustainLevel(snapshot.filterEgSustainLevel);
+        filterEnvelope.setReleaseRate(snapshot.filterEgReleaseRate);
+    }
+
+    /**
+     * Updates the amplifier envelope.
+     *
+     * @param snapshot parameter values to use.
+     */
+    private void applyAmpEnvelope(ScaleSynthSnapshot snapshot) {
+        ampEnvelope.setAttackRate(snapshot.ampEgAttackRate);
+        ampEnvelope.setDecayRate(snapshot.ampEgDecayRate);
+        ampEnvelope.setSustainLevel(snapshot.ampEgSustainLevel);
+        ampEnvelope.setReleaseRate(snapshot.ampEgReleaseRate);
+    }
+
+    @Override
+    public void generate(double[][] outputs, int offset, int n) {
+        applyModulation();
+        chain.generate(outputs, offset, n);
+    }
+
+    @Override
+    public void generate(float[][] outputs, int offset, int n) {
+        applyModulation();
+        chain.generate(outputs, offset, n);
+    }
+
+    /**
+     * Reads global modulation from the bus, components are updated only if it has changed.
+     */
+    private void applyModulation() {
+        if (modulation.getGeneration() != modulationGeneration) {
+            modulationGeneration = modulation.getGeneration();
+            oscillator.setPitchModulation(modulation.getPitchRatio());
+            filter.setPitchModulation(modulation.getPitchRatio());
+            filter.setCutoffModulation(modulation.getCutoffRatio());
+        }
+    }
+
+    @Override
+    public void setSampleRate(double sampleRate) {
+        chain.setSampleRate(sampleRate);
+    }
+
+    @Override
+    public void setBufferSize(int bufferSize) {
+        chain.setBufferSize(bufferSize);
+    }
+
+    @Override
+    public void setScratchArena(ScratchArena arena) {
+        chain.setScratchArena(arena);
+    }
+
+    @Override
+    public void handleKeyboardEvent(KeyboardEvent keyboardEvent) {
+        // note on resets the oscillators anyway, so a pending factor can be applied without a click
+        if (keyboardEvent.getType() == KeyboardEventType.NOTE_ON)
+            oversampled.setFactor(oversamplingFactor);
+        chain.handleKeyboardEvent(keyboardEvent);
+    }
+
+    @Override
+    public boolean isActive() {
+        return chain.isActive();
+    }
+}
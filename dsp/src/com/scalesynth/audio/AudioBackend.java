@@ -0,0 +1,101 @@
+package com.scalesynth.audio;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Audio output service: pulls audio from an {@link AudioSource} and sends it somewhere
+ * (a sound card, a file or nowhere).
+ * <p>
+ * Implementations are found with {@link ServiceLoader}, modules provide them in their module descriptors.
+ * Output is always stereo.
+ */
+public interface AudioBackend {
+    /**
+     * Number of output channels.
+     */
+    int CHANNEL_COUNT = 2;
+
+    /**
+     * Returns a short name of the backend used to select it (e.g. "javasound").
+     *
+     * @return name of the backend.
+     */
+    String getName();
+
+    /**
+     * Returns true if the backend can work on this system.
+     *
+     * @return true if the backend is available.
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Prepares the source and starts pulling audio from it. Returns immediately, audio is rendered by another thread.
+     * <p>
+     * Device backends may use sample rate and buffer size of the device instead of the requested ones.
+     *
+     * @param source   audio to output.
+     * @param settings output settings.
+     * @throws IOException thrown when the output cannot be opened.
+     */
+    void start(AudioSource source, AudioSettings settings) throws IOException;
+
+    /**
+     * Waits until the backend stops: either {@link AudioSettings#getLength()} samples are rendered
+     * or {@link #stop()} is called.
+     *
+     * @throws InterruptedException thrown when the current thread is interrupted.
+     */
+    void awaitCompletion() throws InterruptedException;
+
+    /**
+     * Stops rendering and releases the output. Does nothing if the backend is not started.
+     */
+    void stop();
+
+    /**
+     * Returns total number of rendered samples (per channel) since the backend was started.
+     *
+     * @return number of rendered samples.
+     */
+    long getRenderedSamples();
+
+    /**
+     * Returns total time spent in the source since the backend was started, in nanoseconds.
+     *
+     * @return rendering time.
+     */
+    long getRenderNanos();
+
+    /**
+     * Returns names of all backends available on this system.
+     *
+     * @return list of names.
+     */
+    static List<String> getAvailableNames() {
+        var names = new ArrayList<String>();
+        for (var backend : ServiceLoader.load(AudioBackend.class))
+            if (backend.isAvailable())
+                names.add(backend.getName());
+        return names;
+    }
+
+    /**
+     * Creates a new instance of the backend with that name.
+     *
+     * @param name name of the backend.
+     * @return a new backend.
+     * @throws IllegalArgumentException if there is no such backend or it is not available on this system.
+     */
+    static AudioBackend create(String name) {
+        for (var backend : ServiceLoader.load(AudioBackend.class))
+            if (backend.getName().equals(name) && backend.isAvailable())
+                return backend;
+        throw new IllegalArgumentException(String.format("Audio backend %s is not available", name));
+    }
+}
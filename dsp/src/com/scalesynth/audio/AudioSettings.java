@@ -0,0 +1,71 @@
+package com.scalesynth.audio;
+
+/**
+ * Settings an {@link AudioBackend} is started with.
+ */
+public final class AudioSettings {
+    /**
+     * Length value that means "until the backend is stopped".
+     */
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final int sampleRate;
+    private final int bufferSize;
+    private final String device;
+    private final long length;
+
+    /**
+     * Creates new settings.
+     *
+     * @param sampleRate sample rate of the output.
+     * @param bufferSize number of samples rendered at once.
+     * @param device     backend specific name of the output: a device name, a file path,
+     *                   or {@code null} for the default one.
+     * @param length     how many samples to render before the backend stops by itself (or {@link #UNLIMITED}).
+     */
+    public AudioSettings(int sampleRate, int bufferSize, String device, long length) {
+        if (sampleRate <= 0 || bufferSize <= 0 || length < 0)
+            throw new IllegalArgumentException("Sample rate, buffer size and length should be positive");
+
+        this.sampleRate = sampleRate;
+        this.bufferSize = bufferSize;
+        this.device = device;
+        this.length = length;
+    }
+
+    /**
+     * Returns sample rate of the output.
+     *
+     * @return sample rate.
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Returns number of samples rendered at once.
+     *
+     * @return buffer size.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Returns backend specific name of the output.
+     *
+     * @return name of the output, or {@code null} for the default one.
+     */
+    public String getDevice() {
+        return device;
+    }
+
+    /**
+     * Returns how many samples are rendered before the backend stops by itself.
+     *
+     * @return number of samples, or {@link #UNLIMITED}.
+     */
+    public long getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,32 @@
+package com.scalesynth.audio;
+
+/**
+ * Something that produces audio for an {@link AudioBackend} (typically the synthesizer).
+ */
+public interface AudioSource {
+    /**
+     * Generates audio in single precision.
+     * <p>
+     * When nothing is sounding, the source may skip rendering altogether and leave {@code outputs} untouched.
+     * The caller should output silence then (backends keep a pre-zeroed block for that).
+     *
+     * @param outputs buffers to place generated audio into (one per channel).
+     * @param n       how many samples to generate.
+     * @return false if the block is silent and {@code outputs} weren't written.
+     */
+    boolean generate(float[][] outputs, int n);
+
+    /**
+     * Sets a sample rate of the output.
+     *
+     * @param sampleRate new sample rate.
+     */
+    void setSampleRate(double sampleRate);
+
+    /**
+     * Sets a maximum number of samples that will be requested in one call.
+     *
+     * @param bufferSize new maximum buffer size.
+     */
+    void setBufferSize(int bufferSize);
+}
@@ -0,0 +1,84 @@
+package com.scalesynth.audio;
+
+import javax.sound.sampled.*;
+import java.io.IOException;
+
+/**
+ * Backend that plays audio with {@code javax.sound.sampled} (works on every platform the JDK supports).
+ * <p>
+ * The device name is a name of the mixer ({@code null} means the default one). The line buffer holds
+ * two blocks: one is being played while the next one is rendered.
+ */
+public class JavaSoundBackend extends StreamBackend {
+    private static final int BYTES_PER_SAMPLE = 2;
+
+    private SourceDataLine line;
+    private byte[] bytes;
+    private byte[] silence;
+
+    @Override
+    public String getName() {
+        return "javasound";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return AudioSystem.getMixerInfo().length > 0;
+    }
+
+    @Override
+    protected void open(AudioSettings settings) throws IOException {
+        var format = new AudioFormat(settings.getSampleRate(), 8 * BYTES_PER_SAMPLE, CHANNEL_COUNT, true, false);
+        int blockBytes = settings.getBufferSize() * CHANNEL_COUNT * BYTES_PER_SAMPLE;
+        try {
+            line = settings.getDevice() == null
+                    ? AudioSystem.getSourceDataLine(format)
+                    : AudioSystem.getSourceDataLine(format, findMixer(settings.getDevice()));
+            line.open(format, 2 * blockBytes);
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        bytes = new byte[blockBytes];
+        silence = new byte[blockBytes];
+        line.start();
+    }
+
+    @Override
+    protected void write(float[][] outputs, int n) {
+        int i = 0;
+        for (int sample = 0; sample < n; ++sample)
+            for (int ch = 0; ch < CHANNEL_COUNT; ++ch) {
+                var x = Math.max(-1, Math.min(1, outputs[ch][sample]));
+                int value = Math.round(x * Short.MAX_VALUE);
+                bytes[i++] = (byte) value;
+                bytes[i++] = (byte) (value >> 8);
+            }
+        line.write(bytes, 0, i); // blocks until the line has room, so rendering follows the device.
+    }
+
+    @Override
+    protected void writeSilence(int n) {
+        line.write(silence, 0, n * CHANNEL_COUNT * BYTES_PER_SAMPLE);
+    }
+
+    @Override
+    protected void close() {
+        line.drain();
+        line.close();
+        line = null;
+    }
+
+    /**
+     * Finds a mixer by its name.
+     *
+     * @param name name of the mixer.
+     * @return information about the mixer.
+     * @throws IllegalArgumentException if there is no mixer with that name.
+     */
+    private static Mixer.Info findMixer(String name) {
+        for (var info : AudioSystem.getMixerInfo())
+            if (info.getName().equals(name))
+                return info;
+        throw new IllegalArgumentException(String.format("Can't find audio device with name %s", name));
+    }
+}
@@ -0,0 +1,32 @@
+package com.scalesynth.audio;
+
+/**
+ * Backend that renders audio as fast as CPU allows and throws it away.
+ * Useful for measuring throughput of the synthesizer.
+ */
+public class NullBackend extends StreamBackend {
+    @Override
+    public String getName() {
+        return "null";
+    }
+
+    @Override
+    protected void open(AudioSettings settings) {
+        // nothing to open.
+    }
+
+    @Override
+    protected void write(float[][] outputs, int n) {
+        // audio is dropped.
+    }
+
+    @Override
+    protected void writeSilence(int n) {
+        // silence is dropped too.
+    }
+
+    @Override
+    protected void close() {
+        // nothing to close.
+    }
+}
@@ -0,0 +1,141 @@
+package com.scalesynth.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decouples rendering from the audio device: a dedicated thread renders the source a few blocks ahead
+ * into a lock-free ring, and the device callback only copies ready blocks out.
+ * <p>
+ * A hiccup of the render thread (JIT compilation, GC pause, a burst of notes) is absorbed by the blocks
+ * rendered in advance, at the cost of {@code blocksAhead} blocks of additional latency. If the ring is empty
+ * anyway, the device gets silence and the underrun is counted.
+ * <p>
+ * The ring has a single producer (the render thread) and a single consumer (the device callback),
+ * neither of them ever waits for the other.
+ */
+public class RenderAheadBuffer {
+    private final AudioSource source;
+    private final int blockSize;
+    private final WaitStrategy waitStrategy;
+    private final float[][][] blocks;
+    // false for blocks the source reported as silent, their buffers hold stale audio.
+    private final boolean[] audible;
+    // number of blocks rendered so far, written only by the render thread.
+    private final AtomicLong written = new AtomicLong();
+    // number of blocks taken by the device so far, written only by the device callback.
+    private final AtomicLong read = new AtomicLong();
+    private volatile boolean running;
+    private volatile long underruns;
+    private volatile Thread thread;
+
+    /**
+     * Creates a new buffer. The source should be prepared for {@code blockSize} before rendering is started.
+     *
+     * @param source       audio to render (typically the synthesizer).
+     * @param channelCount number of output channels.
+     * @param blockSize    number of samples in a block (typically the device buffer size).
+     * @param blocksAhead  how many blocks are rendered in advance.
+     * @param waitStrategy what the render thread does while the ring is full.
+     */
+    public RenderAheadBuffer(AudioSource source, int channelCount, int blockSize, int blocksAhead,
+                             WaitStrategy waitStrategy) {
+        if (blocksAhead < 1)
+            throw new IllegalArgumentException("At least one block should be rendered ahead");
+
+        this.source = source;
+        this.blockSize = blockSize;
+        this.waitStrategy = waitStrategy;
+        this.blocks = new float[blocksAhead][channelCount][blockSize];
+        this.audible = new boolean[blocksAhead];
+    }
+
+    /**
+     * Starts the render thread. It fills the ring before this method returns, so the device
+     * doesn't start with an underrun.
+     */
+    public synchronized void start() {
+        if (thread != null)
+            return;
+
+        running = true;
+        thread = new Thread(this::run, "ScaleSynth render");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+        while (written.get() - read.get() < blocks.length && thread.isAlive())
+            Thread.yield();
+    }
+
+    /**
+     * Stops the render thread and waits for it to finish.
+     * Blocks that were rendered but not played are dropped.
+     */
+    public synchronized void stop() {
+        if (thread == null)
+            return;
+
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        read.set(written.get());
+    }
+
+    /**
+     * Copies the next rendered block into {@code outputs}, should be called only by the device callback.
+     * Like {@link AudioSource#generate(float[][], int)}, it doesn't touch {@code outputs} if the block is silent
+     * or if no block is ready (which is counted as an underrun), the caller should output silence then.
+     *
+     * @param outputs buffers to place audio into, at least {@code blockSize} samples each.
+     * @return false if the block is silent.
+     */
+    public boolean read(float[][] outputs) {
+        long position = read.getPlain();
+        if (position == written.getAcquire()) {
+            underruns++;
+            return false;
+        }
+
+        int slot = (int) (position % blocks.length);
+        boolean result = audible[slot];
+        if (result) {
+            var block = blocks[slot];
+            for (int ch = 0; ch < outputs.length; ++ch)
+                System.arraycopy(block[ch], 0, outputs[ch], 0, blockSize);
+        }
+        read.setRelease(position + 1);
+        waitStrategy.signal(thread);
+        return result;
+    }
+
+    /**
+     * Returns how many times the device got silence because no block was ready.
+     *
+     * @return number of underruns.
+     */
+    public long getUnderruns() {
+        return underruns;
+    }
+
+    /**
+     * Main loop of the render thread.
+     */
+    private void run() {
+        while (running) {
+            long position = written.getPlain();
+            if (position - read.getAcquire() == blocks.length) {
+                waitStrategy.await();
+                continue;
+            }
+
+            int slot = (int) (position % blocks.length);
+            audible[slot] = source.generate(blocks[slot], blockSize);
+            written.setRelease(position + 1);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.scalesynth.audio;
+
+import java.io.IOException;
+
+/**
+ * Base class of backends that render in their own thread and push audio into a blocking or non-blocking output.
+ * Audio is rendered as fast as the output takes it.
+ */
+abstract class StreamBackend implements AudioBackend {
+    private volatile boolean running;
+    private volatile long renderedSamples;
+    private volatile long renderNanos;
+    private Thread thread;
+
+    @Override
+    public synchronized void start(AudioSource source, AudioSettings settings) throws IOException {
+        if (thread != null)
+            throw new IllegalStateException("Backend is already started");
+
+        source.setSampleRate(settings.getSampleRate());
+        source.setBufferSize(settings.getBufferSize());
+        open(settings);
+
+        renderedSamples = 0;
+        renderNanos = 0;
+        running = true;
+        thread = new Thread(() -> run(source, settings), "ScaleSynth " + getName());
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    @Override
+    public void awaitCompletion() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = this.thread;
+        }
+        if (thread != null)
+            thread.join();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (thread == null)
+            return;
+
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    @Override
+    public long getRenderedSamples() {
+        return renderedSamples;
+    }
+
+    @Override
+    public long getRenderNanos() {
+        return renderNanos;
+    }
+
+    /**
+     * Main loop of the render thread.
+     *
+     * @param source   audio to output.
+     * @param settings output settings.
+     */
+    private void run(AudioSource source, AudioSettings settings) {
+        var outputs = new float[CHANNEL_COUNT][settings.getBufferSize()];
+        var length = settings.getLength();
+        try {
+            for (long done = 0; done < length && running; ) {
+                int n = (int) Math.min(outputs[0].length, length - done);
+
+                long start = System.nanoTime();
+                boolean audible = source.generate(outputs, n);
+                renderNanos += System.nanoTime() - start;
+
+                if (audible)
+                    write(outputs, n);
+                else
+                    writeSilence(n);
+                done += n;
+                renderedSamples = done;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Opens the output. Called by {@link #start} before the render thread is started.
+     *
+     * @param settings output settings.
+     * @throws IOException thrown when the output cannot be opened.
+     */
+    protected abstract void open(AudioSettings settings) throws IOException;
+
+    /**
+     * Sends rendered audio to the output, called by the render thread.
+     *
+     * @param outputs rendered audio (one buffer per channel).
+     * @param n       number of samples.
+     * @throws IOException thrown when the output cannot be written.
+     */
+    protected abstract void write(float[][] outputs, int n) throws IOException;
+
+    /**
+     * Sends silence to the output, called by the render thread instead of {@link #write}
+     * when the source reports an idle block.
+     *
+     * @param n number of samples.
+     * @throws IOException thrown when the output cannot be written.
+     */
+    protected abstract void writeSilence(int n) throws IOException;
+
+    /**
+     * Closes the output, called by the render thread after the last block.
+     *
+     * @throws IOException thrown when the output cannot be closed.
+     */
+    protected abstract void close() throws IOException;
+}
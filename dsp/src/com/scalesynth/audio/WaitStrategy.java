@@ -0,0 +1,65 @@
+package com.scalesynth.audio;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Describes what the render thread does while the audio ring is full (see {@link RenderAheadBuffer}).
+ * <p>
+ * Spinning reacts immediately but keeps one core busy all the time, parking frees the core
+ * but the thread can be woken up later than needed. Yielding is in between.
+ */
+public enum WaitStrategy {
+    /**
+     * Busy waiting with a spin-wait hint.
+     */
+    SPIN {
+        @Override
+        void await() {
+            Thread.onSpinWait();
+        }
+    },
+
+    /**
+     * Gives the core to other threads, but stays runnable.
+     */
+    YIELD {
+        @Override
+        void await() {
+            Thread.yield();
+        }
+    },
+
+    /**
+     * Sleeps until the device takes a block (or for {@link #PARK_NANOS} at most).
+     */
+    PARK {
+        @Override
+        void await() {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+
+        @Override
+        void signal(Thread thread) {
+            LockSupport.unpark(thread);
+        }
+    };
+
+    /**
+     * Maximum time the parked thread sleeps without a signal, in nanoseconds.
+     */
+    private static final long PARK_NANOS = 200_000;
+
+    /**
+     * Waits for a while, called repeatedly until there is a free place in the ring.
+     */
+    abstract void await();
+
+    /**
+     * Notifies the waiting thread that a place in the ring was freed.
+     *
+     * @param thread waiting thread.
+     */
+    void signal(Thread thread) {
+        // nothing to do, the thread checks the ring by itself.
+    }
+}
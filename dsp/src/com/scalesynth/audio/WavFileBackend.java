@@ -0,0 +1,41 @@
+package com.scalesynth.audio;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Backend that streams audio to a 16-bit WAV file as fast as CPU allows.
+ * The device name is the path of the file.
+ */
+public class WavFileBackend extends StreamBackend {
+    private WavFileWriter writer;
+
+    @Override
+    public String getName() {
+        return "wav";
+    }
+
+    @Override
+    protected void open(AudioSettings settings) throws IOException {
+        if (settings.getDevice() == null)
+            throw new IllegalArgumentException("Path of the WAV file is not specified");
+
+        writer = new WavFileWriter(Path.of(settings.getDevice()), settings.getSampleRate(), CHANNEL_COUNT);
+    }
+
+    @Override
+    protected void write(float[][] outputs, int n) throws IOException {
+        writer.write(outputs, n);
+    }
+
+    @Override
+    protected void writeSilence(int n) throws IOException {
+        writer.writeSilence(n);
+    }
+
+    @Override
+    protected void close() throws IOException {
+        writer.close();
+        writer = null;
+    }
+}
@@ -0,0 +1,115 @@
+package com.scalesynth.audio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams audio to a 16-bit PCM WAV file.
+ * <p>
+ * Samples are written as they come, sizes in the header are filled when the file is closed.
+ */
+public class WavFileWriter implements Closeable {
+    private static final int HEADER_SIZE = 44;
+    private static final int BYTES_PER_SAMPLE = 2;
+
+    private final FileChannel channel;
+    private final int channelCount;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(0);
+    // never written to, so it stays zeroed.
+    private ByteBuffer silence = ByteBuffer.allocateDirect(0);
+    private long dataSize;
+
+    /**
+     * Creates (or truncates) a file and writes WAV header into it.
+     *
+     * @param path         path of the file.
+     * @param sampleRate   sample rate of the audio.
+     * @param channelCount number of channels.
+     * @throws IOException thrown when file cannot be written.
+     */
+    public WavFileWriter(Path path, int sampleRate, int channelCount) throws IOException {
+        this.channelCount = channelCount;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        var header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes()).putInt(0).put("WAVE".getBytes());
+        header.put("fmt ".getBytes()).putInt(16)
+                .putShort((short) 1) // PCM
+                .putShort((short) channelCount)
+                .putInt(sampleRate)
+                .putInt(sampleRate * channelCount * BYTES_PER_SAMPLE)
+                .putShort((short) (channelCount * BYTES_PER_SAMPLE))
+                .putShort((short) (8 * BYTES_PER_SAMPLE));
+        header.put("data".getBytes()).putInt(0);
+        header.flip();
+        while (header.hasRemaining())
+            channel.write(header);
+    }
+
+    /**
+     * Appends {@code n} samples of every channel to the file.
+     * Samples are clipped to the [-1, 1] range.
+     *
+     * @param inputs audio to write (one buffer per channel).
+     * @param n      how many samples to write.
+     * @throws IOException thrown when file cannot be written.
+     */
+    public void write(float[][] inputs, int n) throws IOException {
+        int size = n * channelCount * BYTES_PER_SAMPLE;
+        if (buffer.capacity() < size)
+            buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.clear();
+        for (int i = 0; i < n; ++i)
+            for (int ch = 0; ch < channelCount; ++ch) {
+                var x = Math.max(-1, Math.min(1, inputs[ch][i]));
+                buffer.putShort((short) Math.round(x * Short.MAX_VALUE));
+            }
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        dataSize += size;
+    }
+
+    /**
+     * Appends {@code n} samples of silence to the file, without any conversion.
+     *
+     * @param n how many samples to write.
+     * @throws IOException thrown when file cannot be written.
+     */
+    public void writeSilence(int n) throws IOException {
+        int size = n * channelCount * BYTES_PER_SAMPLE;
+        if (silence.capacity() < size)
+            silence = ByteBuffer.allocateDirect(size);
+
+        silence.clear().limit(size);
+        while (silence.hasRemaining())
+            channel.write(silence);
+        dataSize += size;
+    }
+
+    /**
+     * Fills sizes in the header and closes the file.
+     *
+     * @throws IOException thrown when file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            var sizes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            sizes.putInt(0, (int) (HEADER_SIZE - 8 + dataSize));
+            channel.write(sizes, 4);
+            sizes.clear();
+            sizes.putInt(0, (int) dataSize);
+            channel.write(sizes, HEADER_SIZE - 4);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -16,6 +16,28 @@ public interface Component extends Serializable {
      */
     void setSampleRate(double sampleRate);
 
+    /**
+     * Sets a maximum number of samples that will be requested in one call.
+     * Components that need temporary buffers should allocate them there, not in processing.
+     *
+     * @param bufferSize new maximum buffer size.
+     */
+    default void setBufferSize(int bufferSize) {
+
+    }
+
+    /**
+     * Lends an arena of temporary buffers (see {@link ScratchArena}).
+     * Components that need temporary buffers while processing take them from the last lent arena,
+     * and make sure here that it is large enough. An arena can be lent again before every call,
+     * so this shouldn't allocate if the arena already fits.
+     *
+     * @param arena arena to take temporary buffers from.
+     */
+    default void setScratchArena(ScratchArena arena) {
+
+    }
+
     /**
      * Called when the user presses or releases any key.
      * Useful for retriggering envelopes and LFOs.
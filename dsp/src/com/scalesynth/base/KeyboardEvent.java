@@ -1,13 +1,22 @@
 package com.scalesynth.base;
 
+import com.scalesynth.dsp.math.FastMath;
+
 /**
  * Represents a Midi Event.
+ * <p>
+ * Events are passed to the audio thread in a compact primitive form: type, note and value are packed
+ * into one long (see {@link #encode(KeyboardEventType, int, int)}) and the frequency is kept as a separate double.
+ * Instances of this class are only a view of that form for the components, the audio thread reuses
+ * one instance for all events it dispatches.
  */
 public class KeyboardEvent {
-    private final KeyboardEventType type;
-    private final double freq;
-    private final int note;
-    private final int value;
+    private static final KeyboardEventType[] TYPES = KeyboardEventType.values();
+
+    private KeyboardEventType type;
+    private double freq;
+    private int note;
+    private int value;
 
     /**
      * Constructs a new KeyboardEvent instance.
@@ -54,10 +63,78 @@ public class KeyboardEvent {
      * @return a corresponding KeyboardEvent.
      */
     public static KeyboardEvent pitchBend(byte lsb, byte msb) {
+        return new KeyboardEvent(KeyboardEventType.PITCH_BEND, -1, bendRatio(lsb, msb), -1);
+    }
+
+    /**
+     * Converts data bytes of a Pitch Bend message to a frequency coefficient.
+     *
+     * @param lsb least significant byte of the data (data[1])
+     * @param msb most significant byte of the data (data[2])
+     * @return frequency coefficient (from -2 semitones to 2 semitones).
+     */
+    public static double bendRatio(int lsb, int msb) {
         double bendAmount = (msb * 128) + lsb;
         var semitones = 4 * bendAmount / (1 << 14) - 2; // +-2 range
-        var coefficient = Math.pow(2, semitones / 12);
-        return new KeyboardEvent(KeyboardEventType.PITCH_BEND, -1, coefficient, -1);
+        return FastMath.semitonesToRatio(semitones);
+    }
+
+    /**
+     * Packs type, note and value of an event into one long.
+     * <p>
+     * Type takes the lowest 16 bits, note and value take next 16 bits each,
+     * so note and value should be in range [-32768, 32767] (MIDI data bytes and -1 fit there).
+     *
+     * @param type  type of the event.
+     * @param note  note of the event (or -1).
+     * @param value integer value of the event (or -1).
+     * @return the encoded event.
+     */
+    public static long encode(KeyboardEventType type, int note, int value) {
+        return type.ordinal() | (note & 0xFFFFL) << 16 | (value & 0xFFFFL) << 32;
+    }
+
+    /**
+     * Packs type, note and value of this event into one long (see {@link #encode(KeyboardEventType, int, int)}).
+     *
+     * @return the encoded event.
+     */
+    public long encode() {
+        return encode(type, note, value);
+    }
+
+    /**
+     * Makes this instance represent an encoded event.
+     *
+     * @param code encoded type, note and value (see {@link #encode(KeyboardEventType, int, int)}).
+     * @param freq frequency value of the event (or other floating point value).
+     */
+    void load(long code, double freq) {
+        this.type = TYPES[(int) (code & 0xFFFF)];
+        this.note = (short) (code >>> 16);
+        this.value = (short) (code >>> 32);
+        this.freq = freq;
+    }
+
+    /**
+     * A factory method for the Control Change messages.
+     *
+     * @param controller controller number (1 is the mod wheel).
+     * @param value      controller value.
+     * @return a corresponding KeyboardEvent.
+     */
+    public static KeyboardEvent controlChange(int controller, int value) {
+        return new KeyboardEvent(KeyboardEventType.CONTROL_CHANGE, controller, -1, value);
+    }
+
+    /**
+     * A factory method for the Channel Pressure messages.
+     *
+     * @param value pressure value.
+     * @return a corresponding KeyboardEvent.
+     */
+    public static KeyboardEvent channelPressure(int value) {
+        return new KeyboardEvent(KeyboardEventType.CHANNEL_PRESSURE, -1, -1, value);
     }
 
     /**
@@ -0,0 +1,198 @@
+package com.scalesynth.base;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queue of keyboard events, each of them is scheduled at some sample position.
+ * <p>
+ * Events can be added from any thread. Other methods are supposed to be called only from the audio thread:
+ * it moves added events into time-ordered pending list with {@link #drain()} at the start of each block,
+ * and then takes events from that list as the rendering reaches their positions.
+ * <p>
+ * Events are stored in the encoded form (see {@link KeyboardEvent#encode(KeyboardEventType, int, int)})
+ * in preallocated arrays, so adding and taking events doesn't allocate anything. Added events wait
+ * in a bounded ring until the next {@link #drain()}, events that don't fit there are rejected.
+ * <p>
+ * Methods of this class use a ring shared by all threads. Input sources with their own thread
+ * (MIDI ports, on-screen keyboard) should rather use their own single-producer ring (see {@link #createSource()}),
+ * so they don't compete with each other.
+ */
+public class KeyboardEventQueue {
+    /**
+     * Time value that means "as soon as possible".
+     */
+    public static final long IMMEDIATELY = Long.MIN_VALUE;
+
+    /**
+     * Number of events that can be added between two {@link #drain()} calls.
+     */
+    public static final int CAPACITY = 1024;
+
+    private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Ring of added events. Every slot has a sequence number: it is equal to the ring position
+    // when the slot is free for that position, and to the position + 1 when the event in it is ready.
+    private final long[] sequences = new long[CAPACITY];
+    private final long[] incomingTimes = new long[CAPACITY];
+    private final long[] incomingCodes = new long[CAPACITY];
+    private final double[] incomingFreqs = new double[CAPACITY];
+    private final AtomicLong incomingTail = new AtomicLong();
+    private long incomingHead;
+
+    private final KeyboardEvent event = new KeyboardEvent(KeyboardEventType.NOTE_OFF, -1, -1, -1);
+    private long[] times = new long[CAPACITY];
+    private long[] codes = new long[CAPACITY];
+    private double[] freqs = new double[CAPACITY];
+    private int head;
+    private int tail;
+    private volatile KeyboardEventRing[] sources = new KeyboardEventRing[0];
+
+    /**
+     * Constructs a new empty queue.
+     */
+    public KeyboardEventQueue() {
+        for (int i = 0; i < CAPACITY; ++i)
+            sequences[i] = i;
+    }
+
+    /**
+     * Schedules an event. This method is thread safe.
+     *
+     * @param event an event to schedule.
+     * @param time  sample position of the event (or {@link #IMMEDIATELY}).
+     * @return false if the event was rejected because too many events were added since the last drain.
+     */
+    public boolean add(KeyboardEvent event, long time) {
+        return add(event.encode(), event.getFreq(), time);
+    }
+
+    /**
+     * Schedules an encoded event. This method is thread safe and doesn't allocate anything.
+     *
+     * @param code encoded event (see {@link KeyboardEvent#encode(KeyboardEventType, int, int)}).
+     * @param freq frequency value of the event (or other floating point value).
+     * @param time sample position of the event (or {@link #IMMEDIATELY}).
+     * @return false if the event was rejected because too many events were added since the last drain.
+     */
+    public boolean add(long code, double freq, long time) {
+        long position = incomingTail.get();
+        int slot;
+        while (true) {
+            slot = (int) (position & (CAPACITY - 1));
+            long sequence = (long) SEQUENCE.getAcquire(sequences, slot);
+            if (sequence == position) {
+                if (incomingTail.compareAndSet(position, position + 1))
+                    break;
+                position = incomingTail.get();
+            } else if (sequence < position) {
+                return false; // the slot still holds an event from the previous lap
+            } else {
+                position = incomingTail.get(); // another producer took the slot
+            }
+        }
+
+        incomingTimes[slot] = time;
+        incomingCodes[slot] = code;
+        incomingFreqs[slot] = freq;
+        SEQUENCE.setRelease(sequences, slot, position + 1);
+        return true;
+    }
+
+    /**
+     * Creates a ring for an input source. Events added to it are moved to the pending list with {@link #drain()}
+     * as well. This method is thread safe, but it allocates, so sources are better created in advance.
+     *
+     * @return a new ring.
+     */
+    public synchronized KeyboardEventRing createSource() {
+        var ring = new KeyboardEventRing();
+        var newSources = Arrays.copyOf(sources, sources.length + 1);
+        newSources[sources.length] = ring;
+        sources = newSources;
+        return ring;
+    }
+
+    /**
+     * Moves all added events to the pending list.
+     * Events with equal time keep the order they were added in if they were added to the same ring.
+     */
+    public void drain() {
+        for (var source : sources)
+            source.drainTo(this);
+
+        while (true) {
+            int slot = (int) (incomingHead & (CAPACITY - 1));
+            if ((long) SEQUENCE.getAcquire(sequences, slot) != incomingHead + 1)
+                break;
+
+            insert(incomingTimes[slot], incomingCodes[slot], incomingFreqs[slot]);
+            SEQUENCE.setRelease(sequences, slot, incomingHead + CAPACITY);
+            ++incomingHead;
+        }
+    }
+
+    /**
+     * Inserts an event into the pending list keeping it sorted by time.
+     *
+     * @param time sample position of the event.
+     * @param code encoded event.
+     * @param freq frequency value of the event.
+     */
+    void insert(long time, long code, double freq) {
+        if (tail == times.length) {
+            if (head > 0) {
+                System.arraycopy(times, head, times, 0, tail - head);
+                System.arraycopy(codes, head, codes, 0, tail - head);
+                System.arraycopy(freqs, head, freqs, 0, tail - head);
+                tail -= head;
+                head = 0;
+            } else {
+                // only happens when lots of events are scheduled far ahead.
+                times = Arrays.copyOf(times, times.length * 2);
+                codes = Arrays.copyOf(codes, codes.length * 2);
+                freqs = Arrays.copyOf(freqs, freqs.length * 2);
+            }
+        }
+
+        // events normally come in order, so insertion from the end is cheap.
+        int i = tail++;
+        while (i > head && times[i - 1] > time) {
+            times[i] = times[i - 1];
+            codes[i] = codes[i - 1];
+            freqs[i] = freqs[i - 1];
+            --i;
+        }
+        times[i] = time;
+        codes[i] = code;
+        freqs[i] = freq;
+    }
+
+    /**
+     * Returns the time of the earliest pending event.
+     *
+     * @return the time of the earliest pending event, or {@code Long.MAX_VALUE} if there are no pending events.
+     */
+    public long peekTime() {
+        return head == tail ? Long.MAX_VALUE : times[head];
+    }
+
+    /**
+     * Removes the earliest pending event and returns it.
+     * <p>
+     * The same instance is returned every time, it is valid only until the next call.
+     *
+     * @return the earliest pending event, or {@code null} if there are no pending events.
+     */
+    public KeyboardEvent poll() {
+        if (head == tail)
+            return null;
+
+        event.load(codes[head], freqs[head]);
+        if (++head == tail)
+            head = tail = 0;
+        return event;
+    }
+}
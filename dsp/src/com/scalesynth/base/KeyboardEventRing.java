@@ -0,0 +1,79 @@
+package com.scalesynth.base;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer ring of keyboard events from one input source
+ * (e.g. a MIDI port or the on-screen keyboard).
+ * <p>
+ * Events are added by the thread of the source and taken by the audio thread at the start of each block
+ * (see {@link KeyboardEventQueue#drain()}), neither of them ever waits for the other.
+ * Only one thread at a time may add events to a ring, every concurrent source should have its own ring
+ * (see {@link KeyboardEventQueue#createSource()}).
+ */
+public final class KeyboardEventRing {
+    private static final int CAPACITY = KeyboardEventQueue.CAPACITY;
+
+    private final long[] times = new long[CAPACITY];
+    private final long[] codes = new long[CAPACITY];
+    private final double[] freqs = new double[CAPACITY];
+    // position of the next event to take, written only by the audio thread.
+    private final AtomicLong head = new AtomicLong();
+    // position of the next event to add, written only by the producer.
+    private final AtomicLong tail = new AtomicLong();
+    // last head seen by the producer, so it doesn't read the consumer's counter on every event.
+    private long cachedHead;
+
+    KeyboardEventRing() {
+    }
+
+    /**
+     * Schedules an event. Should be called only by the producer of this ring.
+     *
+     * @param event an event to schedule.
+     * @param time  sample position of the event (or {@link KeyboardEventQueue#IMMEDIATELY}).
+     * @return false if the event was rejected because the ring is full.
+     */
+    public boolean add(KeyboardEvent event, long time) {
+        return add(event.encode(), event.getFreq(), time);
+    }
+
+    /**
+     * Schedules an encoded event. Should be called only by the producer of this ring, it doesn't allocate anything.
+     *
+     * @param code encoded event (see {@link KeyboardEvent#encode(KeyboardEventType, int, int)}).
+     * @param freq frequency value of the event (or other floating point value).
+     * @param time sample position of the event (or {@link KeyboardEventQueue#IMMEDIATELY}).
+     * @return false if the event was rejected because the ring is full.
+     */
+    public boolean add(long code, double freq, long time) {
+        long position = tail.getPlain();
+        if (position - cachedHead == CAPACITY) {
+            cachedHead = head.getAcquire();
+            if (position - cachedHead == CAPACITY)
+                return false;
+        }
+
+        int slot = (int) (position & (CAPACITY - 1));
+        times[slot] = time;
+        codes[slot] = code;
+        freqs[slot] = freq;
+        tail.setRelease(position + 1);
+        return true;
+    }
+
+    /**
+     * Moves all added events to the pending list of the queue. Called only by the audio thread.
+     *
+     * @param queue queue to move events to.
+     */
+    void drainTo(KeyboardEventQueue queue) {
+        long position = head.getPlain();
+        long end = tail.getAcquire();
+        for (; position < end; ++position) {
+            int slot = (int) (position & (CAPACITY - 1));
+            queue.insert(times[slot], codes[slot], freqs[slot]);
+        }
+        head.setRelease(position);
+    }
+}
@@ -18,7 +18,19 @@ public enum KeyboardEventType {
 
     /**
      * Event caused by pitch bend.
-     * In this case freq is a frequency coefficient (from -1 semitone to 1 semitone)
+     * In this case freq is a frequency coefficient (from -2 semitones to 2 semitones)
      */
-    PITCH_BEND
+    PITCH_BEND,
+
+    /**
+     * Event caused by a controller (e.g. mod wheel).
+     * In this case note is the controller number, value - the controller value (from 0 to 127).
+     */
+    CONTROL_CHANGE,
+
+    /**
+     * Event caused by channel pressure (aftertouch).
+     * In this case value is the pressure (from 0 to 127).
+     */
+    CHANNEL_PRESSURE
 }
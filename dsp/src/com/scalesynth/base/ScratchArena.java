@@ -0,0 +1,114 @@
+package com.scalesynth.base;
+
+/**
+ * A stack of temporary buffers shared by components that are processed one after another.
+ * <p>
+ * {@link com.scalesynth.base.generators.PolyGenerator} owns one arena per render lane and lends it
+ * (see {@link Component#setScratchArena(ScratchArena)}) to every voice the lane renders, so all components
+ * of all voices of the lane work in the same few buffers. A component takes buffers with {@link #take()}
+ * while processing and releases them before it returns, in reverse order, so the next component gets
+ * the same buffers again.
+ * <p>
+ * Components make sure the arena is large enough with {@link #require(int, int)} when it is lent or when
+ * their buffer size is changed. The arena only grows, and it allocates nothing if it already fits,
+ * so lending it while rendering is free. Single precision buffers are allocated only after
+ * {@link #setSinglePrecision(boolean)}.
+ * <p>
+ * Arena is not thread safe: it should be used by one thread at a time and shouldn't be resized
+ * while audio is being rendered.
+ */
+public class ScratchArena {
+    /**
+     * Buffer size components assume until their {@link Component#setBufferSize(int)} is called.
+     */
+    public static final int DEFAULT_SIZE = 512;
+
+    private double[][][] buffers = new double[0][][];
+    private float[][][] floatBuffers = new float[0][][];
+    private int size;
+    private int taken;
+    private int floatTaken;
+    private boolean singlePrecision;
+
+    /**
+     * Makes sure that the arena has at least {@code count} buffers of at least {@code size} samples.
+     * Contents of the buffers are lost if they are reallocated.
+     *
+     * @param count number of buffers a component holds at once (including buffers of the components it calls).
+     * @param size  length of the buffers.
+     */
+    public void require(int count, int size) {
+        if (count < 0 || size <= 0)
+            throw new IllegalArgumentException("Buffer count should be non-negative and size should be positive");
+        if (count <= buffers.length && size <= this.size)
+            return;
+
+        this.size = Math.max(size, this.size);
+        allocate(Math.max(count, buffers.length));
+    }
+
+    /**
+     * Sets if the arena has single precision buffers (see {@link #takeFloat()}).
+     * They are allocated or dropped there.
+     *
+     * @param singlePrecision true to allocate single precision buffers.
+     */
+    public void setSinglePrecision(boolean singlePrecision) {
+        if (singlePrecision == this.singlePrecision)
+            return;
+
+        this.singlePrecision = singlePrecision;
+        allocate(buffers.length);
+    }
+
+    /**
+     * Takes the next free buffer. Its content is undefined.
+     *
+     * @return a buffer with one channel.
+     */
+    public double[][] take() {
+        if (taken == buffers.length)
+            throw new IllegalStateException("All scratch buffers are taken");
+        return buffers[taken++];
+    }
+
+    /**
+     * Releases the buffer that was taken last.
+     */
+    public void release() {
+        --taken;
+    }
+
+    /**
+     * Takes the next free single precision buffer. Its content is undefined.
+     *
+     * @return a buffer with one channel.
+     */
+    public float[][] takeFloat() {
+        if (floatTaken == floatBuffers.length)
+            throw new IllegalStateException(singlePrecision
+                    ? "All scratch buffers are taken" : "Single precision is not enabled in the scratch arena");
+        return floatBuffers[floatTaken++];
+    }
+
+    /**
+     * Releases the single precision buffer that was taken last.
+     */
+    public void releaseFloat() {
+        --floatTaken;
+    }
+
+    /**
+     * Returns length of the buffers.
+     *
+     * @return length of the buffers.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void allocate(int count) {
+        buffers = new double[count][1][size];
+        floatBuffers = new float[singlePrecision ? count : 0][1][size];
+    }
+}
@@ -1,6 +1,7 @@
 package com.scalesynth.base.generators;
 
 import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.base.ScratchArena;
 import com.scalesynth.base.processors.Processor;
 
 import java.util.Arrays;
@@ -59,14 +60,31 @@ class ChainedGenerator implements Generator {
      * Note that content of {@code outputs} can be overwritten (this behaviour depends on a subclass).
      *
      * @param outputs buffers to place generated audio into.
+     * @param offset  index of the first sample to generate in {@code outputs}.
      * @param n       how many samples to generate.
      */
     @Override
-    public final void generate(double[][] outputs, int n) {
-        generator.generate(outputs, n);
+    public final void generate(double[][] outputs, int offset, int n) {
+        generator.generate(outputs, offset, n);
 
         for (var processor : processors) {
-            processor.process(outputs, n);
+            processor.process(outputs, offset, n);
+        }
+    }
+
+    /**
+     * Generates of the audio in single precision.
+     *
+     * @param outputs buffers to place generated audio into.
+     * @param offset  index of the first sample to generate in {@code outputs}.
+     * @param n       how many samples to generate.
+     */
+    @Override
+    public final void generate(float[][] outputs, int offset, int n) {
+        generator.generate(outputs, offset, n);
+
+        for (var processor : processors) {
+            processor.process(outputs, offset, n);
         }
     }
 
@@ -77,6 +95,20 @@ class ChainedGenerator implements Generator {
             processor.setSampleRate(sampleRate);
     }
 
+    @Override
+    public void setBufferSize(int bufferSize) {
+        generator.setBufferSize(bufferSize);
+        for (var processor : processors)
+            processor.setBufferSize(bufferSize);
+    }
+
+    @Override
+    public void setScratchArena(ScratchArena arena) {
+        generator.setScratchArena(arena);
+        for (var processor : processors)
+            processor.setScratchArena(arena);
+    }
+
     /**
      * Called when the user presses or releases any key.
      * Useful for retriggering envelopes and LFOs.
@@ -93,6 +125,9 @@ class ChainedGenerator implements Generator {
     /**
      * Returns true if component is active (does something useful).
      * This is used mainly to shutdown inactive voices.
+     * <p>
+     * The last processor decides, since it sees the final output of the chain
+     * (i.e. an amplifier that measures the level of the released voice).
      *
      * @return true if component is active, otherwise false.
      */
@@ -12,9 +12,30 @@ public interface Generator extends Component {
      * Note that content of {@code outputs} can be overwritten (this behaviour depends on a subclass).
      *
      * @param outputs buffers to place generated audio into.
+     * @param offset  index of the first sample to generate in {@code outputs}.
      * @param n       how many samples to generate.
      */
-    void generate(double[][] outputs, int n);
+    void generate(double[][] outputs, int offset, int n);
+
+    /**
+     * Generates of the audio in single precision.
+     * The state of the generator can be kept in double precision, only the audio is rendered as floats.
+     *
+     * @param outputs buffers to place generated audio into.
+     * @param offset  index of the first sample to generate in {@code outputs}.
+     * @param n       how many samples to generate.
+     */
+    void generate(float[][] outputs, int offset, int n);
+
+    /**
+     * Generates of the audio into the beginning of the buffers.
+     *
+     * @param outputs buffers to place generated audio into.
+     * @param n       how many samples to generate.
+     */
+    default void generate(double[][] outputs, int n) {
+        generate(outputs, 0, n);
+    }
 
     /**
      * Chains this generator with processor.
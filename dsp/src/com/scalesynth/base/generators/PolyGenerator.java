@@ -2,27 +2,98 @@ package com.scalesynth.base.generators;
 
 import com.scalesynth.base.KeyboardEvent;
 import com.scalesynth.base.KeyboardEventType;
+import com.scalesynth.base.ScratchArena;
+import com.scalesynth.dsp.math.BufferOps;
 
-import java.util.*;
+import java.util.Arrays;
 import java.util.function.Supplier;
 
 /**
  * Represent a polyphonic generator.
  * Each voice is created using
+ * <p>
+ * This class is not thread safe: events and rendering should come from the same thread
+ * (see {@link com.scalesynth.base.KeyboardEventQueue} for passing events from other threads).
  */
 public class PolyGenerator implements Generator {
-    private final Map<Generator, Integer> activeVoices = new LinkedHashMap<>();
-    private final Set<Generator> freeVoices = new HashSet<>();
+    private static final int MIN_VOICES_PER_LANE = 2;
+
+    private static final KeyboardEvent[] NOTE_OFFS = new KeyboardEvent[128];
+
+    static {
+        for (int note = 0; note < NOTE_OFFS.length; ++note)
+            NOTE_OFFS[note] = KeyboardEvent.noteOff(note);
+    }
+
+    private final VoiceAllocator allocator;
     private final Generator[] voices;
+    private final int[] renderIndices;
+    private final Generator[] renderList;
+    private int renderCount;
+    private int renderChannels;
+    private int renderLength;
+    private int renderStep;
+    private boolean renderFloat;
+    private boolean singlePrecision;
+    private int laneCount = 1;
+    private VoiceRenderPool renderPool;
+
+    // buffers of each lane: one for the voice being rendered, one for the sum of lane voices.
+    private double[][][] voiceBuffers = new double[1][2][0];
+    private double[][][] laneBuffers = new double[1][2][0];
+    // the same in single precision, used when voices are rendered in float mode.
+    private float[][][] floatVoiceBuffers = new float[1][2][0];
+    private float[][][] floatLaneBuffers = new float[1][2][0];
+    // temporary buffers of voice components, one arena per lane is lent to the voices it renders.
+    private ScratchArena[] arenas = {new ScratchArena()};
 
     public PolyGenerator(int maxPolyphony, Supplier<Generator> voiceSupplier) {
 
         voices = new Generator[maxPolyphony];
-        for (int i = 0; i < maxPolyphony; ++i) {
-            var newVoice = voiceSupplier.get();
-            voices[i] = newVoice;
-            freeVoices.add(newVoice);
-        }
+        renderList = new Generator[maxPolyphony];
+        renderIndices = new int[maxPolyphony];
+        allocator = new VoiceAllocator(maxPolyphony);
+        for (int i = 0; i < maxPolyphony; ++i)
+            voices[i] = voiceSupplier.get();
+        prepareArenas();
+    }
+
+    /**
+     * Sets a number of threads used to render voices (including the audio thread).
+     * <p>
+     * With more than one thread, voices are distributed between the lanes in a fixed order
+     * and lane results are summed in a fixed order, so the output is deterministic.
+     * When only few voices are playing, they are rendered serially.
+     * <p>
+     * This method shouldn't be called while audio is being rendered.
+     *
+     * @param threads number of render threads (1 means serial rendering).
+     */
+    public void setRenderThreads(int threads) {
+        if (renderPool != null)
+            renderPool.close();
+
+        renderPool = threads > 1 ? new VoiceRenderPool(threads - 1, this::renderLane) : null;
+        laneCount = Math.max(1, threads);
+        allocateBuffers(2, laneBuffers[0][0].length);
+        arenas = new ScratchArena[laneCount];
+        for (int lane = 0; lane < laneCount; ++lane)
+            arenas[lane] = new ScratchArena();
+        prepareArenas();
+    }
+
+    /**
+     * Sets if voices are rendered in single precision when single precision output is requested
+     * (see {@link #generate(float[][], int, int)}). Double precision output is always rendered in double precision.
+     * Single precision buffers of the arenas are allocated only in this mode.
+     * <p>
+     * This method shouldn't be called while audio is being rendered.
+     *
+     * @param singlePrecision true to render voices in single precision.
+     */
+    public void setSinglePrecision(boolean singlePrecision) {
+        this.singlePrecision = singlePrecision;
+        prepareArenas();
     }
 
     /**
@@ -30,30 +101,169 @@ public class PolyGenerator implements Generator {
      * Note that content of {@code outputs} can be overwritten (this behaviour depends on a subclass).
      *
      * @param outputs buffers to place generated audio into.
+     * @param offset  index of the first sample to generate in {@code outputs}.
+     * @param n       how many samples to generate.
+     */
+    @Override
+    public void generate(double[][] outputs, int offset, int n) {
+        int lanes = renderVoices(outputs.length, n, false);
+
+        for (int ch = 0; ch < outputs.length; ++ch) {
+            var output = outputs[ch];
+            System.arraycopy(laneBuffers[0][ch], 0, output, offset, n);
+            for (int lane = 1; lane < lanes; ++lane)
+                BufferOps.add(laneBuffers[lane][ch], 0, output, offset, n);
+        }
+    }
+
+    /**
+     * Generates of the audio in single precision.
+     * <p>
+     * In single precision mode (see {@link #setSinglePrecision(boolean)}) voices are rendered and mixed as floats.
+     * Otherwise they are rendered in double precision and mixed straight into {@code outputs},
+     * so no separate conversion pass is needed.
+     *
+     * @param outputs buffers to place generated audio into.
+     * @param offset  index of the first sample to generate in {@code outputs}.
      * @param n       how many samples to generate.
      */
     @Override
-    public synchronized void generate(double[][] outputs, int n) {
-        int channelCount = outputs.length;
-
-        for (double[] output : outputs)
-            Arrays.fill(output, 0.0);
-
-        double[][] voiceResult = new double[channelCount][n];
-        var iterator = activeVoices.keySet().iterator();
-        while (iterator.hasNext()) {
-            var voice = iterator.next();
-            voice.generate(voiceResult, n);
-            for (int ch = 0; ch < channelCount; ++ch)
-                for (int i = 0; i < n; ++i)
-                    outputs[ch][i] += voiceResult[ch][i];
-            if (!voice.isActive()) {
-                iterator.remove();
-                freeVoices.add(voice);
+    public void generate(float[][] outputs, int offset, int n) {
+        int lanes = renderVoices(outputs.length, n, singlePrecision);
+
+        for (int ch = 0; ch < outputs.length; ++ch) {
+            var output = outputs[ch];
+            if (singlePrecision) {
+                System.arraycopy(floatLaneBuffers[0][ch], 0, output, offset, n);
+                for (int lane = 1; lane < lanes; ++lane)
+                    BufferOps.add(floatLaneBuffers[lane][ch], 0, output, offset, n);
+            } else {
+                BufferOps.toFloat(laneBuffers[0][ch], 0, output, offset, n);
+                for (int lane = 1; lane < lanes; ++lane)
+                    BufferOps.addToFloat(laneBuffers[lane][ch], 0, output, offset, n);
             }
         }
     }
 
+    /**
+     * Renders all active voices into lane buffers and frees voices that became inactive.
+     *
+     * @param channelCount number of channels.
+     * @param n            number of samples.
+     * @param renderFloat  true to render voices into the single precision lane buffers.
+     * @return number of lanes that contain rendered audio.
+     */
+    private int renderVoices(int channelCount, int n, boolean renderFloat) {
+        ensureBuffers(channelCount, n);
+
+        // voices are rendered in index order, so lanes get the same voices regardless of allocation order.
+        renderCount = 0;
+        for (int v = 0; v < voices.length; ++v) {
+            if (allocator.isBusy(v)) {
+                renderIndices[renderCount] = v;
+                renderList[renderCount++] = voices[v];
+            }
+        }
+
+        renderChannels = channelCount;
+        renderLength = n;
+        this.renderFloat = renderFloat;
+
+        int lanes;
+        if (renderPool != null && renderCount >= MIN_VOICES_PER_LANE * laneCount) {
+            renderStep = laneCount;
+            renderPool.run();
+            lanes = laneCount;
+        } else {
+            renderStep = 1;
+            renderLane(0);
+            lanes = 1;
+        }
+
+        for (int i = 0; i < renderCount; ++i) {
+            if (!renderList[i].isActive())
+                allocator.free(renderIndices[i]);
+        }
+        return lanes;
+    }
+
+    /**
+     * Renders voices of one lane and sums them into the lane buffer.
+     * In serial mode lane 0 renders all voices.
+     * <p>
+     * Voices of the lane are rendered one after another, so they all use the arena of the lane.
+     *
+     * @param lane index of the lane.
+     */
+    private void renderLane(int lane) {
+        int n = renderLength;
+        var arena = arenas[lane];
+        if (renderFloat) {
+            var laneBuffer = floatLaneBuffers[lane];
+            var voiceBuffer = floatVoiceBuffers[lane];
+
+            for (int ch = 0; ch < renderChannels; ++ch)
+                Arrays.fill(laneBuffer[ch], 0, n, 0.0f);
+
+            for (int v = lane; v < renderCount; v += renderStep) {
+                renderList[v].setScratchArena(arena);
+                renderList[v].generate(voiceBuffer, 0, n);
+                for (int ch = 0; ch < renderChannels; ++ch)
+                    BufferOps.add(voiceBuffer[ch], 0, laneBuffer[ch], 0, n);
+            }
+        } else {
+            var laneBuffer = laneBuffers[lane];
+            var voiceBuffer = voiceBuffers[lane];
+
+            for (int ch = 0; ch < renderChannels; ++ch)
+                Arrays.fill(laneBuffer[ch], 0, n, 0.0);
+
+            for (int v = lane; v < renderCount; v += renderStep) {
+                renderList[v].setScratchArena(arena);
+                renderList[v].generate(voiceBuffer, 0, n);
+                for (int ch = 0; ch < renderChannels; ++ch)
+                    BufferOps.add(voiceBuffer[ch], 0, laneBuffer[ch], 0, n);
+            }
+        }
+    }
+
+    /**
+     * Makes sure that the lane buffers can hold {@code n} samples of {@code channelCount} channels.
+     * Normally buffers are allocated in {@link #setBufferSize(int)}, this is just a safety net.
+     *
+     * @param channelCount number of channels.
+     * @param n            number of samples.
+     */
+    private void ensureBuffers(int channelCount, int n) {
+        if (laneBuffers[0].length < channelCount || laneBuffers[0][0].length < n)
+            allocateBuffers(Math.max(channelCount, 2), n);
+    }
+
+    /**
+     * Allocates voice and lane buffers of both precisions for every lane.
+     *
+     * @param channelCount number of channels.
+     * @param bufferSize   number of samples.
+     */
+    private void allocateBuffers(int channelCount, int bufferSize) {
+        voiceBuffers = new double[laneCount][channelCount][bufferSize];
+        laneBuffers = new double[laneCount][channelCount][bufferSize];
+        floatVoiceBuffers = new float[laneCount][channelCount][bufferSize];
+        floatLaneBuffers = new float[laneCount][channelCount][bufferSize];
+    }
+
+    /**
+     * Lends every arena to every voice, so that the arenas are large enough for any voice before rendering.
+     * Lending them while rendering doesn't allocate then.
+     */
+    private void prepareArenas() {
+        for (var arena : arenas) {
+            arena.setSinglePrecision(singlePrecision);
+            for (Generator generator : voices)
+                generator.setScratchArena(arena);
+        }
+    }
+
     /**
      * Sets a sample rate used in processing.
      *
@@ -66,55 +276,60 @@ public class PolyGenerator implements Generator {
 
     }
 
+    /**
+     * Sets a maximum number of samples that will be requested in one call.
+     * Lane buffers are reallocated and arenas are grown there.
+     *
+     * @param bufferSize new maximum buffer size.
+     */
+    @Override
+    public void setBufferSize(int bufferSize) {
+        allocateBuffers(laneBuffers[0].length, bufferSize);
+        for (Generator generator : voices)
+            generator.setBufferSize(bufferSize);
+        prepareArenas();
+    }
+
     /**
      * Called when the user presses or releases any key.
      * Useful for retriggering envelopes and LFOs.
      * <p>
      * In this implementation new note is assigned to any free voice.
      * If there is no free voice, the oldest voice is used.
+     * If the note is already playing, its previous voice is released, so it can fade out.
      *
      * @param event represent a type of keyboard event.
      */
     @Override
-    public synchronized void handleKeyboardEvent(KeyboardEvent event) {
+    public void handleKeyboardEvent(KeyboardEvent event) {
         int note = event.getNote();
         KeyboardEventType type = event.getType();
 
         switch (type) {
-            case NOTE_OFF:
-                for (var entry : activeVoices.entrySet()) {
-                    if (entry.getValue() == note)
-                        entry.getKey().handleKeyboardEvent(event);
-                }
-                break;
-            case NOTE_ON:
-                if (freeVoices.size() != 0) {
-                    var freeVoice = freeVoices.iterator().next();
-                    freeVoices.remove(freeVoice);
-                    activeVoices.put(freeVoice, note);
-                    freeVoice.handleKeyboardEvent(event);
-                } else {
-                    var oldestGenerator = activeVoices.keySet().iterator().next();
-                    activeVoices.remove(oldestGenerator);
-                    activeVoices.put(oldestGenerator, note);
-                    oldestGenerator.handleKeyboardEvent(event);
-                }
+            case NOTE_OFF: {
+                int voice = allocator.release(note);
+                if (voice != VoiceAllocator.NONE)
+                    voices[voice].handleKeyboardEvent(event);
                 break;
-            case PITCH_BEND:
-                for (var voice : voices)
-                    voice.handleKeyboardEvent(event);
+            }
+            case NOTE_ON: {
+                int previousVoice = allocator.release(note);
+                if (previousVoice != VoiceAllocator.NONE)
+                    voices[previousVoice].handleKeyboardEvent(NOTE_OFFS[note]);
+                voices[allocator.allocate(note)].handleKeyboardEvent(event);
                 break;
+            }
         }
     }
 
     /**
-     * Returns true if component is active (does something useful).
-     * This is used mainly to shutdown inactive voices.
+     * Returns true if any voice is sounding (held or still releasing).
+     * When it returns false, rendering would produce silence until the next note.
      *
      * @return true if component is active, otherwise false.
      */
     @Override
     public boolean isActive() {
-        return activeVoices.size() == 0;
+        return allocator.getBusyCount() > 0;
     }
 }
@@ -0,0 +1,163 @@
+package com.scalesynth.base.generators;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of busy and free voices of a {@link PolyGenerator}.
+ * <p>
+ * Voices are referred to by their index. Busy voices are linked into a list ordered by age
+ * (the head is the oldest one), free voices are kept in a stack, and each note points to the voice
+ * that currently holds it. So allocation, release, stealing and freeing are all O(1)
+ * and don't create any garbage.
+ */
+class VoiceAllocator {
+    /**
+     * Marks absence of a voice or a note.
+     */
+    static final int NONE = -1;
+
+    private static final int NOTE_COUNT = 128;
+
+    private final int[] noteVoices = new int[NOTE_COUNT];
+    private final int[] voiceNotes;
+    private final int[] previous;
+    private final int[] next;
+    private final boolean[] busy;
+    private final int[] freeStack;
+    private int freeCount;
+    private int oldest = NONE;
+    private int newest = NONE;
+
+    /**
+     * Constructs a new allocator with all voices free.
+     *
+     * @param voiceCount number of voices.
+     */
+    VoiceAllocator(int voiceCount) {
+        voiceNotes = new int[voiceCount];
+        previous = new int[voiceCount];
+        next = new int[voiceCount];
+        busy = new boolean[voiceCount];
+        freeStack = new int[voiceCount];
+
+        Arrays.fill(noteVoices, NONE);
+        Arrays.fill(voiceNotes, NONE);
+        // lowest voices are allocated first
+        for (int i = 0; i < voiceCount; ++i)
+            freeStack[i] = voiceCount - 1 - i;
+        freeCount = voiceCount;
+    }
+
+    /**
+     * Assigns a note to a voice. A free voice is used if there is one, otherwise the oldest voice is stolen.
+     * The new voice becomes the newest one.
+     *
+     * @param note note to assign.
+     * @return index of the assigned voice.
+     */
+    int allocate(int note) {
+        int voice;
+        if (freeCount > 0) {
+            voice = freeStack[--freeCount];
+            busy[voice] = true;
+        } else {
+            voice = oldest;
+            unlink(voice);
+            unmapNote(voice);
+        }
+
+        append(voice);
+        if (isValidNote(note)) {
+            if (noteVoices[note] != NONE)
+                voiceNotes[noteVoices[note]] = NONE;
+            noteVoices[note] = voice;
+            voiceNotes[voice] = note;
+        }
+        return voice;
+    }
+
+    /**
+     * Detaches a note from its voice, the voice stays busy until it is {@link #free(int) freed}.
+     *
+     * @param note released note.
+     * @return index of the voice that held this note, or {@link #NONE}.
+     */
+    int release(int note) {
+        if (!isValidNote(note))
+            return NONE;
+
+        int voice = noteVoices[note];
+        if (voice != NONE)
+            unmapNote(voice);
+        return voice;
+    }
+
+    /**
+     * Returns true if a voice is allocated and not freed yet.
+     *
+     * @param voice index of the voice.
+     * @return true if the voice is busy.
+     */
+    boolean isBusy(int voice) {
+        return busy[voice];
+    }
+
+    /**
+     * Returns a voice to the free stack. Does nothing if the voice is already free.
+     *
+     * @param voice index of the voice.
+     */
+    void free(int voice) {
+        if (!busy[voice])
+            return;
+
+        unlink(voice);
+        unmapNote(voice);
+        busy[voice] = false;
+        freeStack[freeCount++] = voice;
+    }
+
+    /**
+     * Returns number of busy voices.
+     *
+     * @return number of busy voices.
+     */
+    int getBusyCount() {
+        return busy.length - freeCount;
+    }
+
+    private void unmapNote(int voice) {
+        int note = voiceNotes[voice];
+        if (note != NONE) {
+            noteVoices[note] = NONE;
+            voiceNotes[voice] = NONE;
+        }
+    }
+
+    private void append(int voice) {
+        previous[voice] = newest;
+        next[voice] = NONE;
+        if (newest != NONE)
+            next[newest] = voice;
+        else
+            oldest = voice;
+        newest = voice;
+    }
+
+    private void unlink(int voice) {
+        int before = previous[voice];
+        int after = next[voice];
+        if (before != NONE)
+            next[before] = after;
+        else
+            oldest = after;
+        if (after != NONE)
+            previous[after] = before;
+        else
+            newest = before;
+    }
+
+    private static boolean isValidNote(int note) {
+        return note >= 0 && note < NOTE_COUNT;
+    }
+}
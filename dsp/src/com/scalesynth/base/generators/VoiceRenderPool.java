@@ -0,0 +1,111 @@
+package com.scalesynth.base.generators;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A pool of worker threads that render voices together with the audio thread.
+ * <p>
+ * Work is split into lanes: lane 0 is always run by the calling (audio) thread,
+ * other lanes are run by the workers. Workers spin for a short time waiting for the next block,
+ * and park if nothing comes, so an idle pool doesn't burn CPU.
+ */
+class VoiceRenderPool {
+    private static final int SPIN_LIMIT = 20_000;
+
+    private final Lane lane;
+    private final Thread[] workers;
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile int epoch;
+    private volatile boolean running = true;
+
+    /**
+     * Creates and starts the workers.
+     *
+     * @param workerCount number of worker threads.
+     * @param lane        work to be done in each lane.
+     */
+    VoiceRenderPool(int workerCount, Lane lane) {
+        this.lane = lane;
+        workers = new Thread[workerCount];
+        // read here, not in the worker: the first run() can start before the worker thread does.
+        int startEpoch = epoch;
+        for (int i = 0; i < workerCount; ++i) {
+            int index = i + 1;
+            workers[i] = new Thread(() -> work(index, startEpoch), "scalesynth-voice-renderer-" + index);
+            workers[i].setDaemon(true);
+            workers[i].setPriority(Thread.MAX_PRIORITY);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Runs all lanes and waits until they are done.
+     * If lane 0 throws, the exception is passed on only after the workers have finished,
+     * so they never write lane buffers behind the caller's back.
+     */
+    void run() {
+        pending.set(workers.length);
+        epoch++;
+        for (var worker : workers)
+            LockSupport.unpark(worker);
+
+        try {
+            lane.render(0);
+        } finally {
+            while (pending.get() != 0)
+                Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Stops all workers.
+     */
+    void close() {
+        running = false;
+        for (var worker : workers)
+            LockSupport.unpark(worker);
+    }
+
+    /**
+     * Main loop of the worker.
+     *
+     * @param index      lane of this worker.
+     * @param startEpoch epoch at the time the worker was created, it waits for the next one.
+     */
+    private void work(int index, int startEpoch) {
+        int seenEpoch = startEpoch;
+        while (true) {
+            int spins = 0;
+            while (epoch == seenEpoch && running) {
+                if (++spins < SPIN_LIMIT)
+                    Thread.onSpinWait();
+                else
+                    LockSupport.park(this);
+            }
+            if (!running)
+                return;
+
+            seenEpoch = epoch;
+            try {
+                lane.render(index);
+            } catch (Throwable e) {
+                e.printStackTrace();
+            } finally {
+                pending.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Work done in one lane.
+     */
+    interface Lane {
+        /**
+         * Renders this lane.
+         *
+         * @param index index of the lane.
+         */
+        void render(int index);
+    }
+}
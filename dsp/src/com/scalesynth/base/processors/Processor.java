@@ -11,7 +11,28 @@ public interface Processor extends Component {
      * Note that content of {@code inputs} will be overwritten.
      *
      * @param inputs buffers to place generated audio into.
+     * @param offset index of the first sample to transform in {@code inputs}.
      * @param n      how many samples to generate.
      */
-    void process(double[][] inputs, int n);
+    void process(double[][] inputs, int offset, int n);
+
+    /**
+     * Transforms incoming audio in single precision.
+     * The state of the processor can be kept in double precision, only the audio is processed as floats.
+     *
+     * @param inputs buffers to place generated audio into.
+     * @param offset index of the first sample to transform in {@code inputs}.
+     * @param n      how many samples to generate.
+     */
+    void process(float[][] inputs, int offset, int n);
+
+    /**
+     * Transforms incoming audio in the beginning of the buffers.
+     *
+     * @param inputs buffers to place generated audio into.
+     * @param n      how many samples to generate.
+     */
+    default void process(double[][] inputs, int n) {
+        process(inputs, 0, n);
+    }
 }
@@ -2,6 +2,10 @@ package com.scalesynth.dsp.generators;
 
 import com.scalesynth.base.KeyboardEvent;
 import com.scalesynth.base.generators.Generator;
+import com.scalesynth.dsp.math.FastMath;
+import com.scalesynth.dsp.math.XorShiftRandom;
+
+import java.util.Arrays;
 
 /**
  * <p>Represents a pair of oscillators, noise generator and a mixer.</p>
@@ -12,11 +16,17 @@ import com.scalesynth.base.generators.Generator;
  * <p>4. Support of oscillator drift. Each note is played with slightly different pitch and phase for more analog'ish sound;</p>
  * <p>5. Support of unison. Number of voices, detune and stereo width can be adjusted;</p>
  * <p>6. White noise generator (with adjustable amplitude).</p>
+ * <p>Oscillators can be generated by one of the {@link OscillatorEngine engines}, it can be switched at any time.</p>
  */
 public class DualOscillator implements Generator {
-    private final double[] tempBuffer = new double[8096]; // probably will change it.
-    private BlepOscillator[] masters = new BlepOscillator[0];
-    private BlepOscillator[] slaves = new BlepOscillator[0];
+    private final UnisonBank blepMasters = new UnisonBank();
+    private final UnisonBank blepSlaves = new UnisonBank();
+    private final WavetableBank wavetableMasters = new WavetableBank();
+    private final WavetableBank wavetableSlaves = new WavetableBank();
+    // banks of every engine (indexed by ordinal), all of them get the same settings
+    private final OscillatorBank[] masters = {blepMasters, wavetableMasters};
+    private final OscillatorBank[] slaves = {blepSlaves, wavetableSlaves};
+    private final XorShiftRandom random = new XorShiftRandom();
 
     // Master oscillator controls.
     private double masterPulseWidth;
@@ -44,10 +54,14 @@ public class DualOscillator implements Generator {
     private double unisonStereo;
 
     // Other parameters and temporary variables.
+    private OscillatorEngine engine = OscillatorEngine.BLEP;
     private double driftCoef;
     private double baseFreq;
     private double sampleRate;
-    private double pitchBendCoef = 1;
+    private double pitchModulation = 1;
+    // frequency multipliers that change only with parameters, so pitch modulation is just a multiplication.
+    private final double[] unisonCoefs = new double[UnisonBank.MAX_VOICES];
+    private double slaveCoef = 1;
 
     /**
      * Sets the master oscillator pulse pulse width.
@@ -61,10 +75,10 @@ public class DualOscillator implements Generator {
      *
      * @param masterPulseWidth a new pulse width of the master oscillator.
      */
-    public synchronized void setMasterPulseWidth(double masterPulseWidth) {
+    public void setMasterPulseWidth(double masterPulseWidth) {
         this.masterPulseWidth = masterPulseWidth;
-        for (var master : masters)
-            master.setPulseWidth(masterPulseWidth);
+        for (var bank : masters)
+            bank.setPulseWidth(masterPulseWidth);
     }
 
     /**
@@ -76,10 +90,10 @@ public class DualOscillator implements Generator {
      *
      * @param masterMix a new saw-pulse mix of the master oscillator.
      */
-    public synchronized void setMasterMix(double masterMix) {
+    public void setMasterMix(double masterMix) {
         this.masterMix = masterMix;
-        for (var master : masters)
-            master.setMix(masterMix);
+        for (var bank : masters)
+            bank.setMix(masterMix);
     }
 
     /**
@@ -89,8 +103,9 @@ public class DualOscillator implements Generator {
      *
      * @param slaveOctave how many octaves the slave oscillator is higher than the master
      */
-    public synchronized void setSlaveOctave(int slaveOctave) {
+    public void setSlaveOctave(int slaveOctave) {
         this.slaveOctave = slaveOctave;
+        updateSlaveCoef();
         updateFrequencies();
     }
 
@@ -101,8 +116,9 @@ public class DualOscillator implements Generator {
      *
      * @param slaveSemi how many semitones the slave oscillator is higher than the master
      */
-    public synchronized void setSlaveSemi(int slaveSemi) {
+    public void setSlaveSemi(int slaveSemi) {
         this.slaveSemi = slaveSemi;
+        updateSlaveCoef();
         updateFrequencies();
     }
 
@@ -113,8 +129,9 @@ public class DualOscillator implements Generator {
      *
      * @param slaveFine how many octaves the slave oscillator is higher than the master
      */
-    public synchronized void setSlaveFine(int slaveFine) {
+    public void setSlaveFine(int slaveFine) {
         this.slaveFine = slaveFine;
+        updateSlaveCoef();
         updateFrequencies();
     }
 
@@ -130,10 +147,10 @@ public class DualOscillator implements Generator {
      *
      * @param slavePulseWidth a new pulse width of the slave oscillator.
      */
-    public synchronized void setSlavePulseWidth(double slavePulseWidth) {
+    public void setSlavePulseWidth(double slavePulseWidth) {
         this.slavePulseWidth = slavePulseWidth;
-        for (var slave : slaves)
-            slave.setPulseWidth(slavePulseWidth);
+        for (var bank : slaves)
+            bank.setPulseWidth(slavePulseWidth);
     }
 
     /**
@@ -145,10 +162,10 @@ public class DualOscillator implements Generator {
      *
      * @param slaveMix a new saw-pulse mix of the slave oscillator.
      */
-    public synchronized void setSlaveMix(double slaveMix) {
+    public void setSlaveMix(double slaveMix) {
         this.slaveMix = slaveMix;
-        for (var slave : slaves)
-            slave.setMix(slaveMix);
+        for (var bank : slaves)
+            bank.setMix(slaveMix);
     }
 
     /**
@@ -159,10 +176,9 @@ public class DualOscillator implements Generator {
      *
      * @param syncEnabled is hard sync enabled.
      */
-    public synchronized void setSyncEnabled(boolean syncEnabled) {
+    public void setSyncEnabled(boolean syncEnabled) {
         this.syncEnabled = syncEnabled;
-        for (var slave : slaves)
-            slave.setSyncEnabled(syncEnabled);
+        blepSlaves.setSyncEnabled(syncEnabled);
     }
 
     /**
@@ -172,10 +188,10 @@ public class DualOscillator implements Generator {
      *
      * @param masterAmplitude a new noise amplitude of the master oscillator.
      */
-    public synchronized void setMasterAmplitude(double masterAmplitude) {
+    public void setMasterAmplitude(double masterAmplitude) {
         this.masterAmplitude = masterAmplitude;
-        for (var master : masters)
-            master.setAmplitude(masterAmplitude);
+        for (var bank : masters)
+            bank.setAmplitude(masterAmplitude);
     }
 
     /**
@@ -185,10 +201,10 @@ public class DualOscillator implements Generator {
      *
      * @param slaveAmplitude a new noise amplitude of the slave oscillator.
      */
-    public synchronized void setSlaveAmplitude(double slaveAmplitude) {
+    public void setSlaveAmplitude(double slaveAmplitude) {
         this.slaveAmplitude = slaveAmplitude;
-        for (var slave : slaves)
-            slave.setAmplitude(slaveAmplitude);
+        for (var bank : slaves)
+            bank.setAmplitude(slaveAmplitude);
     }
 
     /**
@@ -198,7 +214,7 @@ public class DualOscillator implements Generator {
      *
      * @param noiseAmplitude a new noise amplitude of the noise generator.
      */
-    public synchronized void setNoiseAmplitude(double noiseAmplitude) {
+    public void setNoiseAmplitude(double noiseAmplitude) {
         this.noiseAmplitude = noiseAmplitude;
     }
 
@@ -213,23 +229,56 @@ public class DualOscillator implements Generator {
      *
      * @param drift a new drift coefficient of the oscillators.
      */
-    public synchronized void setDrift(double drift) {
+    public void setDrift(double drift) {
         this.drift = drift;
     }
 
+    /**
+     * Sets a seed of the random generator used for noise, drift and phases.
+     * <p>
+     * By default every oscillator gets a different seed, this method is useful for reproducible rendering.
+     *
+     * @param seed a new seed.
+     */
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /**
+     * Sets an algorithm used to generate oscillators.
+     * <p>
+     * {@link OscillatorEngine#WAVETABLE} doesn't support hard sync, so when sync is enabled
+     * the slave oscillator is still generated by {@link OscillatorEngine#BLEP}.
+     *
+     * @param engine a new oscillator engine.
+     */
+    public void setEngine(OscillatorEngine engine) {
+        this.engine = engine;
+    }
+
     /**
      * Sets a number of subvoices playing in unison for one note.
      * <p>
-     * This value is supposed to be in range [1, 8].
+     * This value is supposed to be in range [1, 64].
      * <p>
      * Each unison subvoice has slightly different pitch and panning.
      * That sound can be described as "smooth" and "fat".
      *
      * @param voices a new number of unison voices.
      */
-    public synchronized void setUnisonVoices(int voices) {
+    public void setUnisonVoices(int voices) {
+        if (voices == unisonVoices)
+            return;
+
         this.unisonVoices = voices;
-        createVoices();
+        for (var bank : masters)
+            bank.setVoiceCount(voices);
+        for (var bank : slaves)
+            bank.setVoiceCount(voices);
+        updateUnisonCoefs();
+        updateFrequencies();
+        updateGains();
+        reset();
     }
 
     /**
@@ -243,8 +292,9 @@ public class DualOscillator implements Generator {
      *
      * @param detune a new amount of detune of unison voices.
      */
-    public synchronized void setUnisonDetune(double detune) {
+    public void setUnisonDetune(double detune) {
         this.unisonDetune = detune;
+        updateUnisonCoefs();
         updateFrequencies();
     }
 
@@ -259,78 +309,60 @@ public class DualOscillator implements Generator {
      *
      * @param unisonStereo a new amount of unison stereo width.
      */
-    public synchronized void setUnisonStereo(double unisonStereo) {
+    public void setUnisonStereo(double unisonStereo) {
         this.unisonStereo = unisonStereo;
+        updateGains();
     }
 
     /**
-     * Reallocates unison voices.
+     * Generates of the audio.
+     * Note that content of {@code outputs} is overwritten.
+     *
+     * @param outputs buffers to place generated audio into.
+     * @param offset  index of the first sample to generate in {@code outputs}.
+     * @param n       how many samples to generate.
      */
-    private void createVoices() {
-        masters = new BlepOscillator[unisonVoices];
-        slaves = new BlepOscillator[unisonVoices];
-        for (int i = 0; i < unisonVoices; ++i) {
-            masters[i] = new BlepOscillator();
-            masters[i].setPulseWidth(masterPulseWidth);
-            masters[i].setMix(masterMix);
-            masters[i].setAmplitude(masterAmplitude);
-            masters[i].setSampleRate(sampleRate);
-
-            slaves[i] = new BlepOscillator();
-            slaves[i].setPulseWidth(slavePulseWidth);
-            slaves[i].setMix(slaveMix);
-            slaves[i].setSyncEnabled(syncEnabled);
-            slaves[i].setAmplitude(slaveAmplitude);
-            slaves[i].setSampleRate(sampleRate);
+    @Override
+    public void generate(double[][] outputs, int offset, int n) {
+        var left = outputs[0];
+        var right = outputs[1];
+
+        // noise is generated once per channel, unison voices don't have their own noise.
+        for (int ch = 0; ch < outputs.length; ++ch) {
+            if (noiseAmplitude == 0)
+                Arrays.fill(outputs[ch], offset, offset + n, 0.0);
+            else
+                random.fillNoise(outputs[ch], offset, n, noiseAmplitude);
         }
-        updateFrequencies();
-        reset();
+
+        var slaveBank = syncEnabled ? blepSlaves : slaves[engine.ordinal()];
+        masters[engine.ordinal()].generate(left, right, offset, n);
+        slaveBank.generate(left, right, offset, n);
     }
 
     /**
-     * Generates of the audio.
+     * Generates of the audio in single precision.
      * Note that content of {@code outputs} is overwritten.
      *
      * @param outputs buffers to place generated audio into.
+     * @param offset  index of the first sample to generate in {@code outputs}.
      * @param n       how many samples to generate.
      */
     @Override
-    public synchronized void generate(double[][] outputs, int n) {
+    public void generate(float[][] outputs, int offset, int n) {
         var left = outputs[0];
         var right = outputs[1];
 
-
-        for (int ch = 0; ch < outputs.length; ++ch)
-            for (int i = 0; i < n; ++i)
-                outputs[ch][i] = noiseAmplitude * (2 * Math.random() - 1);
-
-        for (int voice = 0; voice < unisonVoices; ++voice) {
-            // calculate left and right channels volumes for the voice.
-            double rightAmp;
-            if (unisonVoices == 1)
-                rightAmp = 0.5;
+        for (int ch = 0; ch < outputs.length; ++ch) {
+            if (noiseAmplitude == 0)
+                Arrays.fill(outputs[ch], offset, offset + n, 0.0f);
             else
-                rightAmp = 0.5 * (1 - unisonStereo) + unisonStereo * voice / (unisonVoices - 1);
-            double leftAmp = (1 - rightAmp);
-
-            // also scale volumes by 1 / unisonVoices, so unisonVoices doesn't affect volumes.
-            rightAmp /= unisonVoices;
-            leftAmp /= unisonVoices;
-
-            // fill buffers with some noise.
-            for (int i = 0; i < n; ++i)
-                tempBuffer[i] = noiseAmplitude / unisonVoices * (2 * Math.random() - 1);
-
-            // render master and slave parts on top of the noise.
-            masters[voice].generate(tempBuffer, n);
-            slaves[voice].generate(tempBuffer, n);
-
-            for (int i = 0; i < n; ++i) {
-                var x = tempBuffer[i];
-                left[i] += x * leftAmp;
-                right[i] += x * rightAmp;
-            }
+                random.fillNoise(outputs[ch], offset, n, noiseAmplitude);
         }
+
+        var slaveBank = syncEnabled ? blepSlaves : slaves[engine.ordinal()];
+        masters[engine.ordinal()].generate(left, right, offset, n);
+        slaveBank.generate(left, right, offset, n);
     }
 
     /**
@@ -341,12 +373,10 @@ public class DualOscillator implements Generator {
     @Override
     public void setSampleRate(double sampleRate) {
         this.sampleRate = sampleRate;
-
-        for (var master : masters)
-            master.setSampleRate(sampleRate);
-
-        for (var slave : slaves)
-            slave.setSampleRate(sampleRate);
+        for (var bank : masters)
+            bank.setSampleRate(sampleRate);
+        for (var bank : slaves)
+            bank.setSampleRate(sampleRate);
     }
 
     /**
@@ -361,23 +391,54 @@ public class DualOscillator implements Generator {
             case NOTE_ON:
                 reset();
                 baseFreq = event.getFreq();
-                driftCoef = Math.pow(2, (Math.random() * 2 - 1) * drift / 48);
-                updateFrequencies();
-                break;
-            case PITCH_BEND:
-                pitchBendCoef = event.getFreq();
+                driftCoef = FastMath.exp2(random.nextBipolar() * drift / 48);
                 updateFrequencies();
                 break;
         }
     }
 
+    /**
+     * Sets a frequency multiplier applied to all oscillators (pitch bend and vibrato).
+     * Frequencies are recomputed only if it has changed.
+     *
+     * @param pitchModulation frequency multiplier.
+     */
+    public void setPitchModulation(double pitchModulation) {
+        if (pitchModulation == this.pitchModulation)
+            return;
+
+        this.pitchModulation = pitchModulation;
+        updateFrequencies();
+    }
+
     /**
      * Updates frequencies of oscillator based on current oscillator state.
      */
     private void updateFrequencies() {
-        var masterFreq = baseFreq * driftCoef * pitchBendCoef;
-        var slaveFreq = baseFreq * driftCoef * Math.pow(2, slaveOctave + slaveSemi / 12 + slaveFine / 1200) * pitchBendCoef;
+        var masterFreq = baseFreq * driftCoef * pitchModulation;
+        var slaveFreq = masterFreq * slaveCoef;
 
+        for (int i = 0; i < unisonVoices; ++i) {
+            var unisonCoef = unisonCoefs[i];
+            for (var bank : masters)
+                bank.setFreq(i, masterFreq * unisonCoef);
+            for (var bank : slaves)
+                bank.setFreq(i, slaveFreq * unisonCoef);
+            blepSlaves.setMasterFreq(i, masterFreq * unisonCoef);
+        }
+    }
+
+    /**
+     * Updates frequency multiplier of the slave oscillator.
+     */
+    private void updateSlaveCoef() {
+        slaveCoef = FastMath.exp2(slaveOctave + slaveSemi / 12 + slaveFine / 1200);
+    }
+
+    /**
+     * Updates frequency multipliers of unison voices.
+     */
+    private void updateUnisonCoefs() {
         for (int i = 0; i < unisonVoices; ++i) {
             // how much i'th voice is distanced from the center (from -0.5 to 0.5 in semitones).
             double voiceOffset;
@@ -386,273 +447,45 @@ public class DualOscillator implements Generator {
             else
                 voiceOffset = (2.0 * i / (unisonVoices - 1) - 1) / 24;
 
-            // freq multiplier for i'th voice.
-            var unisonCoef = Math.pow(2, unisonDetune * voiceOffset);
-
-            // and finally update frequencies
-            masters[i].setFreq(masterFreq * unisonCoef);
-            slaves[i].setMasterFreq(masterFreq * unisonCoef);
-            slaves[i].setFreq(slaveFreq * unisonCoef);
+            unisonCoefs[i] = FastMath.exp2(unisonDetune * voiceOffset);
         }
     }
 
     /**
-     * Resets all oscillator to some random phase.
+     * Updates left and right channel volumes of unison voices.
      */
-    private void reset() {
-        for (var master : masters)
-            master.reset(Math.random(), Math.random());
-        for (var slave : slaves)
-            slave.reset(Math.random(), Math.random());
+    private void updateGains() {
+        for (int voice = 0; voice < unisonVoices; ++voice) {
+            double rightAmp;
+            if (unisonVoices == 1)
+                rightAmp = 0.5;
+            else
+                rightAmp = 0.5 * (1 - unisonStereo) + unisonStereo * voice / (unisonVoices - 1);
+            double leftAmp = (1 - rightAmp);
+
+            // also scale volumes by 1 / unisonVoices, so unisonVoices doesn't affect volumes.
+            leftAmp /= unisonVoices;
+            rightAmp /= unisonVoices;
+            for (var bank : masters)
+                bank.setGains(voice, leftAmp, rightAmp);
+            for (var bank : slaves)
+                bank.setGains(voice, leftAmp, rightAmp);
+        }
     }
 
     /**
-     * The implementation of VA oscillator based on BLEPs.
-     * <p>
-     * In short: resulting audio is the sum of naive aliased waveform and some correcting signal.
-     * Result is an approximation of bandlimited waveform (without aliasing).
+     * Resets all oscillator to some random phase.
      */
-    static class BlepOscillator {
-        private double phase;
-        private double masterPhase;
-        private double nextValue;
-        private int pulseStage;
-        private double freq;
-        private double mix;
-        private double pulseWidth;
-        private double normalizedMasterFreq;
-        private double currValue;
-        private double sampleRate;
-        private double normalizedFreq;
-        private double amplitude = 1;
-        private boolean syncEnabled;
-        private double masterFreq;
-
-        /**
-         * Constructs a new instance of the MystranOscillator class.
-         */
-        public BlepOscillator() {
-            reset(0, 0);
-        }
-
-        /**
-         * Returns a value of the 2-sample PolyBLEP function. This function is for the first sample.
-         *
-         * @param t an inter-sample time when upwards discontinuity happened.
-         * @return value of that PolyBLEP function (positive value).
-         */
-        private static double poly3blep0(double t) {
-            // these are just sanity checks
-            // correct code doesn't need them
-            if (t < 0) return 0;
-            if (t > 1) return 1;
-
-            double t2 = t * t;
-            return t * t2 - 0.5f * t2 * t2;
-        }
-
-        /**
-         * Returns a value of the 2-sample PolyBLEP function. This function is for the second sample.
-         *
-         * @param t an inter-sample time when upwards discontinuity happened.
-         * @return value of that PolyBLEP function (negative value).
-         */
-        private static double poly3blep1(double t) {
-            return -poly3blep0(1 - t);
-        }
-
-        /**
-         * Resets a state of this oscillator (use zero phase for the best results).
-         *
-         * @param phase       a new phase of the slave oscillator.
-         * @param masterPhase a new phase of the master oscillator.
-         */
-        public void reset(double phase, double masterPhase) {
-            this.phase = phase;
-            this.masterPhase = masterPhase;
-            nextValue = 0;
-            pulseStage = 0;
-        }
-
-        /**
-         * Generates a new audio and adds it to the buffer.
-         *
-         * @param output buffer to add generated audio into.
-         * @param n      how many samples to generate.
-         */
-        public void generate(double[] output, int n) {
-            for (int i = 0; i < n; ++i) {
-                // take the delayed part from previous sample
-                currValue = nextValue;
-
-                // reset the delay so we can build into it
-                nextValue = 0;
-
-                // then proceed like a trivial oscillator
-                phase += normalizedFreq;
-                masterPhase += normalizedMasterFreq;
-
-                // Then replace the reset logic: loop until we
-                // can't find the next discontinuity, so during
-                // one sample we can process any number of them!
-                while (true) {
-                    // Now in order of the stages of the wave-form
-                    // check for discontinuity during this sample.
-
-                    // Very firstly, process master oscillator reset. This part is buggy.
-                    if (syncEnabled && masterPhase > 1) {
-                        double exactResetTime = (masterPhase - 1) / normalizedMasterFreq;
-                        double exactSlavePhase = phase - normalizedFreq * (exactResetTime);
-                        double exactSlavePhaseCopy = exactSlavePhase;
-                        while (true) {
-                            if (pulseStage == 0) {
-                                if (exactSlavePhaseCopy < pulseWidth)
-                                    break;
-                                handleUpwardsDiscontinuity(exactSlavePhaseCopy);
-                            }
-
-                            if (pulseStage == 1) {
-                                if (exactSlavePhaseCopy < 1)
-                                    break;
-                                handleDownwardsDiscontinuity(exactSlavePhaseCopy);
-                                exactSlavePhaseCopy -= 1;
-                            }
-                        }
-
-                        double blepAmp = ((1 - mix) * exactSlavePhaseCopy + mix * ((pulseStage == 1 ? 1 : 0)));
-
-                        currValue -= blepAmp * poly3blep0(exactResetTime);
-                        nextValue -= blepAmp * poly3blep1(exactResetTime);
-
-                        masterPhase -= 1;
-                        phase -= exactSlavePhase;
-                        pulseStage = 0;
-                    }
-
-                    // First is the upwards transition.
-                    if (pulseStage == 0) {
-                        if (phase < pulseWidth)
-                            break;
-
-                        handleUpwardsDiscontinuity(phase);
-                    }
-
-                    // Second is the downwards transition.
-                    if (pulseStage == 1) {
-                        if (phase < 1)
-                            break;
-
-                        handleDownwardsDiscontinuity(phase);
-                        phase -= 1;
-                    }
-                }
-
-                // add naively generated value to the buffer.
-                nextValue += (1 - mix) * phase + mix * (pulseStage != 0 ? 1 : 0);
-
-                // and output is just what we collected, but
-                // let's make it range [-amplitude, amplitude]
-                output[i] += amplitude * (2 * currValue - 1);
-            }
-        }
-
-        private void handleDownwardsDiscontinuity(double slavePhase) {
-            // inter-sample time when transition happened.
-            double t = (slavePhase - 1) / normalizedFreq;
-
-            // and negative transition.. normally you would
-            // calculate step-sizes for all mixed waves, but
-            // here both saw and pulse go from 1 to 0.. so
-            // it's always the same transition size!
-            currValue -= poly3blep0(t);
-            nextValue -= poly3blep1(t);
-
-            // and then we do a reset (just one!)
-            pulseStage = 0;
-        }
-
-        private void handleUpwardsDiscontinuity(double slavePhase) {
-            // inter-sample time when transition happened.
-            double t = (slavePhase - pulseWidth) / normalizedFreq;
-
-            // so then scale by pulse mix
-            // and add the first sample to output
-            currValue += mix * poly3blep0(t);
-
-            // and second sample to delay
-            nextValue += mix * poly3blep1(t);
-
-            // and then we proceed to next stage
-            pulseStage = 1;
-        }
-
-        /**
-         * Sets a sample rate used in processing.
-         *
-         * @param sampleRate new sample rate.
-         */
-        public void setSampleRate(double sampleRate) {
-            this.sampleRate = sampleRate;
-            normalizedFreq = freq / sampleRate;
-            normalizedMasterFreq = masterFreq / sampleRate;
-            reset(0, 0);
-        }
-
-        /**
-         * Sets a new value of this oscillator saw-pulse mix (described in {@link DualOscillator})
-         *
-         * @param mix a new value of saw-pulse mix.
-         */
-        public void setMix(double mix) {
-            this.mix = mix;
-        }
-
-        /**
-         * Sets a new value of this oscillator pulse width (described in {@link DualOscillator})
-         *
-         * @param pulseWidth a new value of pulse width.
-         */
-        public void setPulseWidth(double pulseWidth) {
-            this.pulseWidth = pulseWidth;
-        }
-
-        /**
-         * Sets a new value of slave oscillator's frequency.
-         *
-         * @param freq a new value of slave oscillator's frequency.
-         */
-        public void setFreq(double freq) {
-            this.freq = freq;
-            this.normalizedFreq = freq / sampleRate; // this algorithm works with normalized frequencies.
-        }
-
-        /**
-         * Sets a new value of master oscillator's frequency.
-         *
-         * @param masterFreq a new value of master oscillator's frequency.
-         */
-        public void setMasterFreq(double masterFreq) {
-            this.masterFreq = masterFreq;
-            this.normalizedMasterFreq = masterFreq / sampleRate;
-        }
-
-        /**
-         * Sets if the slave oscillator is hard synced to the master oscillator frequency.
-         *
-         * @param syncEnabled if the slave oscillator is hard synced to the master oscillator frequency.
-         */
-        public void setSyncEnabled(boolean syncEnabled) {
-            this.syncEnabled = syncEnabled;
-        }
-
-        /**
-         * Sets a new value of the output amplitude.
-         *
-         * @param amplitude a new value of the output amplitude.
-         */
-        public void setAmplitude(double amplitude) {
-            this.amplitude = amplitude;
+    private void reset() {
+        for (int voice = 0; voice < unisonVoices; ++voice) {
+            var masterPhase = random.nextDouble();
+            var masterMasterPhase = random.nextDouble();
+            var slavePhase = random.nextDouble();
+            var slaveMasterPhase = random.nextDouble();
+            for (var bank : masters)
+                bank.reset(voice, masterPhase, masterMasterPhase);
+            for (var bank : slaves)
+                bank.reset(voice, slavePhase, slaveMasterPhase);
         }
     }
 }
-
@@ -3,6 +3,9 @@ package com.scalesynth.dsp.generators;
 import com.scalesynth.base.KeyboardEvent;
 import com.scalesynth.base.KeyboardEventType;
 import com.scalesynth.base.generators.Generator;
+import com.scalesynth.dsp.math.Denormals;
+
+import java.util.Arrays;
 
 /**
  * Represents an ADSR-envelope - main modulation source in this synthesizer.
@@ -19,6 +22,8 @@ import com.scalesynth.base.generators.Generator;
  * This stage is started with Note Off message.
  */
 public class Envelope implements Generator {
+    private static final double RELEASE_THRESHOLD = 0.00000001;
+
     private double sampleRate = 1; // чтобы не делить на 0
     private double attackCoef;
     private double sustainLevel;
@@ -37,7 +42,7 @@ public class Envelope implements Generator {
      *
      * @param attackRate a new attack rate.
      */
-    public synchronized void setAttackRate(double attackRate) {
+    public void setAttackRate(double attackRate) {
         this.attackRate = attackRate;
         attackCoef = Math.pow(1 - 0.01 * attackRate * attackRate / 10000, 44100 / sampleRate);
     }
@@ -49,7 +54,7 @@ public class Envelope implements Generator {
      *
      * @param decayRate a new decay rate.
      */
-    public synchronized void setDecayRate(double decayRate) {
+    public void setDecayRate(double decayRate) {
         this.decayRate = decayRate;
         decayCoef = Math.pow(1 - 0.001 * decayRate / 100, 44100 / sampleRate);
     }
@@ -61,7 +66,7 @@ public class Envelope implements Generator {
      *
      * @param sustainLevel a new sustain level.
      */
-    public synchronized void setSustainLevel(double sustainLevel) {
+    public void setSustainLevel(double sustainLevel) {
         this.sustainLevel = sustainLevel;
     }
 
@@ -72,7 +77,7 @@ public class Envelope implements Generator {
      *
      * @param releaseRate a new release rate.
      */
-    public synchronized void setReleaseRate(double releaseRate) {
+    public void setReleaseRate(double releaseRate) {
         this.releaseRate = releaseRate;
         releaseCoef = Math.pow(1 - 0.001 * releaseRate / 100, 44100 / sampleRate);
     }
@@ -80,47 +85,221 @@ public class Envelope implements Generator {
     /**
      * Generates of the audio.
      * Note that content of {@code outputs} is overwritten.
+     * <p>
+     * Output is rendered by runs: every stage renders samples until its end or until the end of the buffer.
      *
      * @param outputs buffers to place generated audio into.
+     * @param offset  index of the first sample to generate in {@code outputs}.
      * @param n       how many samples to generate.
      */
     @Override
-    public synchronized void generate(double[][] outputs, int n) {
-        var output = outputs[0];
-        for (int i = 0; i < n; ++i)
+    public void generate(double[][] outputs, int offset, int n) {
+        render(outputs[0], null, offset, offset + n);
+    }
+
+    /**
+     * Generates of the audio in single precision.
+     * Note that content of {@code outputs} is overwritten.
+     * <p>
+     * The envelope value is still computed in double precision, so both outputs follow the same curve.
+     *
+     * @param outputs buffers to place generated audio into.
+     * @param offset  index of the first sample to generate in {@code outputs}.
+     * @param n       how many samples to generate.
+     */
+    @Override
+    public void generate(float[][] outputs, int offset, int n) {
+        render(null, outputs[0], offset, offset + n);
+    }
+
+    /**
+     * Renders stages into one of the outputs, the other one is null.
+     * The choice of the output doesn't change within the loops, so the JIT compiler
+     * moves the check out of them (loop unswitching).
+     *
+     * @param output      double precision buffer or null.
+     * @param floatOutput single precision buffer or null.
+     * @param i           index of the first sample to generate.
+     * @param end         index after the last sample to generate.
+     */
+    private void render(double[] output, float[] floatOutput, int i, int end) {
+        while (i < end) {
             switch (state) {
                 case ATTACK:
-                    value = 1.05 * (1 - (1 - value / 1.05) * attackCoef);
-                    if (value >= 1) {
-                        output[i] = 1;
-                        state = State.DECAY;
-                        value = 1;
-                    } else
-                        output[i] = value;
+                    i = generateAttack(output, floatOutput, i, end);
                     break;
                 case DECAY:
-                    value *= decayCoef;
-                    if (value - sustainLevel < 0) {
-                        output[i] = sustainLevel;
-                        state = State.SUSTAIN;
-                    } else
-                        output[i] = value;
+                    i = generateDecay(output, floatOutput, i, end);
                     break;
                 case SUSTAIN:
-                    output[i] = sustainLevel;
+                    fill(output, floatOutput, i, end, sustainLevel);
+                    i = end;
                     break;
                 case RELEASE:
-                    value *= releaseCoef;
-                    output[i] = value;
-                    if (value > -0.00000001 && value < 0.00000001) {
-                        state = State.DISABLED;
-                        value = 0;
-                    }
+                    i = generateRelease(output, floatOutput, i, end);
                     break;
                 case DISABLED:
-                    output[i] = 0;
+                    fill(output, floatOutput, i, end, 0.0);
+                    i = end;
                     break;
             }
+        }
+    }
+
+    /**
+     * Renders the attack stage until its end or until the end of the buffer.
+     *
+     * @param output      double precision buffer or null.
+     * @param floatOutput single precision buffer or null.
+     * @param i           index of the first sample to generate.
+     * @param end         index after the last sample to generate.
+     * @return index of the first sample that wasn't generated.
+     */
+    private int generateAttack(double[] output, float[] floatOutput, int i, int end) {
+        var value = this.value;
+        var coef = attackCoef;
+
+        // 1 - value / 1.05 is multiplied by coef every sample, and the stage ends when value reaches 1.
+        var run = Math.min(end - i, safeRun((1 - 1 / 1.05) / (1 - value / 1.05), coef));
+        for (var runEnd = i + run; i < runEnd; ++i) {
+            value = 1.05 * (1 - (1 - value / 1.05) * coef);
+            store(output, floatOutput, i, value);
+        }
+
+        for (; i < end; ++i) {
+            value = 1.05 * (1 - (1 - value / 1.05) * coef);
+            if (value >= 1) {
+                store(output, floatOutput, i++, 1);
+                state = State.DECAY;
+                value = 1;
+                break;
+            }
+            store(output, floatOutput, i, value);
+        }
+
+        this.value = value;
+        return i;
+    }
+
+    /**
+     * Renders the decay stage until its end or until the end of the buffer.
+     *
+     * @param output      double precision buffer or null.
+     * @param floatOutput single precision buffer or null.
+     * @param i           index of the first sample to generate.
+     * @param end         index after the last sample to generate.
+     * @return index of the first sample that wasn't generated.
+     */
+    private int generateDecay(double[] output, float[] floatOutput, int i, int end) {
+        var value = this.value;
+        var coef = decayCoef;
+        var sustainLevel = this.sustainLevel;
+
+        var run = Math.min(end - i, safeRun((sustainLevel + Denormals.THRESHOLD) / value, coef));
+        for (var runEnd = i + run; i < runEnd; ++i) {
+            value *= coef;
+            store(output, floatOutput, i, value);
+        }
+
+        for (; i < end; ++i) {
+            value *= coef;
+            // with zero sustain level value would decay into subnormal numbers, so it is stopped a bit earlier.
+            if (value - sustainLevel < Denormals.THRESHOLD) {
+                store(output, floatOutput, i++, sustainLevel);
+                state = State.SUSTAIN;
+                break;
+            }
+            store(output, floatOutput, i, value);
+        }
+
+        this.value = value;
+        return i;
+    }
+
+    /**
+     * Renders the release stage until its end or until the end of the buffer.
+     *
+     * @param output      double precision buffer or null.
+     * @param floatOutput single precision buffer or null.
+     * @param i           index of the first sample to generate.
+     * @param end         index after the last sample to generate.
+     * @return index of the first sample that wasn't generated.
+     */
+    private int generateRelease(double[] output, float[] floatOutput, int i, int end) {
+        var value = this.value;
+        var coef = releaseCoef;
+
+        var run = Math.min(end - i, safeRun(RELEASE_THRESHOLD / Math.abs(value), coef));
+        for (var runEnd = i + run; i < runEnd; ++i) {
+            value *= coef;
+            store(output, floatOutput, i, value);
+        }
+
+        for (; i < end; ++i) {
+            value *= coef;
+            store(output, floatOutput, i, value);
+            if (value > -RELEASE_THRESHOLD && value < RELEASE_THRESHOLD) {
+                state = State.DISABLED;
+                value = 0;
+                ++i;
+                break;
+            }
+        }
+
+        this.value = value;
+        return i;
+    }
+
+    /**
+     * Stores one sample into the given output.
+     *
+     * @param output      double precision buffer or null.
+     * @param floatOutput single precision buffer or null.
+     * @param i           index of the sample.
+     * @param value       value of the sample.
+     */
+    private static void store(double[] output, float[] floatOutput, int i, double value) {
+        if (output != null)
+            output[i] = value;
+        else
+            floatOutput[i] = (float) value;
+    }
+
+    /**
+     * Fills a range of the given output with a constant value.
+     *
+     * @param output      double precision buffer or null.
+     * @param floatOutput single precision buffer or null.
+     * @param i           index of the first sample.
+     * @param end         index after the last sample.
+     * @param value       value of the samples.
+     */
+    private static void fill(double[] output, float[] floatOutput, int i, int end, double value) {
+        if (output != null)
+            Arrays.fill(output, i, end, value);
+        else
+            Arrays.fill(floatOutput, i, end, (float) value);
+    }
+
+    /**
+     * Returns how many samples a decaying exponent surely stays above its target, so they can be rendered
+     * without checking for the end of the stage.
+     * <p>
+     * Exact number of samples is {@code log(ratio) / log(coef)}, but the recurrence is rounded every sample,
+     * so a margin that grows with the length of the run is subtracted. The last samples of the stage
+     * are rendered by the checked loop, so the output is the same as of the sample by sample rendering.
+     *
+     * @param ratio ratio of the target to the current distance, in range (0, 1).
+     * @param coef  coefficient the distance is multiplied by every sample, in range (0, 1).
+     * @return number of samples, or 0 if the arguments are out of range.
+     */
+    private static int safeRun(double ratio, double coef) {
+        if (!(ratio > 0 && ratio < 1 && coef > 0 && coef < 1))
+            return 0;
+
+        var samples = Math.log(ratio) / Math.log(coef);
+        samples -= 2 + samples * 1e-6;
+        return samples > 0 ? (int) Math.min(samples, Integer.MAX_VALUE) : 0;
     }
 
     /**
@@ -163,6 +342,15 @@ public class Envelope implements Generator {
         return state != State.DISABLED;
     }
 
+    /**
+     * Returns true if the envelope is in the release stage (the key was released, but it hasn't decayed yet).
+     *
+     * @return true if the envelope is releasing.
+     */
+    public boolean isReleasing() {
+        return state == State.RELEASE;
+    }
+
     /**
      * Represents current state of the envelope.
      */
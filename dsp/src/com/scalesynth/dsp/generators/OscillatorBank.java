@@ -0,0 +1,90 @@
+package com.scalesynth.dsp.generators;
+
+/**
+ * A bank of oscillators, one oscillator per unison voice, used by {@link DualOscillator}.
+ * <p>
+ * All voices of a bank share a waveform (saw-pulse mix and pulse width) and an amplitude,
+ * each voice has its own frequency, phase and panning.
+ */
+interface OscillatorBank {
+    /**
+     * Generates a new audio and adds it to the left and right buffers.
+     *
+     * @param left   left buffer to add generated audio into.
+     * @param right  right buffer to add generated audio into.
+     * @param offset index of the first sample to generate.
+     * @param n      how many samples to generate.
+     */
+    void generate(double[] left, double[] right, int offset, int n);
+
+    /**
+     * Generates a new audio in single precision and adds it to the left and right buffers.
+     *
+     * @param left   left buffer to add generated audio into.
+     * @param right  right buffer to add generated audio into.
+     * @param offset index of the first sample to generate.
+     * @param n      how many samples to generate.
+     */
+    void generate(float[] left, float[] right, int offset, int n);
+
+    /**
+     * Resets a state of one oscillator.
+     *
+     * @param voice       index of the voice.
+     * @param phase       a new phase of the oscillator.
+     * @param masterPhase a new phase of the master oscillator (used only by banks that support sync).
+     */
+    void reset(int voice, double phase, double masterPhase);
+
+    /**
+     * Sets a number of voices processed by {@link #generate(double[], double[], int, int)}.
+     *
+     * @param voiceCount number of voices, from 0 to {@link UnisonBank#MAX_VOICES}.
+     */
+    void setVoiceCount(int voiceCount);
+
+    /**
+     * Sets a sample rate used in processing and resets all oscillators.
+     *
+     * @param sampleRate new sample rate.
+     */
+    void setSampleRate(double sampleRate);
+
+    /**
+     * Sets a frequency of one oscillator.
+     *
+     * @param voice index of the voice.
+     * @param freq  a new frequency.
+     */
+    void setFreq(int voice, double freq);
+
+    /**
+     * Sets output gains of one oscillator.
+     *
+     * @param voice     index of the voice.
+     * @param leftGain  gain of the left channel.
+     * @param rightGain gain of the right channel.
+     */
+    void setGains(int voice, double leftGain, double rightGain);
+
+    /**
+     * Sets a new value of saw-pulse mix (described in {@link DualOscillator})
+     *
+     * @param mix a new value of saw-pulse mix.
+     */
+    void setMix(double mix);
+
+    /**
+     * Sets a new value of pulse width (described in {@link DualOscillator})
+     *
+     * @param pulseWidth a new value of pulse width.
+     */
+    void setPulseWidth(double pulseWidth);
+
+    /**
+     * Sets a new value of the output amplitude.
+     *
+     * @param amplitude a new value of the output amplitude.
+     */
+    void setAmplitude(double amplitude);
+}
@@ -0,0 +1,17 @@
+package com.scalesynth.dsp.generators;
+
+/**
+ * Algorithm used by {@link DualOscillator} to generate band-limited waveforms.
+ */
+public enum OscillatorEngine {
+    /**
+     * Naive waveforms corrected with polynomial BLEPs at every discontinuity. Supports hard sync.
+     */
+    BLEP,
+
+    /**
+     * Mip-mapped band-limited wavetables. Cheaper for large unison stacks, but doesn't support hard sync,
+     * so a synced slave oscillator still uses {@link #BLEP}.
+     */
+    WAVETABLE
+}
@@ -0,0 +1,93 @@
+package com.scalesynth.dsp.generators;
+
+/**
+ * Mip-mapped band-limited sawtooth wavetables, shared read-only by all {@link WavetableBank}s.
+ * <p>
+ * Level {@code l} holds a sawtooth with {@code 2^l} harmonics, so it doesn't alias for normalized
+ * frequencies up to {@code 0.5 / 2^l}. A table is {@link #OVERSIZE} times longer than the number of
+ * harmonics, which keeps linear interpolation images low, and has two guard samples at the end,
+ * so interpolation doesn't need to wrap the index (even when rounding makes the position equal to the size).
+ * <p>
+ * Waveform is {@code frac(phase) - 0.5} (ramp up, then drop), the same as the naive saw of {@link UnisonBank}.
+ * <p>
+ * Every table has a single precision copy for the float render mode, it takes half as much cache.
+ */
+final class SawWavetables {
+    /**
+     * Number of mip levels, the last one has 1024 harmonics.
+     */
+    static final int LEVEL_COUNT = 11;
+
+    /**
+     * Ratio of a table size to a number of harmonics in it.
+     */
+    static final int OVERSIZE = 16;
+
+    private static final int MIN_SIZE = 64;
+    private static final double[][] TABLES = new double[LEVEL_COUNT][];
+    private static final float[][] FLOAT_TABLES = new float[LEVEL_COUNT][];
+
+    static {
+        var maxSize = tableSize(LEVEL_COUNT - 1);
+        var sines = new double[maxSize];
+        for (int i = 0; i < maxSize; ++i)
+            sines[i] = Math.sin(2 * Math.PI * i / maxSize);
+
+        // harmonics are summed from the highest to the lowest to reduce rounding errors.
+        // sin(2 pi k i / size) is taken from the sine table: k * i * (maxSize / size) is an exact index,
+        // and the table size is a power of 2, so it is reduced with a mask.
+        for (int level = 0; level < LEVEL_COUNT; ++level) {
+            var size = tableSize(level);
+            var step = maxSize / size;
+            var table = new double[size + 2];
+            for (int harmonic = 1 << level; harmonic >= 1; --harmonic) {
+                var amplitude = -1 / (Math.PI * harmonic);
+                for (int i = 0; i < size; ++i)
+                    table[i] += amplitude * sines[(int) ((long) harmonic * i * step & (maxSize - 1))];
+            }
+            table[size] = table[0];
+            table[size + 1] = table[1];
+            TABLES[level] = table;
+
+            FLOAT_TABLES[level] = new float[table.length];
+            for (int i = 0; i < table.length; ++i)
+                FLOAT_TABLES[level][i] = (float) table[i];
+        }
+    }
+
+    private SawWavetables() {
+    }
+
+    /**
+     * Returns a table for the given frequency: the one with most harmonics that are all below Nyquist.
+     *
+     * @param normalizedFreq frequency divided by the sample rate.
+     * @return a table of {@code size + 2} samples, where size is a power of 2.
+     */
+    static double[] forFrequency(double normalizedFreq) {
+        return TABLES[levelFor(normalizedFreq)];
+    }
+
+    /**
+     * Returns a single precision copy of the table for the given frequency (see {@link #forFrequency(double)}).
+     *
+     * @param normalizedFreq frequency divided by the sample rate.
+     * @return a table of {@code size + 2} samples, where size is a power of 2.
+     */
+    static float[] floatForFrequency(double normalizedFreq) {
+        return FLOAT_TABLES[levelFor(normalizedFreq)];
+    }
+
+    private static int levelFor(double normalizedFreq) {
+        if (!(normalizedFreq > 0))
+            return LEVEL_COUNT - 1;
+
+        // 2^level <= 0.5 / freq
+        var level = Math.getExponent(0.5 / normalizedFreq);
+        return Math.max(0, Math.min(LEVEL_COUNT - 1, level));
+    }
+
+    private static int tableSize(int level) {
+        return Math.max(MIN_SIZE, OVERSIZE << level);
+    }
+}
@@ -0,0 +1,338 @@
+package com.scalesynth.dsp.generators;
+
+/**
+ * A bank of VA oscillators based on BLEPs, one oscillator per unison voice.
+ * <p>
+ * In short: resulting audio is the sum of naive aliased waveform and some correcting signal.
+ * Result is an approximation of bandlimited waveform (without aliasing).
+ * <p>
+ * State of the oscillators is kept in parallel arrays (one element per voice) and all voices are processed
+ * in one loop, every voice is panned straight into the left and right outputs.
+ * Pulse width, saw-pulse mix, amplitude and sync are shared by all voices of the bank.
+ */
+class UnisonBank implements OscillatorBank {
+    /**
+     * Maximum number of voices in a bank.
+     */
+    static final int MAX_VOICES = 64;
+
+    private final double[] phases = new double[MAX_VOICES];
+    private final double[] masterPhases = new double[MAX_VOICES];
+    private final double[] nextValues = new double[MAX_VOICES];
+    private final int[] pulseStages = new int[MAX_VOICES];
+    private final double[] freqs = new double[MAX_VOICES];
+    private final double[] masterFreqs = new double[MAX_VOICES];
+    private final double[] normalizedFreqs = new double[MAX_VOICES];
+    private final double[] normalizedMasterFreqs = new double[MAX_VOICES];
+    private final double[] leftGains = new double[MAX_VOICES];
+    private final double[] rightGains = new double[MAX_VOICES];
+
+    private int voiceCount;
+    private double mix;
+    private double pulseWidth;
+    private double amplitude = 1;
+    private boolean syncEnabled;
+    private double sampleRate = 44100;
+
+    /**
+     * Returns a value of the 2-sample PolyBLEP function. This function is for the first sample.
+     *
+     * @param t an inter-sample time when upwards discontinuity happened.
+     * @return value of that PolyBLEP function (positive value).
+     */
+    private static double poly3blep0(double t) {
+        // these are just sanity checks
+        // correct code doesn't need them
+        if (t < 0) return 0;
+        if (t > 1) return 1;
+
+        double t2 = t * t;
+        return t * t2 - 0.5f * t2 * t2;
+    }
+
+    /**
+     * Returns a value of the 2-sample PolyBLEP function. This function is for the second sample.
+     *
+     * @param t an inter-sample time when upwards discontinuity happened.
+     * @return value of that PolyBLEP function (negative value).
+     */
+    private static double poly3blep1(double t) {
+        return -poly3blep0(1 - t);
+    }
+
+    /**
+     * Generates a new audio and adds it to the left and right buffers.
+     *
+     * @param left   left buffer to add generated audio into.
+     * @param right  right buffer to add generated audio into.
+     * @param offset index of the first sample to generate.
+     * @param n      how many samples to generate.
+     */
+    @Override
+    public void generate(double[] left, double[] right, int offset, int n) {
+        render(left, right, null, null, offset, n);
+    }
+
+    /**
+     * Generates a new audio in single precision and adds it to the left and right buffers.
+     *
+     * @param left   left buffer to add generated audio into.
+     * @param right  right buffer to add generated audio into.
+     * @param offset index of the first sample to generate.
+     * @param n      how many samples to generate.
+     */
+    @Override
+    public void generate(float[] left, float[] right, int offset, int n) {
+        render(null, null, left, right, offset, n);
+    }
+
+    /**
+     * Generates a new audio and adds it to one pair of buffers, the other pair is null.
+     * Oscillators are computed in double precision either way. The choice of the buffers
+     * doesn't change within the loop, so the JIT compiler moves the check out of it (loop unswitching).
+     *
+     * @param left       left double precision buffer or null.
+     * @param right      right double precision buffer or null.
+     * @param floatLeft  left single precision buffer or null.
+     * @param floatRight right single precision buffer or null.
+     * @param offset     index of the first sample to generate.
+     * @param n          how many samples to generate.
+     */
+    private void render(double[] left, double[] right, float[] floatLeft, float[] floatRight, int offset, int n) {
+        var mix = this.mix;
+        var pulseWidth = this.pulseWidth;
+        var syncEnabled = this.syncEnabled;
+        var voiceCount = this.voiceCount;
+
+        for (int i = offset; i < offset + n; ++i) {
+            double leftSum = 0;
+            double rightSum = 0;
+
+            for (int voice = 0; voice < voiceCount; ++voice) {
+                var freq = normalizedFreqs[voice];
+                var masterFreq = normalizedMasterFreqs[voice];
+
+                // take the delayed part from previous sample
+                // and reset the delay so we can build into it
+                var currValue = nextValues[voice];
+                var nextValue = 0.0;
+                var pulseStage = pulseStages[voice];
+
+                // then proceed like a trivial oscillator
+                var phase = phases[voice] + freq;
+                var masterPhase = masterPhases[voice] + masterFreq;
+
+                // Then replace the reset logic: loop until we
+                // can't find the next discontinuity, so during
+                // one sample we can process any number of them!
+                while (true) {
+                    // Now in order of the stages of the wave-form
+                    // check for discontinuity during this sample.
+
+                    // Very firstly, process master oscillator reset. This part is buggy.
+                    if (syncEnabled && masterPhase > 1) {
+                        double exactResetTime = (masterPhase - 1) / masterFreq;
+                        double exactSlavePhase = phase - freq * (exactResetTime);
+                        double exactSlavePhaseCopy = exactSlavePhase;
+                        while (true) {
+                            if (pulseStage == 0) {
+                                if (exactSlavePhaseCopy < pulseWidth)
+                                    break;
+                                // upwards discontinuity
+                                double t = (exactSlavePhaseCopy - pulseWidth) / freq;
+                                currValue += mix * poly3blep0(t);
+                                nextValue += mix * poly3blep1(t);
+                                pulseStage = 1;
+                            }
+
+                            if (pulseStage == 1) {
+                                if (exactSlavePhaseCopy < 1)
+                                    break;
+                                // downwards discontinuity
+                                double t = (exactSlavePhaseCopy - 1) / freq;
+                                currValue -= poly3blep0(t);
+                                nextValue -= poly3blep1(t);
+                                pulseStage = 0;
+                                exactSlavePhaseCopy -= 1;
+                            }
+                        }
+
+                        double blepAmp = ((1 - mix) * exactSlavePhaseCopy + mix * ((pulseStage == 1 ? 1 : 0)));
+
+                        currValue -= blepAmp * poly3blep0(exactResetTime);
+                        nextValue -= blepAmp * poly3blep1(exactResetTime);
+
+                        masterPhase -= 1;
+                        phase -= exactSlavePhase;
+                        pulseStage = 0;
+                    }
+
+                    // First is the upwards transition.
+                    if (pulseStage == 0) {
+                        if (phase < pulseWidth)
+                            break;
+
+                        // inter-sample time when transition happened,
+                        // scale by pulse mix and split between this and the next sample.
+                        double t = (phase - pulseWidth) / freq;
+                        currValue += mix * poly3blep0(t);
+                        nextValue += mix * poly3blep1(t);
+                        pulseStage = 1;
+                    }
+
+                    // Second is the downwards transition.
+                    if (pulseStage == 1) {
+                        if (phase < 1)
+                            break;
+
+                        // both saw and pulse go from 1 to 0,
+                        // so it's always the same transition size.
+                        double t = (phase - 1) / freq;
+                        currValue -= poly3blep0(t);
+                        nextValue -= poly3blep1(t);
+                        pulseStage = 0;
+                        phase -= 1;
+                    }
+                }
+
+                // add naively generated value to the delay.
+                nextValue += (1 - mix) * phase + mix * (pulseStage != 0 ? 1 : 0);
+
+                phases[voice] = phase;
+                masterPhases[voice] = masterPhase;
+                nextValues[voice] = nextValue;
+                pulseStages[voice] = pulseStage;
+
+                // and output is just what we collected, in range [-1, 1]
+                var value = 2 * currValue - 1;
+                leftSum += value * leftGains[voice];
+                rightSum += value * rightGains[voice];
+            }
+
+            if (left != null) {
+                left[i] += amplitude * leftSum;
+                right[i] += amplitude * rightSum;
+            } else {
+                floatLeft[i] += (float) (amplitude * leftSum);
+                floatRight[i] += (float) (amplitude * rightSum);
+            }
+        }
+    }
+
+    /**
+     * Resets a state of one oscillator.
+     *
+     * @param voice       index of the voice.
+     * @param phase       a new phase of the oscillator.
+     * @param masterPhase a new phase of the master oscillator.
+     */
+    @Override
+    public void reset(int voice, double phase, double masterPhase) {
+        phases[voice] = phase;
+        masterPhases[voice] = masterPhase;
+        nextValues[voice] = 0;
+        pulseStages[voice] = 0;
+    }
+
+    /**
+     * Sets a number of voices processed by {@link #generate(double[], double[], int, int)}.
+     *
+     * @param voiceCount number of voices, from 0 to {@link #MAX_VOICES}.
+     */
+    @Override
+    public void setVoiceCount(int voiceCount) {
+        if (voiceCount < 0 || voiceCount > MAX_VOICES)
+            throw new IllegalArgumentException("Number of unison voices should be in range [0, " + MAX_VOICES + "]");
+        this.voiceCount = voiceCount;
+    }
+
+    /**
+     * Sets a sample rate used in processing and resets all oscillators.
+     *
+     * @param sampleRate new sample rate.
+     */
+    @Override
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+        for (int voice = 0; voice < MAX_VOICES; ++voice) {
+            normalizedFreqs[voice] = freqs[voice] / sampleRate;
+            normalizedMasterFreqs[voice] = masterFreqs[voice] / sampleRate;
+            reset(voice, 0, 0);
+        }
+    }
+
+    /**
+     * Sets a frequency of one oscillator.
+     *
+     * @param voice index of the voice.
+     * @param freq  a new frequency.
+     */
+    @Override
+    public void setFreq(int voice, double freq) {
+        freqs[voice] = freq;
+        normalizedFreqs[voice] = freq / sampleRate; // this algorithm works with normalized frequencies.
+    }
+
+    /**
+     * Sets a frequency of the master oscillator, which one oscillator is synced to.
+     *
+     * @param voice      index of the voice.
+     * @param masterFreq a new master frequency.
+     */
+    void setMasterFreq(int voice, double masterFreq) {
+        masterFreqs[voice] = masterFreq;
+        normalizedMasterFreqs[voice] = masterFreq / sampleRate;
+    }
+
+    /**
+     * Sets output gains of one oscillator.
+     *
+     * @param voice     index of the voice.
+     * @param leftGain  gain of the left channel.
+     * @param rightGain gain of the right channel.
+     */
+    @Override
+    public void setGains(int voice, double leftGain, double rightGain) {
+        leftGains[voice] = leftGain;
+        rightGains[voice] = rightGain;
+    }
+
+    /**
+     * Sets a new value of saw-pulse mix (described in {@link DualOscillator})
+     *
+     * @param mix a new value of saw-pulse mix.
+     */
+    @Override
+    public void setMix(double mix) {
+        this.mix = mix;
+    }
+
+    /**
+     * Sets a new value of pulse width (described in {@link DualOscillator})
+     *
+     * @param pulseWidth a new value of pulse width.
+     */
+    @Override
+    public void setPulseWidth(double pulseWidth) {
+        this.pulseWidth = pulseWidth;
+    }
+
+    /**
+     * Sets if oscillators are hard synced to their master frequencies.
+     *
+     * @param syncEnabled if oscillators are hard synced.
+     */
+    void setSyncEnabled(boolean syncEnabled) {
+        this.syncEnabled = syncEnabled;
+    }
+
+    /**
+     * Sets a new value of the output amplitude.
+     *
+     * @param amplitude a new value of the output amplitude.
+     */
+    @Override
+    public void setAmplitude(double amplitude) {
+        this.amplitude = amplitude;
+    }
+}
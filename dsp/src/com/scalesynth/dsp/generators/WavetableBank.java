@@ -0,0 +1,238 @@
+package com.scalesynth.dsp.generators;
+
+/**
+ * A bank of oscillators that read precomputed band-limited {@link SawWavetables}, one oscillator per unison voice.
+ * <p>
+ * Pulse wave is made as a difference of two saws shifted by the pulse width, so saw-pulse mix
+ * costs two table reads per sample and there is no discontinuity search at all.
+ * Every voice picks its mip level when its frequency is changed.
+ * In single precision the tables and the interpolation are single precision too.
+ * <p>
+ * Phases are 32-bit fixed point numbers, so they wrap around by themselves, the upper bits
+ * are the table index and the lower bits are the interpolation fraction.
+ * <p>
+ * Hard sync is not supported: phase resets of the master would add discontinuities that are not band-limited.
+ */
+class WavetableBank implements OscillatorBank {
+    private static final double PHASE_SCALE = 0x1p32;
+
+    private final int[] phases = new int[UnisonBank.MAX_VOICES];
+    private final int[] phaseIncrements = new int[UnisonBank.MAX_VOICES];
+    private final double[] freqs = new double[UnisonBank.MAX_VOICES];
+    private final double[][] tables = new double[UnisonBank.MAX_VOICES][];
+    private final float[][] floatTables = new float[UnisonBank.MAX_VOICES][];
+    private final double[] leftGains = new double[UnisonBank.MAX_VOICES];
+    private final double[] rightGains = new double[UnisonBank.MAX_VOICES];
+
+    private int voiceCount;
+    private double mix;
+    private double pulseWidth;
+    private double amplitude = 1;
+    private double sampleRate = 44100;
+
+    WavetableBank() {
+        for (int voice = 0; voice < UnisonBank.MAX_VOICES; ++voice) {
+            tables[voice] = SawWavetables.forFrequency(0);
+            floatTables[voice] = SawWavetables.floatForFrequency(0);
+        }
+    }
+
+    /**
+     * Generates a new audio and adds it to the left and right buffers.
+     *
+     * @param left   left buffer to add generated audio into.
+     * @param right  right buffer to add generated audio into.
+     * @param offset index of the first sample to generate.
+     * @param n      how many samples to generate.
+     */
+    @Override
+    public void generate(double[] left, double[] right, int offset, int n) {
+        // output of the BLEP bank is 2 * ((1 - mix) * saw + mix * pulse) - 1, where saw is in [0, 1],
+        // with zero-mean saw s(phase) = saw - 0.5 and pulse = s(phase) - s(phase - pw) + 1 - pw it is:
+        var pulseGain = -2 * mix;
+        var dc = mix * (1 - 2 * pulseWidth);
+        var pulseShift = toPhase(pulseWidth);
+        var pulse = mix != 0;
+
+        for (int voice = 0; voice < voiceCount; ++voice) {
+            var table = tables[voice];
+            // table size is 2^bits, so the index is the upper bits of the phase
+            var indexShift = 32 - Integer.numberOfTrailingZeros(table.length - 2);
+            var fractionMask = (1 << indexShift) - 1;
+            var fractionScale = 1.0 / (1 << indexShift);
+            var increment = phaseIncrements[voice];
+            var leftGain = amplitude * leftGains[voice];
+            var rightGain = amplitude * rightGains[voice];
+            var phase = phases[voice];
+
+            for (int i = offset; i < offset + n; ++i) {
+                var index = phase >>> indexShift;
+                var fraction = (phase & fractionMask) * fractionScale;
+                var value = 2 * (table[index] + fraction * (table[index + 1] - table[index])) + dc;
+
+                if (pulse) {
+                    var shifted = phase - pulseShift;
+                    index = shifted >>> indexShift;
+                    fraction = (shifted & fractionMask) * fractionScale;
+                    value += pulseGain * (table[index] + fraction * (table[index + 1] - table[index]));
+                }
+
+                left[i] += leftGain * value;
+                right[i] += rightGain * value;
+                phase += increment;
+            }
+            phases[voice] = phase;
+        }
+    }
+
+    /**
+     * Generates a new audio in single precision and adds it to the left and right buffers.
+     *
+     * @param left   left buffer to add generated audio into.
+     * @param right  right buffer to add generated audio into.
+     * @param offset index of the first sample to generate.
+     * @param n      how many samples to generate.
+     */
+    @Override
+    public void generate(float[] left, float[] right, int offset, int n) {
+        var pulseGain = (float) (-2 * mix);
+        var dc = (float) (mix * (1 - 2 * pulseWidth));
+        var pulseShift = toPhase(pulseWidth);
+        var pulse = mix != 0;
+
+        for (int voice = 0; voice < voiceCount; ++voice) {
+            var table = floatTables[voice];
+            var indexShift = 32 - Integer.numberOfTrailingZeros(table.length - 2);
+            var fractionMask = (1 << indexShift) - 1;
+            var fractionScale = 1.0f / (1 << indexShift);
+            var increment = phaseIncrements[voice];
+            var leftGain = (float) (amplitude * leftGains[voice]);
+            var rightGain = (float) (amplitude * rightGains[voice]);
+            var phase = phases[voice];
+
+            for (int i = offset; i < offset + n; ++i) {
+                var index = phase >>> indexShift;
+                var fraction = (phase & fractionMask) * fractionScale;
+                var value = 2 * (table[index] + fraction * (table[index + 1] - table[index])) + dc;
+
+                if (pulse) {
+                    var shifted = phase - pulseShift;
+                    index = shifted >>> indexShift;
+                    fraction = (shifted & fractionMask) * fractionScale;
+                    value += pulseGain * (table[index] + fraction * (table[index + 1] - table[index]));
+                }
+
+                left[i] += leftGain * value;
+                right[i] += rightGain * value;
+                phase += increment;
+            }
+            phases[voice] = phase;
+        }
+    }
+
+    /**
+     * Resets a state of one oscillator.
+     *
+     * @param voice       index of the voice.
+     * @param phase       a new phase of the oscillator.
+     * @param masterPhase ignored, sync is not supported.
+     */
+    @Override
+    public void reset(int voice, double phase, double masterPhase) {
+        phases[voice] = toPhase(phase);
+    }
+
+    /**
+     * Sets a number of voices processed by {@link #generate(double[], double[], int, int)}.
+     *
+     * @param voiceCount number of voices, from 0 to {@link UnisonBank#MAX_VOICES}.
+     */
+    @Override
+    public void setVoiceCount(int voiceCount) {
+        if (voiceCount < 0 || voiceCount > UnisonBank.MAX_VOICES)
+            throw new IllegalArgumentException("Number of unison voices should be in range [0, " + UnisonBank.MAX_VOICES + "]");
+        this.voiceCount = voiceCount;
+    }
+
+    /**
+     * Sets a sample rate used in processing and resets all oscillators.
+     *
+     * @param sampleRate new sample rate.
+     */
+    @Override
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+        for (int voice = 0; voice < UnisonBank.MAX_VOICES; ++voice) {
+            setFreq(voice, freqs[voice]);
+            reset(voice, 0, 0);
+        }
+    }
+
+    /**
+     * Sets a frequency of one oscillator and picks its wavetable.
+     *
+     * @param voice index of the voice.
+     * @param freq  a new frequency.
+     */
+    @Override
+    public void setFreq(int voice, double freq) {
+        freqs[voice] = freq;
+        var normalizedFreq = freq / sampleRate;
+        phaseIncrements[voice] = toPhase(normalizedFreq);
+        tables[voice] = SawWavetables.forFrequency(normalizedFreq);
+        floatTables[voice] = SawWavetables.floatForFrequency(normalizedFreq);
+    }
+
+    /**
+     * Converts a phase in turns to a fixed point phase.
+     *
+     * @param turns phase in turns (only the fractional part matters).
+     * @return fixed point phase.
+     */
+    private static int toPhase(double turns) {
+        return (int) (long) ((turns - Math.floor(turns)) * PHASE_SCALE);
+    }
+
+    /**
+     * Sets output gains of one oscillator.
+     *
+     * @param voice     index of the voice.
+     * @param leftGain  gain of the left channel.
+     * @param rightGain gain of the right channel.
+     */
+    @Override
+    public void setGains(int voice, double leftGain, double rightGain) {
+        leftGains[voice] = leftGain;
+        rightGains[voice] = rightGain;
+    }
+
+    /**
+     * Sets a new value of saw-pulse mix (described in {@link DualOscillator})
+     *
+     * @param mix a new value of saw-pulse mix.
+     */
+    @Override
+    public void setMix(double mix) {
+        this.mix = mix;
+    }
+
+    /**
+     * Sets a new value of pulse width (described in {@link DualOscillator})
+     *
+     * @param pulseWidth a new value of pulse width.
+     */
+    @Override
+    public void setPulseWidth(double pulseWidth) {
+        this.pulseWidth = pulseWidth;
+    }
+
+    /**
+     * Sets a new value of the output amplitude.
+     *
+     * @param amplitude a new value of the output amplitude.
+     */
+    @Override
+    public void setAmplitude(double amplitude) {
+        this.amplitude = amplitude;
+    }
+}
@@ -0,0 +1,160 @@
+package com.scalesynth.dsp.math;
+
+/**
+ * Mixing and gain kernels shared by DSP components.
+ * <p>
+ * Each kernel is a plain counted loop without calls and branches inside,
+ * so C2 compiles it to SIMD instructions of the host (SSE, AVX2 or AVX-512 with superword optimization).
+ * Keep them that way: a method call or a conditional in the loop body disables vectorization.
+ * <p>
+ * Single precision variants are used by the float render mode, a vector register holds twice as many floats.
+ */
+public final class BufferOps {
+    private BufferOps() {
+    }
+
+    /**
+     * Adds {@code n} samples of {@code src} to {@code dst}.
+     *
+     * @param src       source buffer.
+     * @param srcOffset index of the first sample in {@code src}.
+     * @param dst       destination buffer.
+     * @param dstOffset index of the first sample in {@code dst}.
+     * @param n         number of samples.
+     */
+    public static void add(double[] src, int srcOffset, double[] dst, int dstOffset, int n) {
+        for (int i = 0; i < n; ++i)
+            dst[dstOffset + i] += src[srcOffset + i];
+    }
+
+    /**
+     * Adds {@code n} samples of {@code src} to {@code dst}.
+     *
+     * @param src       source buffer.
+     * @param srcOffset index of the first sample in {@code src}.
+     * @param dst       destination buffer.
+     * @param dstOffset index of the first sample in {@code dst}.
+     * @param n         number of samples.
+     */
+    public static void add(float[] src, int srcOffset, float[] dst, int dstOffset, int n) {
+        for (int i = 0; i < n; ++i)
+            dst[dstOffset + i] += src[srcOffset + i];
+    }
+
+    /**
+     * Adds {@code n} samples of {@code src} multiplied by {@code gain} to {@code dst}.
+     *
+     * @param src       source buffer.
+     * @param srcOffset index of the first sample in {@code src}.
+     * @param dst       destination buffer.
+     * @param dstOffset index of the first sample in {@code dst}.
+     * @param n         number of samples.
+     * @param gain      multiplier of the source.
+     */
+    public static void addScaled(double[] src, int srcOffset, double[] dst, int dstOffset, int n, double gain) {
+        for (int i = 0; i < n; ++i)
+            dst[dstOffset + i] += src[srcOffset + i] * gain;
+    }
+
+    /**
+     * Multiplies {@code n} samples of {@code buffer} by {@code modulation} and {@code gain}.
+     *
+     * @param buffer           buffer to modify.
+     * @param offset           index of the first sample in {@code buffer}.
+     * @param modulation       per-sample multiplier.
+     * @param modulationOffset index of the first sample in {@code modulation}.
+     * @param n                number of samples.
+     * @param gain             constant multiplier.
+     */
+    public static void multiply(double[] buffer, int offset, double[] modulation, int modulationOffset, int n, double gain) {
+        for (int i = 0; i < n; ++i)
+            buffer[offset + i] *= modulation[modulationOffset + i] * gain;
+    }
+
+    /**
+     * Multiplies {@code n} samples of {@code buffer} by {@code modulation} and {@code gain}.
+     *
+     * @param buffer           buffer to modify.
+     * @param offset           index of the first sample in {@code buffer}.
+     * @param modulation       per-sample multiplier.
+     * @param modulationOffset index of the first sample in {@code modulation}.
+     * @param n                number of samples.
+     * @param gain             constant multiplier.
+     */
+    public static void multiply(float[] buffer, int offset, float[] modulation, int modulationOffset, int n, float gain) {
+        for (int i = 0; i < n; ++i)
+            buffer[offset + i] *= modulation[modulationOffset + i] * gain;
+    }
+
+    /**
+     * Returns the largest absolute value of {@code n} samples of {@code buffer}.
+     *
+     * @param buffer buffer to measure.
+     * @param offset index of the first sample in {@code buffer}.
+     * @param n      number of samples.
+     * @return peak level, 0 if {@code n} is 0.
+     */
+    public static double peak(double[] buffer, int offset, int n) {
+        var peak = 0.0;
+        for (int i = 0; i < n; ++i)
+            peak = Math.max(peak, Math.abs(buffer[offset + i]));
+        return peak;
+    }
+
+    /**
+     * Returns the largest absolute value of {@code n} samples of {@code buffer}.
+     *
+     * @param buffer buffer to measure.
+     * @param offset index of the first sample in {@code buffer}.
+     * @param n      number of samples.
+     * @return peak level, 0 if {@code n} is 0.
+     */
+    public static float peak(float[] buffer, int offset, int n) {
+        var peak = 0.0f;
+        for (int i = 0; i < n; ++i)
+            peak = Math.max(peak, Math.abs(buffer[offset + i]));
+        return peak;
+    }
+
+    /**
+     * Converts {@code n} samples of {@code src} to single precision and stores them in {@code dst}.
+     *
+     * @param src       source buffer.
+     * @param srcOffset index of the first sample in {@code src}.
+     * @param dst       destination buffer.
+     * @param dstOffset index of the first sample in {@code dst}.
+     * @param n         number of samples.
+     */
+    public static void toFloat(double[] src, int srcOffset, float[] dst, int dstOffset, int n) {
+        for (int i = 0; i < n; ++i)
+            dst[dstOffset + i] = (float) src[srcOffset + i];
+    }
+
+    /**
+     * Converts {@code n} samples of {@code src} to double precision and stores them in {@code dst}.
+     *
+     * @param src       source buffer.
+     * @param srcOffset index of the first sample in {@code src}.
+     * @param dst       destination buffer.
+     * @param dstOffset index of the first sample in {@code dst}.
+     * @param n         number of samples.
+     */
+    public static void toDouble(float[] src, int srcOffset, double[] dst, int dstOffset, int n) {
+        for (int i = 0; i < n; ++i)
+            dst[dstOffset + i] = src[srcOffset + i];
+    }
+
+    /**
+     * Converts {@code n} samples of {@code src} to single precision and adds them to {@code dst}.
+     *
+     * @param src       source buffer.
+     * @param srcOffset index of the first sample in {@code src}.
+     * @param dst       destination buffer.
+     * @param dstOffset index of the first sample in {@code dst}.
+     * @param n         number of samples.
+     */
+    public static void addToFloat(double[] src, int srcOffset, float[] dst, int dstOffset, int n) {
+        for (int i = 0; i < n; ++i)
+            dst[dstOffset + i] += (float) src[srcOffset + i];
+    }
+}
@@ -0,0 +1,29 @@
+package com.scalesynth.dsp.math;
+
+/**
+ * Protection of recursive DSP state from subnormal numbers.
+ * <p>
+ * When a filter or an envelope decays into silence, its state eventually becomes subnormal,
+ * and arithmetic on subnormal doubles is 10-100 times slower on x86. Java has no flush-to-zero mode,
+ * so state that decays exponentially is snapped to zero once it falls below {@link #THRESHOLD}.
+ * This is far below anything audible (-300 dB), so sound is not affected.
+ */
+public final class Denormals {
+    /**
+     * Values with smaller magnitude are treated as silence.
+     */
+    public static final double THRESHOLD = 1e-15;
+
+    private Denormals() {
+    }
+
+    /**
+     * Returns zero if a value is too small, otherwise returns the value itself.
+     *
+     * @param value value to check.
+     * @return zero or {@code value}.
+     */
+    public static double flush(double value) {
+        return Math.abs(value) < THRESHOLD ? 0 : value;
+    }
+}
@@ -0,0 +1,148 @@
+package com.scalesynth.dsp.math;
+
+/**
+ * Fast approximations of elementary functions used in DSP code.
+ * <p>
+ * Functions are based on small lookup tables and short polynomials, so they are about two times faster
+ * than {@link Math#pow(double, double)} and {@link Math#tan(double)}, but still accurate enough
+ * for pitch and filter computations. Error bounds are given against {@link StrictMath}
+ * for each function (ulp-level rounding errors of the arguments are not counted).
+ */
+public final class FastMath {
+    private static final int TABLE_BITS = 6;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final double LN2 = 0.6931471805599453;
+    private static final double INV_LN2 = 1.4426950408889634;
+
+    // 2^(i / TABLE_SIZE)
+    private static final double[] EXP2_TABLE = new double[TABLE_SIZE];
+    // 1 / (1 + i / TABLE_SIZE) and log2(1 + i / TABLE_SIZE)
+    private static final double[] LOG2_INVERSES = new double[TABLE_SIZE];
+    private static final double[] LOG2_TABLE = new double[TABLE_SIZE];
+    // tan(pi * i / TAN_TABLE_SCALE) for arguments in [0, 0.25]
+    private static final double TAN_TABLE_SCALE = 4.0 * TABLE_SIZE;
+    private static final double[] TAN_TABLE = new double[TABLE_SIZE + 1];
+
+    static {
+        for (int i = 0; i < TABLE_SIZE; ++i) {
+            EXP2_TABLE[i] = StrictMath.pow(2, (double) i / TABLE_SIZE);
+            var mantissa = 1 + (double) i / TABLE_SIZE;
+            LOG2_INVERSES[i] = 1 / mantissa;
+            LOG2_TABLE[i] = StrictMath.log(mantissa) / LN2;
+        }
+        for (int i = 0; i <= TABLE_SIZE; ++i)
+            TAN_TABLE[i] = StrictMath.tan(Math.PI * i / TAN_TABLE_SCALE);
+    }
+
+    private FastMath() {
+    }
+
+    /**
+     * Returns 2 raised to the power of {@code x}.
+     * <p>
+     * Relative error is less than 1e-14 when the result is a normal number.
+     * Results below {@link Double#MIN_NORMAL} are flushed to zero, NaN gives NaN.
+     *
+     * @param x exponent.
+     * @return 2 raised to the power of {@code x}.
+     */
+    public static double exp2(double x) {
+        if (!(x >= -1022))
+            return x != x ? x : 0;
+        if (x >= 1024)
+            return Double.POSITIVE_INFINITY;
+
+        // x + 1024 is positive, so truncation works as a branch-free floor
+        // (rounding can make fraction slightly negative, the polynomial handles that)
+        var whole = (int) (x + 1024) - 1024;
+        var fraction = x - whole;
+        var index = (int) (fraction * TABLE_SIZE);
+        // r * ln(2) is in [0, 0.011), so 5th order polynomial is enough
+        var r = (fraction - (double) index / TABLE_SIZE) * LN2;
+        var poly = 1 + r * (1 + r * (1.0 / 2 + r * (1.0 / 6 + r * (1.0 / 24 + r * (1.0 / 120)))));
+        var result = EXP2_TABLE[index] * poly;
+        // result is in [1, 2], so 2^whole can be added straight to its exponent
+        return Double.longBitsToDouble(Double.doubleToRawLongBits(result) + ((long) whole << 52));
+    }
+
+    /**
+     * Returns base 2 logarithm of {@code x}.
+     * <p>
+     * Absolute error is less than 2e-13 for normal positive numbers.
+     * Zero, negative, subnormal, infinite and NaN arguments are handled by {@link Math#log(double)}.
+     *
+     * @param x argument.
+     * @return base 2 logarithm of {@code x}.
+     */
+    public static double log2(double x) {
+        if (!(x >= Double.MIN_NORMAL && x <= Double.MAX_VALUE))
+            return Math.log(x) * INV_LN2;
+
+        var bits = Double.doubleToRawLongBits(x);
+        var exponent = (int) (bits >>> 52) - 1023;
+        var index = (int) (bits >>> (52 - TABLE_BITS)) & (TABLE_SIZE - 1);
+        var mantissa = Double.longBitsToDouble((bits & 0x000f_ffff_ffff_ffffL) | 0x3ff0_0000_0000_0000L);
+        // t is in [0, 1 / 64), so 6th order series of ln(1 + t) is enough
+        var t = mantissa * LOG2_INVERSES[index] - 1;
+        var ln = t * (1 - t * (1.0 / 2 - t * (1.0 / 3 - t * (1.0 / 4 - t * (1.0 / 5 - t * (1.0 / 6))))));
+        return exponent + LOG2_TABLE[index] + ln * INV_LN2;
+    }
+
+    /**
+     * Returns tangent of {@code pi * x}. It is useful for bilinear transform prewarping,
+     * where {@code x} is a frequency divided by the sample rate.
+     * <p>
+     * Relative error is less than 1e-14 for fractional part of x within [-0.49, 0.49].
+     * Near the poles this is still more accurate than {@code Math.tan(Math.PI * x)},
+     * because reduction of x is exact and cotangent is computed there. Odd multiples of 0.5 give infinity.
+     *
+     * @param x argument, in half turns.
+     * @return tangent of {@code pi * x}.
+     */
+    public static double tanPi(double x) {
+        // tangent has a period of 1, so reduce x to [-0.5, 0.5] and then to [0, 0.5] by symmetry
+        var reduced = x - Math.rint(x);
+        var sign = 1.0;
+        if (reduced < 0) {
+            reduced = -reduced;
+            sign = -1.0;
+        }
+        // tan(y) = cot(pi / 2 - y), 0.5 - reduced is exact there
+        var cotangent = reduced > 0.25;
+        if (cotangent)
+            reduced = 0.5 - reduced;
+
+        // tan(a + b) = (tan(a) + tan(b)) / (1 - tan(a) * tan(b)), tan(a) is taken from the table
+        var index = (int) (reduced * TAN_TABLE_SCALE + 0.5);
+        var b = (reduced - index / TAN_TABLE_SCALE) * Math.PI;
+        var b2 = b * b;
+        // |b| <= pi / 512, so the error of 7th order series is below 1e-18
+        var tanB = b * (1 + b2 * (1.0 / 3 + b2 * (2.0 / 15 + b2 * (17.0 / 315))));
+        var tanA = TAN_TABLE[index];
+        var numerator = tanA + tanB;
+        var denominator = 1 - tanA * tanB;
+        return cotangent ? sign * denominator / numerator : sign * numerator / denominator;
+    }
+
+    /**
+     * Converts a pitch interval in semitones to a frequency ratio.
+     * Has the same error bound as {@link #exp2(double)}.
+     *
+     * @param semitones interval in semitones.
+     * @return frequency ratio.
+     */
+    public static double semitonesToRatio(double semitones) {
+        return exp2(semitones * (1.0 / 12));
+    }
+
+    /**
+     * Converts a pitch interval in cents to a frequency ratio.
+     * Has the same error bound as {@link #exp2(double)}.
+     *
+     * @param cents interval in cents.
+     * @return frequency ratio.
+     */
+    public static double centsToRatio(double cents) {
+        return exp2(cents * (1.0 / 1200));
+    }
+}
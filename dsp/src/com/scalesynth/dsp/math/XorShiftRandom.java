@@ -0,0 +1,118 @@
+package com.scalesynth.dsp.math;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small and fast pseudo random generator (xorshift64*), intended to be owned by a single voice.
+ * <p>
+ * Unlike {@link Math#random()} it has no shared state, so voices rendered in different threads
+ * don't contend on it, and it can be seeded to make rendering reproducible.
+ * It is not thread safe and not suitable for cryptography.
+ */
+public final class XorShiftRandom {
+    private static final AtomicLong seedUniquifier = new AtomicLong(System.nanoTime());
+
+    private long state;
+
+    /**
+     * Constructs a new generator with a seed that is different for every instance.
+     */
+    public XorShiftRandom() {
+        this(seedUniquifier.getAndAdd(0x9e3779b97f4a7c15L));
+    }
+
+    /**
+     * Constructs a new generator with a given seed.
+     *
+     * @param seed initial seed.
+     */
+    public XorShiftRandom(long seed) {
+        setSeed(seed);
+    }
+
+    /**
+     * Resets the generator to a given seed. Generators with equal seeds produce equal sequences.
+     *
+     * @param seed new seed.
+     */
+    public void setSeed(long seed) {
+        // splitmix64 step spreads similar seeds, zero state is not allowed in xorshift
+        var z = seed + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        z ^= z >>> 31;
+        state = z != 0 ? z : 0x2545f4914f6cdd1dL;
+    }
+
+    /**
+     * Returns next pseudo random 64 bit value.
+     *
+     * @return pseudo random value.
+     */
+    public long nextLong() {
+        var x = state;
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        state = x;
+        return x * 0x2545f4914f6cdd1dL;
+    }
+
+    /**
+     * Returns next pseudo random value uniformly distributed in range [0, 1).
+     *
+     * @return pseudo random value.
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Returns next pseudo random value uniformly distributed in range [-1, 1).
+     *
+     * @return pseudo random value.
+     */
+    public double nextBipolar() {
+        return (nextLong() >> 11) * 0x1.0p-52;
+    }
+
+    /**
+     * Fills a buffer with white noise in range [-amplitude, amplitude).
+     *
+     * @param buffer    buffer to fill.
+     * @param offset    index of the first sample.
+     * @param n         number of samples.
+     * @param amplitude amplitude of the noise.
+     */
+    public void fillNoise(double[] buffer, int offset, int n, double amplitude) {
+        var x = state;
+        var scale = amplitude * 0x1.0p-52;
+        for (int i = offset; i < offset + n; ++i) {
+            x ^= x >>> 12;
+            x ^= x << 25;
+            x ^= x >>> 27;
+            buffer[i] = ((x * 0x2545f4914f6cdd1dL) >> 11) * scale;
+        }
+        state = x;
+    }
+
+    /**
+     * Fills a single precision buffer with white noise in range [-amplitude, amplitude).
+     *
+     * @param buffer    buffer to fill.
+     * @param offset    index of the first sample.
+     * @param n         number of samples.
+     * @param amplitude amplitude of the noise.
+     */
+    public void fillNoise(float[] buffer, int offset, int n, double amplitude) {
+        var x = state;
+        var scale = amplitude * 0x1.0p-52;
+        for (int i = offset; i < offset + n; ++i) {
+            x ^= x >>> 12;
+            x ^= x << 25;
+            x ^= x >>> 27;
+            buffer[i] = (float) (((x * 0x2545f4914f6cdd1dL) >> 11) * scale);
+        }
+        state = x;
+    }
+}
@@ -0,0 +1,51 @@
+package com.scalesynth.dsp.modulation;
+
+/**
+ * A sine low frequency oscillator evaluated at control rate (once per block).
+ */
+class Lfo {
+    private double rate;
+    private double sampleRate = 44100;
+    private double phase;
+    private double value;
+
+    /**
+     * Moves the oscillator forward and returns its value at the start of the block.
+     *
+     * @param n number of samples in the block.
+     * @return a value in range [-1, 1].
+     */
+    double advance(int n) {
+        value = Math.sin(2 * Math.PI * phase);
+        phase += rate * n / sampleRate;
+        phase -= Math.floor(phase);
+        return value;
+    }
+
+    /**
+     * Returns the value computed by the last {@link #advance(int)}.
+     *
+     * @return a value in range [-1, 1].
+     */
+    double getValue() {
+        return value;
+    }
+
+    /**
+     * Sets a frequency of the oscillator.
+     *
+     * @param rate a new frequency in Hz.
+     */
+    void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * Sets a sample rate used in processing.
+     *
+     * @param sampleRate new sample rate.
+     */
+    void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+}
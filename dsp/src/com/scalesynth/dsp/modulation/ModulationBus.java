@@ -0,0 +1,193 @@
+package com.scalesynth.dsp.modulation;
+
+import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.dsp.math.FastMath;
+
+/**
+ * Global modulation sources shared by all voices: pitch bend, mod wheel, channel pressure and LFOs.
+ * <p>
+ * The bus is evaluated once per block by the audio thread with {@link #update(int)}, and the voices read
+ * the resulting modulation values from it. Every time any value changes, the generation is incremented,
+ * so a voice recomputes its frequencies only when its last seen generation is outdated.
+ * Idle voices don't do anything at all, they catch up when they are started.
+ * <p>
+ * Vibrato LFO modulates pitch, its depth is scaled by the mod wheel and the channel pressure (the sum
+ * of both, up to 1), so it is silent until one of them is moved. Filter LFO modulates cutoff of all voices.
+ */
+public class ModulationBus {
+    /**
+     * Maximum length of a block while an LFO is running, so LFO steps stay small.
+     */
+    public static final int CONTROL_BLOCK = 64;
+
+    private static final int MOD_WHEEL = 1;
+
+    private final Lfo vibratoLfo = new Lfo();
+    private final Lfo filterLfo = new Lfo();
+    private double bendRatio = 1;
+    private double modWheel;
+    private double pressure;
+    private double vibratoDepth;
+    private double filterLfoAmount;
+
+    private double pitchRatio = 1;
+    private double cutoffRatio = 1;
+    private long generation;
+
+    /**
+     * Returns true if the event is a modulation event that should be passed to the bus instead of the voices.
+     *
+     * @param event an event.
+     * @return true if the event is a pitch bend, a control change or a channel pressure.
+     */
+    public static boolean accepts(KeyboardEvent event) {
+        switch (event.getType()) {
+            case PITCH_BEND:
+            case CONTROL_CHANGE:
+            case CHANNEL_PRESSURE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Updates modulation sources with an event. Values are recomputed in the next {@link #update(int)}.
+     *
+     * @param event a modulation event.
+     */
+    public void handleKeyboardEvent(KeyboardEvent event) {
+        switch (event.getType()) {
+            case PITCH_BEND:
+                bendRatio = event.getFreq();
+                break;
+            case CONTROL_CHANGE:
+                if (event.getNote() == MOD_WHEEL)
+                    modWheel = event.getValue() / 127.0;
+                break;
+            case CHANNEL_PRESSURE:
+                pressure = event.getValue() / 127.0;
+                break;
+        }
+    }
+
+    /**
+     * Evaluates the bus for the next block. Should be called by the audio thread before the voices are rendered.
+     *
+     * @param n number of samples in the block.
+     */
+    public void update(int n) {
+        var vibratoAmount = vibratoDepth * Math.min(1, modWheel + pressure);
+        var vibrato = vibratoAmount == 0 ? 0 : vibratoAmount * vibratoLfo.advance(n);
+        var newPitchRatio = vibrato == 0 ? bendRatio : bendRatio * FastMath.semitonesToRatio(vibrato);
+        var newCutoffRatio = filterLfoAmount == 0 ? 1 : FastMath.exp2(filterLfoAmount * filterLfo.advance(n));
+
+        if (newPitchRatio != pitchRatio || newCutoffRatio != cutoffRatio) {
+            pitchRatio = newPitchRatio;
+            cutoffRatio = newCutoffRatio;
+            ++generation;
+        }
+    }
+
+    /**
+     * Returns a maximum length of the next block: {@link #CONTROL_BLOCK} while an LFO is running, otherwise
+     * blocks are not limited.
+     *
+     * @return maximum number of samples.
+     */
+    public int getMaxBlockSize() {
+        var vibratoRunning = vibratoDepth != 0 && modWheel + pressure > 0;
+        return vibratoRunning || filterLfoAmount != 0 ? CONTROL_BLOCK : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns a number that is incremented every time any modulation value changes.
+     *
+     * @return generation of modulation values.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns a frequency multiplier of all voices (pitch bend and vibrato).
+     *
+     * @return frequency multiplier.
+     */
+    public double getPitchRatio() {
+        return pitchRatio;
+    }
+
+    /**
+     * Returns a cutoff multiplier of all voices (filter LFO).
+     *
+     * @return cutoff multiplier.
+     */
+    public double getCutoffRatio() {
+        return cutoffRatio;
+    }
+
+    /**
+     * Returns a position of the mod wheel.
+     *
+     * @return a value in range [0, 1].
+     */
+    public double getModWheel() {
+        return modWheel;
+    }
+
+    /**
+     * Returns channel pressure (aftertouch).
+     *
+     * @return a value in range [0, 1].
+     */
+    public double getPressure() {
+        return pressure;
+    }
+
+    /**
+     * Sets a frequency of the vibrato LFO.
+     *
+     * @param rate a new frequency in Hz.
+     */
+    public void setVibratoRate(double rate) {
+        vibratoLfo.setRate(rate);
+    }
+
+    /**
+     * Sets a maximum vibrato depth (reached with the mod wheel or pressure at maximum).
+     *
+     * @param depth a new depth in semitones.
+     */
+    public void setVibratoDepth(double depth) {
+        this.vibratoDepth = depth;
+    }
+
+    /**
+     * Sets a frequency of the filter LFO.
+     *
+     * @param rate a new frequency in Hz.
+     */
+    public void setFilterLfoRate(double rate) {
+        filterLfo.setRate(rate);
+    }
+
+    /**
+     * Sets how much the filter LFO moves cutoff.
+     *
+     * @param amount a new amount in octaves (0 disables the LFO).
+     */
+    public void setFilterLfoAmount(double amount) {
+        this.filterLfoAmount = amount;
+    }
+
+    /**
+     * Sets a sample rate used in processing.
+     *
+     * @param sampleRate new sample rate.
+     */
+    public void setSampleRate(double sampleRate) {
+        vibratoLfo.setSampleRate(sampleRate);
+        filterLfo.setSampleRate(sampleRate);
+    }
+}
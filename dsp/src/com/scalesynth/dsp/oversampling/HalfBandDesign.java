@@ -0,0 +1,86 @@
+package com.scalesynth.dsp.oversampling;
+
+/**
+ * Designs polyphase IIR half-band filters.
+ * <p>
+ * Filter is made of two parallel chains of first-order allpass sections, one per polyphase branch:
+ * {@code H(z) = (A0(z^2) + z^-1 * A1(z^2)) / 2}. Coefficients are obtained from an elliptic
+ * half-band prototype (the same method as in Laurent de Soras' HIIR library), even coefficients
+ * belong to the first chain and odd ones to the second.
+ */
+final class HalfBandDesign {
+    /**
+     * Coefficients of the first stage (between the base and 2x rates).
+     * Passband ends at 0.21 of the 2x rate (18.5 kHz for 44.1 kHz), stopband attenuation is about 99 dB.
+     */
+    static final double[] STEEP = coefficients(8, 0.04);
+
+    /**
+     * Coefficients of the second stage (between 2x and 4x rates).
+     * Only 0.105 of the 4x rate has to be kept there, so the transition band is much wider.
+     */
+    static final double[] RELAXED = coefficients(5, 0.14);
+
+    private HalfBandDesign() {
+    }
+
+    /**
+     * Computes allpass coefficients of a half-band filter.
+     *
+     * @param count      number of coefficients (filter order is {@code 2 * count + 1}).
+     * @param transition width of the transition band, normalized to the higher sample rate, in range (0, 0.5).
+     * @return allpass coefficients.
+     */
+    static double[] coefficients(int count, double transition) {
+        if (count <= 0)
+            throw new IllegalArgumentException("Number of coefficients should be positive");
+        if (!(transition > 0 && transition < 0.5))
+            throw new IllegalArgumentException("Transition band should be in range (0, 0.5)");
+
+        // parameters of the elliptic prototype: selectivity factor k and nome q
+        var k = Math.tan((1 - transition * 2) * Math.PI / 4);
+        k *= k;
+        var kRoot = Math.pow(1 - k * k, 0.25);
+        var e = 0.5 * (1 - kRoot) / (1 + kRoot);
+        var e4 = e * e * e * e;
+        var q = e * (1 + e4 * (2 + e4 * (15 + 150 * e4)));
+
+        var order = count * 2 + 1;
+        var coefficients = new double[count];
+        for (int i = 0; i < count; ++i) {
+            var ww = numerator(q, i + 1, order) / denominator(q, i + 1, order);
+            var wwSquared = ww * ww;
+            var x = Math.sqrt((1 - wwSquared * k) * (1 - wwSquared / k)) / (1 + wwSquared);
+            coefficients[i] = (1 - x) / (1 + x);
+        }
+        return coefficients;
+    }
+
+    private static double numerator(double q, int index, int order) {
+        double sum = 0;
+        double term;
+        var sign = 1;
+        var i = 0;
+        do {
+            term = Math.pow(q, i * (i + 1)) * Math.sin((i * 2 + 1) * index * Math.PI / order) * sign;
+            sum += term;
+            sign = -sign;
+            ++i;
+        } while (Math.abs(term) > 1e-100);
+        return sum * Math.pow(q, 0.25);
+    }
+
+    private static double denominator(double q, int index, int order) {
+        double sum = 0.5;
+        double term;
+        var sign = -1;
+        var i = 1;
+        do {
+            term = Math.pow(q, i * i) * Math.cos(i * 2 * index * Math.PI / order) * sign;
+            sum += term;
+            sign = -sign;
+            ++i;
+        } while (Math.abs(term) > 1e-100);
+        return sum;
+    }
+}
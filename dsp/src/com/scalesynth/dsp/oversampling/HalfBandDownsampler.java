@@ -0,0 +1,71 @@
+package com.scalesynth.dsp.oversampling;
+
+import java.util.Arrays;
+
+/**
+ * Halves a sample rate of one channel with a polyphase IIR half-band filter.
+ * <p>
+ * Odd input samples go through the first allpass chain and even ones through the second,
+ * the output is the average of both chains, so the filter runs at the lower rate.
+ */
+class HalfBandDownsampler {
+    private final double[] coefficients;
+    private final double[] inputStates;
+    private final double[] outputStates;
+
+    /**
+     * Constructs a new downsampler.
+     *
+     * @param coefficients allpass coefficients, as returned by {@link HalfBandDesign#coefficients(int, double)}.
+     */
+    HalfBandDownsampler(double[] coefficients) {
+        this.coefficients = coefficients;
+        inputStates = new double[coefficients.length];
+        outputStates = new double[coefficients.length];
+    }
+
+    /**
+     * Downsamples audio. Input and output can be the same buffer when offsets are the same.
+     *
+     * @param input        buffer to take audio from, {@code 2 * n} samples are read.
+     * @param inputOffset  index of the first input sample.
+     * @param output       buffer to place downsampled audio into.
+     * @param outputOffset index of the first output sample.
+     * @param n            number of output samples.
+     */
+    void process(double[] input, int inputOffset, double[] output, int outputOffset, int n) {
+        var count = coefficients.length;
+        for (int i = 0; i < n; ++i) {
+            var even = input[inputOffset + 2 * i + 1];
+            var odd = input[inputOffset + 2 * i];
+            // both chains are independent, so they are interleaved
+            for (int j = 0; j + 1 < count; j += 2) {
+                var y0 = coefficients[j] * (even - outputStates[j]) + inputStates[j];
+                inputStates[j] = even;
+                outputStates[j] = y0;
+                even = y0;
+
+                var y1 = coefficients[j + 1] * (odd - outputStates[j + 1]) + inputStates[j + 1];
+                inputStates[j + 1] = odd;
+                outputStates[j + 1] = y1;
+                odd = y1;
+            }
+            if ((count & 1) != 0) {
+                var j = count - 1;
+                var y0 = coefficients[j] * (even - outputStates[j]) + inputStates[j];
+                inputStates[j] = even;
+                outputStates[j] = y0;
+                even = y0;
+            }
+            output[outputOffset + i] = 0.5 * (even + odd);
+        }
+    }
+
+    /**
+     * Clears a state of the filter.
+     */
+    void reset() {
+        Arrays.fill(inputStates, 0);
+        Arrays.fill(outputStates, 0);
+    }
+}
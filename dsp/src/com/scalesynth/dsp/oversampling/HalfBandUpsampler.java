@@ -0,0 +1,72 @@
+package com.scalesynth.dsp.oversampling;
+
+import java.util.Arrays;
+
+/**
+ * Doubles a sample rate of one channel with a polyphase IIR half-band filter.
+ * <p>
+ * Every input sample is fed into both allpass chains, their outputs are the even and the odd
+ * output samples, so the filter runs at the lower rate and no zeros are ever stuffed.
+ */
+class HalfBandUpsampler {
+    private final double[] coefficients;
+    private final double[] inputStates;
+    private final double[] outputStates;
+
+    /**
+     * Constructs a new upsampler.
+     *
+     * @param coefficients allpass coefficients, as returned by {@link HalfBandDesign#coefficients(int, double)}.
+     */
+    HalfBandUpsampler(double[] coefficients) {
+        this.coefficients = coefficients;
+        inputStates = new double[coefficients.length];
+        outputStates = new double[coefficients.length];
+    }
+
+    /**
+     * Upsamples audio.
+     *
+     * @param input        buffer to take audio from.
+     * @param inputOffset  index of the first input sample.
+     * @param output       buffer to place upsampled audio into, {@code 2 * n} samples are written.
+     * @param outputOffset index of the first output sample.
+     * @param n            number of input samples.
+     */
+    void process(double[] input, int inputOffset, double[] output, int outputOffset, int n) {
+        var count = coefficients.length;
+        for (int i = 0; i < n; ++i) {
+            var even = input[inputOffset + i];
+            var odd = even;
+            // both chains are independent, so they are interleaved
+            for (int j = 0; j + 1 < count; j += 2) {
+                var y0 = coefficients[j] * (even - outputStates[j]) + inputStates[j];
+                inputStates[j] = even;
+                outputStates[j] = y0;
+                even = y0;
+
+                var y1 = coefficients[j + 1] * (odd - outputStates[j + 1]) + inputStates[j + 1];
+                inputStates[j + 1] = odd;
+                outputStates[j + 1] = y1;
+                odd = y1;
+            }
+            if ((count & 1) != 0) {
+                var j = count - 1;
+                var y0 = coefficients[j] * (even - outputStates[j]) + inputStates[j];
+                inputStates[j] = even;
+                outputStates[j] = y0;
+                even = y0;
+            }
+            output[outputOffset + 2 * i] = even;
+            output[outputOffset + 2 * i + 1] = odd;
+        }
+    }
+
+    /**
+     * Clears a state of the filter.
+     */
+    void reset() {
+        Arrays.fill(inputStates, 0);
+        Arrays.fill(outputStates, 0);
+    }
+}
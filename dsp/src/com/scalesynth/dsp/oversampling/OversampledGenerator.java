@@ -0,0 +1,131 @@
+package com.scalesynth.dsp.oversampling;
+
+import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.base.ScratchArena;
+import com.scalesynth.base.generators.Generator;
+
+/**
+ * Runs a generator (usually a chain built with {@link Generator#then}) at 2 or 4 times higher sample rate
+ * and downsamples its output, so aliasing produced inside of the chain is filtered out.
+ * <p>
+ * With factor 1 the generator is called directly and there is no overhead.
+ * Wrapped generator sees the higher sample rate and buffer size, so it requires larger buffers
+ * from a lent {@link ScratchArena}.
+ */
+public class OversampledGenerator implements Generator {
+    private final Generator generator;
+    private final Oversampler oversampler = new Oversampler(ScratchArena.DEFAULT_SIZE);
+    private double sampleRate = 44100;
+
+    /**
+     * Constructs a new wrapper with oversampling disabled.
+     *
+     * @param generator generator to run at the higher sample rate.
+     */
+    public OversampledGenerator(Generator generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * Sets an oversampling factor. Does nothing if the factor is the same.
+     * <p>
+     * Nothing is allocated (buffers of the wrapped generator are always sized for the largest factor), but its
+     * sample rate is changed, which usually resets oscillator phases and filter coefficients. So a sounding
+     * generator will click, the factor is better changed while it is idle or right before a note on.
+     *
+     * @param factor 1 (disabled), 2 or 4.
+     */
+    public void setFactor(int factor) {
+        if (factor == oversampler.getFactor())
+            return;
+
+        oversampler.setFactor(factor);
+        generator.setSampleRate(sampleRate * factor);
+    }
+
+    /**
+     * Returns the oversampling factor.
+     *
+     * @return 1, 2 or 4.
+     */
+    public int getFactor() {
+        return oversampler.getFactor();
+    }
+
+    /**
+     * Generates of the audio.
+     *
+     * @param outputs buffers to place generated audio into.
+     * @param offset  index of the first sample to generate in {@code outputs}.
+     * @param n       how many samples to generate.
+     */
+    @Override
+    public void generate(double[][] outputs, int offset, int n) {
+        var factor = oversampler.getFactor();
+        if (factor == 1) {
+            generator.generate(outputs, offset, n);
+            return;
+        }
+
+        generator.generate(oversampler.getBuffers(outputs.length), 0, n * factor);
+        oversampler.downsample(outputs, offset, n);
+    }
+
+    /**
+     * Generates of the audio in single precision.
+     *
+     * @param outputs buffers to place generated audio into.
+     * @param offset  index of the first sample to generate in {@code outputs}.
+     * @param n       how many samples to generate.
+     */
+    @Override
+    public void generate(float[][] outputs, int offset, int n) {
+        var factor = oversampler.getFactor();
+        if (factor == 1) {
+            generator.generate(outputs, offset, n);
+            return;
+        }
+
+        generator.generate(oversampler.getFloatBuffers(outputs.length), 0, n * factor);
+        oversampler.downsample(outputs, offset, n);
+    }
+
+    /**
+     * Sets a sample rate used in processing. Wrapped generator gets the oversampled rate.
+     *
+     * @param sampleRate new sample rate.
+     */
+    @Override
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+        oversampler.reset();
+        generator.setSampleRate(sampleRate * oversampler.getFactor());
+    }
+
+    /**
+     * Sets a maximum number of samples that will be requested in one call.
+     * Wrapped generator gets the size oversampled with the largest factor, so changing the factor doesn't resize it.
+     *
+     * @param bufferSize new maximum buffer size.
+     */
+    @Override
+    public void setBufferSize(int bufferSize) {
+        oversampler.setBufferSize(bufferSize);
+        generator.setBufferSize(bufferSize * Oversampler.MAX_FACTOR);
+    }
+
+    @Override
+    public void setScratchArena(ScratchArena arena) {
+        generator.setScratchArena(arena);
+    }
+
+    @Override
+    public void handleKeyboardEvent(KeyboardEvent keyboardEvent) {
+        generator.handleKeyboardEvent(keyboardEvent);
+    }
+
+    @Override
+    public boolean isActive() {
+        return generator.isActive();
+    }
+}
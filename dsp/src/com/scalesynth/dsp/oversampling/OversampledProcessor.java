@@ -0,0 +1,136 @@
+package com.scalesynth.dsp.oversampling;
+
+import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.base.ScratchArena;
+import com.scalesynth.base.processors.Processor;
+
+/**
+ * Runs a processor at 2 or 4 times higher sample rate: incoming audio is upsampled, processed
+ * and downsampled back, so aliasing produced by the processor (e.g. by saturation or by a filter
+ * tuned close to Nyquist) is filtered out.
+ * <p>
+ * With factor 1 the processor is called directly and there is no overhead.
+ * Wrapped processor sees the higher sample rate and buffer size, so it requires larger buffers
+ * from a lent {@link ScratchArena}.
+ */
+public class OversampledProcessor implements Processor {
+    private final Processor processor;
+    private final Oversampler oversampler = new Oversampler(ScratchArena.DEFAULT_SIZE);
+    private double sampleRate = 44100;
+
+    /**
+     * Constructs a new wrapper with oversampling disabled.
+     *
+     * @param processor processor to run at the higher sample rate.
+     */
+    public OversampledProcessor(Processor processor) {
+        this.processor = processor;
+    }
+
+    /**
+     * Sets an oversampling factor. Does nothing if the factor is the same.
+     * <p>
+     * Nothing is allocated (buffers of the wrapped processor are always sized for the largest factor), but its
+     * sample rate is changed, which usually resets oscillator phases and filter coefficients. So a sounding
+     * processor will click, the factor is better changed while it is idle or right before a note on.
+     *
+     * @param factor 1 (disabled), 2 or 4.
+     */
+    public void setFactor(int factor) {
+        if (factor == oversampler.getFactor())
+            return;
+
+        oversampler.setFactor(factor);
+        processor.setSampleRate(sampleRate * factor);
+    }
+
+    /**
+     * Returns the oversampling factor.
+     *
+     * @return 1, 2 or 4.
+     */
+    public int getFactor() {
+        return oversampler.getFactor();
+    }
+
+    /**
+     * Transforms incoming audio.
+     * Note that content of {@code inputs} will be overwritten.
+     *
+     * @param inputs buffers to place generated audio into.
+     * @param offset index of the first sample to transform in {@code inputs}.
+     * @param n      how many samples to generate.
+     */
+    @Override
+    public void process(double[][] inputs, int offset, int n) {
+        var factor = oversampler.getFactor();
+        if (factor == 1) {
+            processor.process(inputs, offset, n);
+            return;
+        }
+
+        oversampler.upsample(inputs, offset, n);
+        processor.process(oversampler.getBuffers(inputs.length), 0, n * factor);
+        oversampler.downsample(inputs, offset, n);
+    }
+
+    /**
+     * Transforms incoming audio in single precision.
+     * Note that content of {@code inputs} will be overwritten.
+     *
+     * @param inputs buffers to place generated audio into.
+     * @param offset index of the first sample to transform in {@code inputs}.
+     * @param n      how many samples to generate.
+     */
+    @Override
+    public void process(float[][] inputs, int offset, int n) {
+        var factor = oversampler.getFactor();
+        if (factor == 1) {
+            processor.process(inputs, offset, n);
+            return;
+        }
+
+        oversampler.upsample(inputs, offset, n);
+        processor.process(oversampler.getFloatBuffers(inputs.length), 0, n * factor);
+        oversampler.downsample(inputs, offset, n);
+    }
+
+    /**
+     * Sets a sample rate used in processing. Wrapped processor gets the oversampled rate.
+     *
+     * @param sampleRate new sample rate.
+     */
+    @Override
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+        oversampler.reset();
+        processor.setSampleRate(sampleRate * oversampler.getFactor());
+    }
+
+    /**
+     * Sets a maximum number of samples that will be requested in one call.
+     * Wrapped processor gets the size oversampled with the largest factor, so changing the factor doesn't resize it.
+     *
+     * @param bufferSize new maximum buffer size.
+     */
+    @Override
+    public void setBufferSize(int bufferSize) {
+        oversampler.setBufferSize(bufferSize);
+        processor.setBufferSize(bufferSize * Oversampler.MAX_FACTOR);
+    }
+
+    @Override
+    public void setScratchArena(ScratchArena arena) {
+        processor.setScratchArena(arena);
+    }
+
+    @Override
+    public void handleKeyboardEvent(KeyboardEvent keyboardEvent) {
+        processor.handleKeyboardEvent(keyboardEvent);
+    }
+
+    @Override
+    public boolean isActive() {
+        return processor.isActive();
+    }
+}
@@ -0,0 +1,212 @@
+package com.scalesynth.dsp.oversampling;
+
+import com.scalesynth.dsp.math.BufferOps;
+
+/**
+ * Converts multichannel audio between a base sample rate and 1, 2 or 4 times higher rate.
+ * <p>
+ * 4x conversion is a cascade of two half-band stages: the steep one works between the base and 2x rates,
+ * the relaxed one works between 2x and 4x rates, where only the lower quarter of the band has to be kept.
+ * High rate audio is kept in buffers owned by the oversampler (double and single precision ones).
+ * Filters and buffers are allocated for {@link #MAX_FACTOR} when the buffer size is changed, so the factor
+ * can be changed on the audio thread without allocation. Filters always run in double precision,
+ * single precision audio is converted at once through the double buffers.
+ */
+class Oversampler {
+    /**
+     * The largest supported factor, filters and buffers are always allocated for it.
+     */
+    static final int MAX_FACTOR = 4;
+    private static final int DEFAULT_CHANNELS = 2;
+
+    private int factor = 1;
+    private int bufferSize;
+    private HalfBandUpsampler[][] upsamplers = new HalfBandUpsampler[0][];
+    private HalfBandDownsampler[][] downsamplers = new HalfBandDownsampler[0][];
+    private double[][] buffers = new double[0][];
+    private double[] stageBuffer = new double[0];
+    private float[][] floatBuffers = new float[0][];
+
+    /**
+     * Constructs a new oversampler.
+     *
+     * @param bufferSize maximum number of base rate samples processed in one call.
+     */
+    Oversampler(int bufferSize) {
+        setBufferSize(bufferSize);
+    }
+
+    /**
+     * Sets an oversampling factor. State of the filters is cleared, nothing is allocated.
+     *
+     * @param factor 1, 2 or 4.
+     */
+    void setFactor(int factor) {
+        if (factor != 1 && factor != 2 && factor != 4)
+            throw new IllegalArgumentException("Oversampling factor should be 1, 2 or 4");
+        this.factor = factor;
+        reset();
+    }
+
+    /**
+     * Returns the oversampling factor.
+     *
+     * @return 1, 2 or 4.
+     */
+    int getFactor() {
+        return factor;
+    }
+
+    /**
+     * Sets a maximum number of base rate samples processed in one call.
+     *
+     * @param bufferSize new maximum buffer size.
+     */
+    void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        allocate(Math.max(buffers.length, DEFAULT_CHANNELS));
+    }
+
+    /**
+     * Returns high rate buffers, one per channel. Each buffer holds at least {@code factor} times more samples
+     * than the base rate buffer size.
+     *
+     * @param channelCount number of channels.
+     * @return high rate buffers.
+     */
+    double[][] getBuffers(int channelCount) {
+        // normally buffers are allocated in setBufferSize, this is just a safety net.
+        if (buffers.length != channelCount)
+            allocate(channelCount);
+        return buffers;
+    }
+
+    /**
+     * Returns single precision high rate buffers, one per channel (see {@link #getBuffers(int)}).
+     *
+     * @param channelCount number of channels.
+     * @return high rate buffers.
+     */
+    float[][] getFloatBuffers(int channelCount) {
+        if (floatBuffers.length != channelCount)
+            allocate(channelCount);
+        return floatBuffers;
+    }
+
+    /**
+     * Upsamples audio into the high rate buffers.
+     *
+     * @param inputs base rate audio.
+     * @param offset index of the first sample in {@code inputs}.
+     * @param n      number of base rate samples.
+     */
+    void upsample(double[][] inputs, int offset, int n) {
+        var buffers = getBuffers(inputs.length);
+        for (int ch = 0; ch < inputs.length; ++ch) {
+            var stages = upsamplers[ch];
+            if (factor == 2) {
+                stages[0].process(inputs[ch], offset, buffers[ch], 0, n);
+            } else {
+                stages[0].process(inputs[ch], offset, stageBuffer, 0, n);
+                stages[1].process(stageBuffer, 0, buffers[ch], 0, 2 * n);
+            }
+        }
+    }
+
+    /**
+     * Upsamples single precision audio into the high rate buffers (see {@link #getFloatBuffers(int)}).
+     *
+     * @param inputs base rate audio.
+     * @param offset index of the first sample in {@code inputs}.
+     * @param n      number of base rate samples.
+     */
+    void upsample(float[][] inputs, int offset, int n) {
+        var buffers = getBuffers(inputs.length);
+        var floatBuffers = getFloatBuffers(inputs.length);
+        for (int ch = 0; ch < inputs.length; ++ch) {
+            var stages = upsamplers[ch];
+            if (factor == 2) {
+                BufferOps.toDouble(inputs[ch], offset, stageBuffer, 0, n);
+                stages[0].process(stageBuffer, 0, buffers[ch], 0, n);
+            } else {
+                BufferOps.toDouble(inputs[ch], offset, buffers[ch], 0, n);
+                stages[0].process(buffers[ch], 0, stageBuffer, 0, n);
+                stages[1].process(stageBuffer, 0, buffers[ch], 0, 2 * n);
+            }
+            BufferOps.toFloat(buffers[ch], 0, floatBuffers[ch], 0, n * factor);
+        }
+    }
+
+    /**
+     * Downsamples audio from the high rate buffers.
+     *
+     * @param outputs buffers to place base rate audio into.
+     * @param offset  index of the first sample in {@code outputs}.
+     * @param n       number of base rate samples.
+     */
+    void downsample(double[][] outputs, int offset, int n) {
+        var buffers = getBuffers(outputs.length);
+        for (int ch = 0; ch < outputs.length; ++ch) {
+            var stages = downsamplers[ch];
+            if (factor == 2) {
+                stages[0].process(buffers[ch], 0, outputs[ch], offset, n);
+            } else {
+                stages[1].process(buffers[ch], 0, stageBuffer, 0, 2 * n);
+                stages[0].process(stageBuffer, 0, outputs[ch], offset, n);
+            }
+        }
+    }
+
+    /**
+     * Downsamples single precision audio from the high rate buffers (see {@link #getFloatBuffers(int)}).
+     * Double precision high rate buffers are overwritten.
+     *
+     * @param outputs buffers to place base rate audio into.
+     * @param offset  index of the first sample in {@code outputs}.
+     * @param n       number of base rate samples.
+     */
+    void downsample(float[][] outputs, int offset, int n) {
+        var buffers = getBuffers(outputs.length);
+        var floatBuffers = getFloatBuffers(outputs.length);
+        for (int ch = 0; ch < outputs.length; ++ch) {
+            var stages = downsamplers[ch];
+            var buffer = buffers[ch];
+            BufferOps.toDouble(floatBuffers[ch], 0, buffer, 0, n * factor);
+            // downsamplers can work in place
+            if (factor == 4)
+                stages[1].process(buffer, 0, buffer, 0, 2 * n);
+            stages[0].process(buffer, 0, buffer, 0, n);
+            BufferOps.toFloat(buffer, 0, outputs[ch], offset, n);
+        }
+    }
+
+    /**
+     * Clears a state of all filters.
+     */
+    void reset() {
+        for (var stages : upsamplers)
+            for (var stage : stages)
+                stage.reset();
+        for (var stages : downsamplers)
+            for (var stage : stages)
+                stage.reset();
+    }
+
+    private void allocate(int channelCount) {
+        var stageCount = Integer.numberOfTrailingZeros(MAX_FACTOR);
+        upsamplers = new HalfBandUpsampler[channelCount][stageCount];
+        downsamplers = new HalfBandDownsampler[channelCount][stageCount];
+        for (int ch = 0; ch < channelCount; ++ch) {
+            for (int stage = 0; stage < stageCount; ++stage) {
+                var coefficients = stage == 0 ? HalfBandDesign.STEEP : HalfBandDesign.RELAXED;
+                upsamplers[ch][stage] = new HalfBandUpsampler(coefficients);
+                downsamplers[ch][stage] = new HalfBandDownsampler(coefficients);
+            }
+        }
+
+        buffers = new double[channelCount][bufferSize * MAX_FACTOR];
+        // single precision upsampling with factor 2 converts the input in the stage buffer.
+        stageBuffer = new double[bufferSize * 2];
+        floatBuffers = new float[channelCount][bufferSize * MAX_FACTOR];
+    }
+}
@@ -2,15 +2,23 @@ package com.scalesynth.dsp.processors;
 
 import com.scalesynth.base.KeyboardEvent;
 import com.scalesynth.base.KeyboardEventType;
+import com.scalesynth.base.ScratchArena;
 import com.scalesynth.base.processors.Processor;
 import com.scalesynth.dsp.generators.Envelope;
+import com.scalesynth.dsp.math.BufferOps;
 
 /**
  * A simple amplifier processor. It controls a volume of the output.
+ * <p>
+ * While the envelope is releasing, the output level is measured, and the amplifier becomes inactive
+ * as soon as it stays below the silence threshold (see {@link SilenceDetector}). So a released voice is freed
+ * once it is inaudible, not when the envelope reaches its own much lower threshold.
  */
 public class Amp implements Processor {
     private final Envelope ampEnvelope;
-    private final double[][] envelopeOutput = new double[1][8096]; // to not bother with buffer resizing.
+    private ScratchArena arena;
+    private int scratchSize = ScratchArena.DEFAULT_SIZE;
+    private final SilenceDetector silenceDetector = new SilenceDetector();
     private double amplitude;
     private double velocity = 1;
 
@@ -21,6 +29,10 @@ public class Amp implements Processor {
      */
     public Amp(Envelope ampEnvelope) {
         this.ampEnvelope = ampEnvelope;
+        // the amplifier works in its own arena until a shared one is lent
+        var arena = new ScratchArena();
+        arena.setSinglePrecision(true);
+        setScratchArena(arena);
     }
 
     /**
@@ -30,25 +42,64 @@ public class Amp implements Processor {
      *
      * @param amplitude amplitude coefficient.
      */
-    public synchronized void setAmplitude(double amplitude) {
+    public void setAmplitude(double amplitude) {
         this.amplitude = amplitude;
     }
 
+    /**
+     * Sets a level below which a released voice is considered silent.
+     *
+     * @param decibels a new threshold in dBFS (see {@link SilenceDetector#setThreshold(double)}).
+     */
+    public void setSilenceThreshold(double decibels) {
+        silenceDetector.setThreshold(decibels);
+    }
+
     /**
      * Transforms incoming audio.
      * Note that content of {@code inputs} will be overwritten.
      *
      * @param inputs buffers to place generated audio into.
+     * @param offset index of the first sample to transform in {@code inputs}.
      * @param n      how many samples to generate.
      */
     @Override
-    public synchronized void process(double[][] inputs, int n) {
+    public void process(double[][] inputs, int offset, int n) {
+        var envelopeOutput = arena.take();
         ampEnvelope.generate(envelopeOutput, n);
         var modulation = envelopeOutput[0];
 
+        var gain = velocity * amplitude;
         for (int ch = 0; ch < inputs.length; ++ch)
-            for (int i = 0; i < inputs[ch].length; ++i)
-                inputs[ch][i] = inputs[ch][i] * velocity * amplitude * modulation[i];
+            BufferOps.multiply(inputs[ch], offset, modulation, 0, n, gain);
+        arena.release();
+
+        // the attack and sustain stages are never cut, however quiet they are.
+        if (ampEnvelope.isReleasing())
+            silenceDetector.update(inputs, offset, n);
+    }
+
+    /**
+     * Transforms incoming audio in single precision.
+     * Note that content of {@code inputs} will be overwritten.
+     *
+     * @param inputs buffers to place generated audio into.
+     * @param offset index of the first sample to transform in {@code inputs}.
+     * @param n      how many samples to generate.
+     */
+    @Override
+    public void process(float[][] inputs, int offset, int n) {
+        var envelopeOutput = arena.takeFloat();
+        ampEnvelope.generate(envelopeOutput, 0, n);
+        var modulation = envelopeOutput[0];
+
+        var gain = (float) (velocity * amplitude);
+        for (int ch = 0; ch < inputs.length; ++ch)
+            BufferOps.multiply(inputs[ch], offset, modulation, 0, n, gain);
+        arena.releaseFloat();
+
+        if (ampEnvelope.isReleasing())
+            silenceDetector.update(inputs, offset, n);
     }
 
     /**
@@ -59,6 +110,30 @@ public class Amp implements Processor {
     @Override
     public void setSampleRate(double sampleRate) {
         ampEnvelope.setSampleRate(sampleRate);
+        silenceDetector.setSampleRate(sampleRate);
+    }
+
+    /**
+     * Sets a maximum number of samples that will be requested in one call.
+     * The arena is grown there if it is smaller.
+     *
+     * @param bufferSize new maximum buffer size.
+     */
+    @Override
+    public void setBufferSize(int bufferSize) {
+        scratchSize = bufferSize;
+        arena.require(1, bufferSize);
+    }
+
+    /**
+     * Lends an arena to keep the envelope output in while processing.
+     *
+     * @param arena arena to take temporary buffers from.
+     */
+    @Override
+    public void setScratchArena(ScratchArena arena) {
+        arena.require(1, scratchSize);
+        this.arena = arena;
     }
 
     /**
@@ -69,19 +144,22 @@ public class Amp implements Processor {
      */
     @Override
     public void handleKeyboardEvent(KeyboardEvent keyboardEvent) {
-        if (keyboardEvent.getType() == KeyboardEventType.NOTE_ON)
+        if (keyboardEvent.getType() == KeyboardEventType.NOTE_ON) {
             velocity = 0.2 + 0.8 * keyboardEvent.getValue() / 127;
+            silenceDetector.reset();
+        }
         ampEnvelope.handleKeyboardEvent(keyboardEvent);
     }
 
     /**
      * Returns true if component is active (does something useful).
-     * This is used mainly to shutdown inactive voices.
+     * This is used mainly to shutdown inactive voices: the amplifier is inactive when the envelope has finished,
+     * or when it is releasing and the output has become silent.
      *
      * @return true if component is active, otherwise false.
      */
     @Override
     public boolean isActive() {
-        return ampEnvelope.isActive();
+        return ampEnvelope.isActive() && !(ampEnvelope.isReleasing() && silenceDetector.isSilent());
     }
 }
@@ -0,0 +1,108 @@
+package com.scalesynth.dsp.processors;
+
+import com.scalesynth.dsp.math.BufferOps;
+
+/**
+ * Tracks the peak level of audio block by block and tells when it has stayed below a threshold for a while.
+ * <p>
+ * A single quiet block doesn't mean much: a block of a low note can fall around a zero crossing of the wave.
+ * So the level must stay below the threshold for {@link #HOLD_TIME}, which is longer than a period
+ * of the lowest audible frequency.
+ */
+public class SilenceDetector {
+    /**
+     * How long the level should stay below the threshold, in seconds.
+     */
+    public static final double HOLD_TIME = 0.05;
+    /**
+     * Threshold that disables the detector, in dBFS. It is the lowest value of the silence threshold parameter,
+     * far below the noise floor of 24-bit audio, so culling that late would save nothing anyway.
+     */
+    public static final double DISABLED = -144.0;
+
+    private double threshold;
+    private int holdSamples = (int) (HOLD_TIME * 44100);
+    private int quietSamples;
+
+    /**
+     * Sets a level that is considered silence.
+     * Values of {@link #DISABLED} and below disable the detector.
+     *
+     * @param decibels a new threshold in dBFS.
+     */
+    public void setThreshold(double decibels) {
+        threshold = decibels > DISABLED ? Math.pow(10, decibels / 20) : 0;
+    }
+
+    /**
+     * Sets a sample rate of the measured audio.
+     *
+     * @param sampleRate new sample rate.
+     */
+    public void setSampleRate(double sampleRate) {
+        holdSamples = Math.max(1, (int) (HOLD_TIME * sampleRate));
+    }
+
+    /**
+     * Measures the next block.
+     *
+     * @param buffers audio to measure (one buffer per channel).
+     * @param offset  index of the first sample in {@code buffers}.
+     * @param n       number of samples.
+     */
+    public void update(double[][] buffers, int offset, int n) {
+        if (threshold == 0)
+            return;
+
+        var peak = 0.0;
+        for (var buffer : buffers)
+            peak = Math.max(peak, BufferOps.peak(buffer, offset, n));
+        measure(peak, n);
+    }
+
+    /**
+     * Measures the next block of single precision audio.
+     *
+     * @param buffers audio to measure (one buffer per channel).
+     * @param offset  index of the first sample in {@code buffers}.
+     * @param n       number of samples.
+     */
+    public void update(float[][] buffers, int offset, int n) {
+        if (threshold == 0)
+            return;
+
+        var peak = 0.0f;
+        for (var buffer : buffers)
+            peak = Math.max(peak, BufferOps.peak(buffer, offset, n));
+        measure(peak, n);
+    }
+
+    /**
+     * Counts quiet samples.
+     *
+     * @param peak peak level of the block.
+     * @param n    number of samples in the block.
+     */
+    private void measure(double peak, int n) {
+        if (peak < threshold)
+            quietSamples = Math.min(quietSamples + n, holdSamples);
+        else
+            quietSamples = 0;
+    }
+
+    /**
+     * Forgets all measured blocks.
+     */
+    public void reset() {
+        quietSamples = 0;
+    }
+
+    /**
+     * Returns true if the level has stayed below the threshold for {@link #HOLD_TIME}.
+     *
+     * @return true if the audio is silent.
+     */
+    public boolean isSilent() {
+        return quietSamples >= holdSamples;
+    }
+}
@@ -1,22 +1,47 @@
 package com.scalesynth.dsp.processors;
 
 import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.base.ScratchArena;
 import com.scalesynth.base.processors.Processor;
 import com.scalesynth.dsp.generators.Envelope;
+import com.scalesynth.dsp.math.BufferOps;
+import com.scalesynth.dsp.math.Denormals;
+import com.scalesynth.dsp.math.FastMath;
 
 /**
  * Represents an SVF filter used in signal chain.
  * User controls cutoff frequency, Q factor, envelope modulation amount and keyboard tracking coefficient.
  */
 public class SvfFilter implements Processor {
+    /**
+     * Number of samples between two cutoff calculations, coefficients are interpolated in between.
+     */
+    static final int CONTROL_RATE = 16;
+
     private final SvfFilterMono[] filters = {new SvfFilterMono(), new SvfFilterMono()};
+    // per-sample coefficients of the current control period when cutoff is moving.
+    private final double[] a1Ramp = new double[CONTROL_RATE];
+    private final double[] a2Ramp = new double[CONTROL_RATE];
+    private final double[] a3Ramp = new double[CONTROL_RATE];
+    // one control period of single precision audio converted to double precision.
+    private final double[] periodBuffer = new double[CONTROL_RATE];
     private final Envelope filterEnvelope;
-    private final double[][] filterEnvelopeOutput = new double[1][8096]; // A bit of shot in my leg (because buffer size can change)
+    private ScratchArena arena;
+    private int scratchSize = ScratchArena.DEFAULT_SIZE;
     private double envelopeAmount;
     private double cutoff = 44100;
     private double keyboardTracking;
     private double oscFreq;
-    private double pitchBendCoef = 1;
+    private double pitchModulation = 1;
+    private double cutoffModulation = 1;
+    private double sampleRate = 44100;
+    private double k = 1;
+    private double targetCutoff = Double.NaN;
+    private double g = Double.NaN;
+    private double targetG;
+    private double a1;
+    private double a2;
+    private double a3;
 
     /**
      * Constructs a new SvfFilter based on Andrew Simpler implementation.
@@ -25,6 +50,10 @@ public class SvfFilter implements Processor {
      */
     public SvfFilter(Envelope filterEnvelope) {
         this.filterEnvelope = filterEnvelope;
+        // the filter works in its own arena until a shared one is lent
+        var arena = new ScratchArena();
+        arena.setSinglePrecision(true);
+        setScratchArena(arena);
     }
 
     /**
@@ -36,7 +65,7 @@ public class SvfFilter implements Processor {
      *
      * @param amount keyboard tracking amount.
      */
-    public synchronized void setEnvelopeAmount(double amount) {
+    public void setEnvelopeAmount(double amount) {
         this.envelopeAmount = amount;
     }
 
@@ -51,10 +80,28 @@ public class SvfFilter implements Processor {
      *
      * @param cutoff new filter cutoff.
      */
-    public synchronized void setCutoff(double cutoff) {
+    public void setCutoff(double cutoff) {
         this.cutoff = cutoff;
     }
 
+    /**
+     * Sets a frequency multiplier of the played note (pitch bend and vibrato), it affects keyboard tracking.
+     *
+     * @param pitchModulation frequency multiplier.
+     */
+    public void setPitchModulation(double pitchModulation) {
+        this.pitchModulation = pitchModulation;
+    }
+
+    /**
+     * Sets a cutoff multiplier applied on top of the envelope and keyboard tracking (e.g. by an LFO).
+     *
+     * @param cutoffModulation cutoff multiplier.
+     */
+    public void setCutoffModulation(double cutoffModulation) {
+        this.cutoffModulation = cutoffModulation;
+    }
+
     /**
      * Sets filter mode.
      * <p>
@@ -68,7 +115,7 @@ public class SvfFilter implements Processor {
      *
      * @param mode new filter mode.
      */
-    public synchronized void setMode(double mode) {
+    public void setMode(double mode) {
         for (SvfFilterMono filter : filters)
             filter.setMode(mode);
     }
@@ -80,9 +127,14 @@ public class SvfFilter implements Processor {
      *
      * @param Q Q factor value.
      */
-    public synchronized void setQ(double Q) {
+    public void setQ(double Q) {
+        if (1 / Q == k)
+            return;
+
+        k = 1 / Q;
         for (SvfFilterMono filter : filters)
-            filter.setQ(Q);
+            filter.setK(k);
+        calculateCoefficients();
     }
 
     /**
@@ -90,21 +142,155 @@ public class SvfFilter implements Processor {
      * Note that content of {@code inputs} will be overwritten.
      *
      * @param inputs buffers to place generated audio into.
+     * @param offset index of the first sample to transform in {@code inputs}.
      * @param n      how many samples to generate.
      */
     @Override
-    public synchronized void process(double[][] inputs, int n) {
-        filterEnvelope.generate(filterEnvelopeOutput, n);
-        var modulation = filterEnvelopeOutput[0];
-        for (int ch = 0; ch < inputs.length; ++ch) {
-            var filter = filters[ch];
-            for (int i = 0; i < n; ++i) {
-                var envelopeModulation = Math.pow(2, modulation[i] * envelopeAmount);
-                var kbModulation = (1 - keyboardTracking) + keyboardTracking / 440 * oscFreq * pitchBendCoef;
-                filter.setCutoff(cutoff * envelopeModulation * kbModulation);
-                inputs[ch][i] = filters[ch].processOne(inputs[ch][i]);
+    public void process(double[][] inputs, int offset, int n) {
+        var envelopeOutput = arena.take();
+        filterEnvelope.generate(envelopeOutput, n);
+        var modulation = envelopeOutput[0];
+        var baseCutoff = getBaseCutoff();
+
+        for (int start = 0; start < n; start += CONTROL_RATE) {
+            int length = Math.min(CONTROL_RATE, n - start);
+            if (updateCoefficients(baseCutoff, modulation[start + length - 1], length)) {
+                for (int ch = 0; ch < inputs.length; ++ch)
+                    filters[ch].process(inputs[ch], offset + start, length, a1Ramp, a2Ramp, a3Ramp);
+            } else {
+                for (int ch = 0; ch < inputs.length; ++ch)
+                    filters[ch].process(inputs[ch], offset + start, length, a1, a2, a3);
+            }
+        }
+        arena.release();
+
+        // checking once per block is enough: with audio range cutoffs state decays much slower than 1e-293 per block.
+        for (int ch = 0; ch < inputs.length; ++ch)
+            filters[ch].flushDenormals();
+    }
+
+    /**
+     * Transforms incoming audio in single precision.
+     * Note that content of {@code inputs} will be overwritten.
+     * <p>
+     * Coefficients and the filter state stay in double precision: the state of a low cutoff filter
+     * changes by less than the float resolution per sample. Every control period is converted to double
+     * precision at once, scalar conversions inside of the recursive loop would lengthen its critical path.
+     *
+     * @param inputs buffers to place generated audio into.
+     * @param offset index of the first sample to transform in {@code inputs}.
+     * @param n      how many samples to generate.
+     */
+    @Override
+    public void process(float[][] inputs, int offset, int n) {
+        var envelopeOutput = arena.takeFloat();
+        filterEnvelope.generate(envelopeOutput, 0, n);
+        var modulation = envelopeOutput[0];
+        var baseCutoff = getBaseCutoff();
+
+        for (int start = 0; start < n; start += CONTROL_RATE) {
+            int length = Math.min(CONTROL_RATE, n - start);
+            var ramp = updateCoefficients(baseCutoff, modulation[start + length - 1], length);
+            for (int ch = 0; ch < inputs.length; ++ch) {
+                BufferOps.toDouble(inputs[ch], offset + start, periodBuffer, 0, length);
+                if (ramp)
+                    filters[ch].process(periodBuffer, 0, length, a1Ramp, a2Ramp, a3Ramp);
+                else
+                    filters[ch].process(periodBuffer, 0, length, a1, a2, a3);
+                BufferOps.toFloat(periodBuffer, 0, inputs[ch], offset + start, length);
             }
         }
+        arena.releaseFloat();
+
+        for (int ch = 0; ch < inputs.length; ++ch)
+            filters[ch].flushDenormals();
+    }
+
+    /**
+     * Returns the cutoff modulated by keyboard tracking and cutoff modulation, but not by the envelope.
+     *
+     * @return cutoff frequency.
+     */
+    private double getBaseCutoff() {
+        var kbModulation = (1 - keyboardTracking) + keyboardTracking / 440 * oscFreq * pitchModulation;
+        return cutoff * kbModulation * cutoffModulation;
+    }
+
+    /**
+     * Updates coefficients for the next control period.
+     *
+     * @param baseCutoff cutoff without the envelope modulation.
+     * @param modulation envelope value at the end of the control period.
+     * @param length     number of samples in the control period.
+     * @return true if the cutoff is moving and per-sample coefficient ramps should be used.
+     */
+    private boolean updateCoefficients(double baseCutoff, double modulation, int length) {
+        var newCutoff = envelopeAmount == 0
+                ? baseCutoff
+                : baseCutoff * FastMath.exp2(modulation * envelopeAmount);
+        setTargetCutoff(newCutoff);
+
+        if (targetG == g)
+            return false;
+        rampCoefficients(length);
+        return true;
+    }
+
+    /**
+     * Sets the cutoff that should be reached by the end of current control period.
+     * Nothing is recalculated if it didn't change.
+     *
+     * @param newCutoff cutoff frequency.
+     */
+    private void setTargetCutoff(double newCutoff) {
+        if (newCutoff == targetCutoff)
+            return;
+
+        targetCutoff = newCutoff;
+        // Sanity checks.
+        if (newCutoff < 5)
+            newCutoff = 5;
+        else if (newCutoff >= sampleRate / 2)
+            newCutoff = sampleRate / 2 - 1;
+        targetG = FastMath.tanPi(newCutoff / sampleRate);
+
+        // no ramp after note on or parameter change, just jump to the new value
+        if (Double.isNaN(g)) {
+            g = targetG;
+            calculateCoefficients();
+        }
+    }
+
+    /**
+     * Fills coefficient ramps interpolating g linearly to the target value
+     * and makes coefficients of the target value current.
+     *
+     * @param length number of samples in the control period.
+     */
+    private void rampCoefficients(int length) {
+        var step = (targetG - g) / length;
+        for (int i = 0; i < length - 1; ++i) {
+            var currentG = g + step * (i + 1);
+            var currentA1 = 1 / (1 + currentG * (currentG + k));
+            a1Ramp[i] = currentA1;
+            a2Ramp[i] = currentG * currentA1;
+            a3Ramp[i] = currentG * currentG * currentA1;
+        }
+
+        g = targetG;
+        calculateCoefficients();
+        a1Ramp[length - 1] = a1;
+        a2Ramp[length - 1] = a2;
+        a3Ramp[length - 1] = a3;
+    }
+
+    /**
+     * Recalculates filter coefficients based on current g and Q factor.
+     */
+    private void calculateCoefficients() {
+        a1 = 1 / (1 + g * (g + k));
+        a2 = g * a1;
+        a3 = g * a2;
     }
 
     /**
@@ -115,8 +301,32 @@ public class SvfFilter implements Processor {
     @Override
     public void setSampleRate(double sampleRate) {
         filterEnvelope.setSampleRate(sampleRate);
-        for (SvfFilterMono filter : filters)
-            filter.setSampleRate(sampleRate);
+        this.sampleRate = sampleRate;
+        targetCutoff = Double.NaN;
+        g = Double.NaN;
+    }
+
+    /**
+     * Sets a maximum number of samples that will be requested in one call.
+     * The arena is grown there if it is smaller.
+     *
+     * @param bufferSize new maximum buffer size.
+     */
+    @Override
+    public void setBufferSize(int bufferSize) {
+        scratchSize = bufferSize;
+        arena.require(1, bufferSize);
+    }
+
+    /**
+     * Lends an arena to keep the envelope output in while processing.
+     *
+     * @param arena arena to take temporary buffers from.
+     */
+    @Override
+    public void setScratchArena(ScratchArena arena) {
+        arena.require(1, scratchSize);
+        this.arena = arena;
     }
 
     /**
@@ -131,9 +341,9 @@ public class SvfFilter implements Processor {
             case NOTE_ON:
                 filterEnvelope.handleKeyboardEvent(event);
                 this.oscFreq = event.getFreq();
+                g = Double.NaN;
+                targetCutoff = Double.NaN;
                 break;
-            case PITCH_BEND:
-                pitchBendCoef = event.getFreq();
         }
     }
 
@@ -142,17 +352,12 @@ public class SvfFilter implements Processor {
     }
 
     /**
-     * Decent quality svf filter implementation based on the Andrew Simper work (link in the documentation)
+     * Decent quality svf filter implementation based on the Andrew Simper work (link in the documentation).
+     * Coefficients are shared between channels, so they are passed to process methods.
      */
     static class SvfFilterMono {
         private double mode = 0;
-        private double sampleRate = 44100;
-        private double cutoff = 200;
-        private double Q = 1;
-        private double k;
-        private double a1;
-        private double a2;
-        private double a3;
+        private double k = 1;
         private double m0;
         private double m1;
         private double m2;
@@ -160,18 +365,63 @@ public class SvfFilter implements Processor {
         private double ic1eq;
 
         /**
-         * Process another sample of audio.
+         * Process a range of samples with constant coefficients.
+         *
+         * @param buffer audio to filter in place.
+         * @param offset index of the first sample.
+         * @param n      number of samples.
+         * @param a1     a1 coefficient.
+         * @param a2     a2 coefficient.
+         * @param a3     a3 coefficient.
+         */
+        void process(double[] buffer, int offset, int n, double a1, double a2, double a3) {
+            double ic1 = ic1eq;
+            double ic2 = ic2eq;
+            for (int i = offset; i < offset + n; ++i) {
+                double v0 = buffer[i];
+                double v3 = v0 - ic2;
+                double v1 = a1 * ic1 + a2 * v3;
+                double v2 = ic2 + a2 * ic1 + a3 * v3;
+                ic1 = 2 * v1 - ic1;
+                ic2 = 2 * v2 - ic2;
+                buffer[i] = m0 * v0 + m1 * v1 + m2 * v2;
+            }
+            ic1eq = ic1;
+            ic2eq = ic2;
+        }
+
+        /**
+         * Process a range of samples with per-sample coefficients.
          *
-         * @param v0 new sample.
-         * @return another sample of filtered audio.
+         * @param buffer audio to filter in place.
+         * @param offset index of the first sample.
+         * @param n      number of samples.
+         * @param a1     a1 coefficients, starting from index 0.
+         * @param a2     a2 coefficients, starting from index 0.
+         * @param a3     a3 coefficients, starting from index 0.
+         */
+        void process(double[] buffer, int offset, int n, double[] a1, double[] a2, double[] a3) {
+            double ic1 = ic1eq;
+            double ic2 = ic2eq;
+            for (int i = 0; i < n; ++i) {
+                double v0 = buffer[offset + i];
+                double v3 = v0 - ic2;
+                double v1 = a1[i] * ic1 + a2[i] * v3;
+                double v2 = ic2 + a2[i] * ic1 + a3[i] * v3;
+                ic1 = 2 * v1 - ic1;
+                ic2 = 2 * v2 - ic2;
+                buffer[offset + i] = m0 * v0 + m1 * v1 + m2 * v2;
+            }
+            ic1eq = ic1;
+            ic2eq = ic2;
+        }
+
+        /**
+         * Snaps the filter state to zero when it decays into silence.
          */
-        double processOne(double v0) {
-            double v3 = v0 - ic2eq;
-            double v1 = a1 * ic1eq + a2 * v3;
-            double v2 = ic2eq + a2 * ic1eq + a3 * v3;
-            ic1eq = 2 * v1 - ic1eq;
-            ic2eq = 2 * v2 - ic2eq;
-            return m0 * v0 + m1 * v1 + m2 * v2;
+        void flushDenormals() {
+            ic1eq = Denormals.flush(ic1eq);
+            ic2eq = Denormals.flush(ic2eq);
         }
 
         /**
@@ -184,6 +434,16 @@ public class SvfFilter implements Processor {
             calculateOutputs();
         }
 
+        /**
+         * Sets damping (1 / Q), it is used in output mix.
+         *
+         * @param k new damping value.
+         */
+        void setK(double k) {
+            this.k = k;
+            calculateOutputs();
+        }
+
         /**
          * Helper function to recalculate filter outputs based on current mode value.
          */
@@ -208,52 +468,5 @@ public class SvfFilter implements Processor {
                 m2 = right;
             }
         }
-
-        /**
-         * Recalculates filter coefficients based on current cutoff, sampleRate and Q factor
-         */
-        void calculateCoefficients() {
-            double g = Math.tan(Math.PI * cutoff / sampleRate);
-            k = 1 / Q;
-            a1 = 1 / (1 + g * (g + k));
-            a2 = g * a1;
-            a3 = g * a2;
-        }
-
-        /**
-         * Sets new sample rate and recalculates coefficients.
-         *
-         * @param sampleRate new filter sample rate.
-         */
-        void setSampleRate(double sampleRate) {
-            this.sampleRate = sampleRate;
-            calculateCoefficients();
-        }
-
-        /**
-         * Sets new Q factor value.
-         *
-         * @param Q Q factor value.
-         */
-        void setQ(double Q) {
-            this.Q = Q;
-            calculateCoefficients();
-        }
-
-        /**
-         * Sets new filter cutoff.
-         *
-         * @param cutoff new filter cutoff.
-         */
-        void setCutoff(double cutoff) {
-            // Sanity checks.
-            if (cutoff < 5)
-                cutoff = 5;
-            else if (cutoff >= sampleRate / 2)
-                cutoff = sampleRate / 2 - 1;
-
-            this.cutoff = cutoff;
-            calculateCoefficients();
-        }
     }
 }
@@ -1,4 +1,4 @@
-package com.scalesynth.gui.services;
+package com.scalesynth.services;
 
 import com.scalesynth.scl.ScaleParser;
 
@@ -1,4 +1,4 @@
-package com.scalesynth.gui.services;
+package com.scalesynth.services;
 
 import com.scalesynth.ScaleSynthParameters;
 import com.scalesynth.base.parameters.Parameter;
@@ -7,7 +7,6 @@ import java.beans.XMLDecoder;
 import java.beans.XMLEncoder;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.ParameterizedType;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -51,6 +50,7 @@ public class SynthSerializationService {
 
     /**
      * Updates parameters with values from state.
+     * Parameters missing from the state are reset to their defaults.
      *
      * @param parameters parameters to be updated.
      * @param state      new values.
@@ -63,17 +63,9 @@ public class SynthSerializationService {
             if (Parameter.class.isAssignableFrom(field.getType())) {
                 var parameter = field.get(parameters);
                 var value = state.get(field.getName());
-                if (value == null) {
-                    var valueType = field.getGenericType();
-                    if (valueType instanceof ParameterizedType) {
-                        var actualType = ((ParameterizedType) valueType).getActualTypeArguments()[0];
-                        if (actualType instanceof Class) {
-                            var actualClass = ((Class<?>) actualType);
-                            var stringConstructor = actualClass.getConstructor(String.class);
-                            value = stringConstructor.newInstance("0");
-                        }
-                    }
-                }
+                // parameters added after the preset was saved get their default values
+                if (value == null)
+                    value = ((Parameter<?>) parameter).getDefault();
                 var method = field.getType().getMethod("setValue", Object.class);
                 method.invoke(parameter, value);
             }
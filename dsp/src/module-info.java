@@ -1,8 +1,17 @@
 module scalesynth.dsp {
+    requires java.desktop;
+    requires scalesynth.scl;
+
     exports com.scalesynth;
+    exports com.scalesynth.audio;
     exports com.scalesynth.base;
     exports com.scalesynth.base.parameters;
+    exports com.scalesynth.dsp.math;
+    exports com.scalesynth.services;
 
-    // for serialization
-    opens com.scalesynth to scalesynth.gui;
-}
\ No newline at end of file
+    uses com.scalesynth.audio.AudioBackend;
+    provides com.scalesynth.audio.AudioBackend with
+            com.scalesynth.audio.JavaSoundBackend,
+            com.scalesynth.audio.WavFileBackend,
+            com.scalesynth.audio.NullBackend;
+}
@@ -0,0 +1,162 @@
+package com.scalesynth;
+
+import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.base.KeyboardEventType;
+import com.scalesynth.base.generators.PolyGenerator;
+import com.scalesynth.dsp.modulation.ModulationBus;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that rendering doesn't allocate anything once it is warmed up, so the audio thread never triggers GC.
+ * Allocations are counted with {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}.
+ */
+class AllocationTest {
+    private static final int BUFFER_SIZE = 256;
+    private static final int MEASURED_BLOCKS = 20_000;
+    private static final int SNAPSHOT_BLOCKS = 100;
+    // warm-up runs let the JIT compile the render path and the block loop of the test itself: the loop is shared
+    // by both precisions, it is recompiled once more after the other branch is first taken, and the JVM allocates
+    // a few bytes when it does.
+    private static final int WARMUP_RUNS = 3;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void polyGeneratorDoesNotAllocate() {
+        var snapshot = new ScaleSynthSnapshot(new ScaleSynthParameters(), 0);
+        assertEquals(0, polyGeneratorAllocations(new ScaleSynthSnapshot[]{snapshot}, false),
+                "bytes allocated by PolyGenerator.generate");
+    }
+
+    /**
+     * Voices are rendered in single precision, oscillators and filter are oversampled.
+     */
+    @Test
+    void singlePrecisionDoesNotAllocate() {
+        var parameters = new ScaleSynthParameters();
+        parameters.oversampling.setValue(1);
+        parameters.oscillatorEngine.setValue(1);
+        var snapshot = new ScaleSynthSnapshot(parameters, 0);
+        assertEquals(0, polyGeneratorAllocations(new ScaleSynthSnapshot[]{snapshot}, true),
+                "bytes allocated by PolyGenerator.generate in single precision");
+    }
+
+    /**
+     * Oversampling is switched between all factors while voices are sounding.
+     */
+    @Test
+    void oversamplingChangesDoNotAllocate() {
+        var snapshots = new ScaleSynthSnapshot[3];
+        for (int oversampling = 0; oversampling < snapshots.length; ++oversampling) {
+            var parameters = new ScaleSynthParameters();
+            parameters.oversampling.setValue(oversampling);
+            snapshots[oversampling] = new ScaleSynthSnapshot(parameters, oversampling);
+        }
+        assertEquals(0, polyGeneratorAllocations(snapshots, false),
+                "bytes allocated by PolyGenerator.generate while oversampling is changed");
+    }
+
+    /**
+     * Events come both through the shared queue and a source ring, they are dispatched
+     * in the middle of blocks and include modulation events.
+     */
+    @Test
+    void eventIngestionDoesNotAllocate() {
+        var synth = new ScaleSynth();
+        synth.setSampleRate(44100);
+        synth.setBufferSize(BUFFER_SIZE);
+        var source = synth.createEventSource();
+        var outputs = new float[2][BUFFER_SIZE];
+        var position = new long[1];
+
+        Runnable blocks = () -> {
+            for (int b = 0; b < MEASURED_BLOCKS; ++b) {
+                long pos = position[0];
+                for (int i = 0; i < 32; ++i)
+                    source.add(KeyboardEvent.encode(KeyboardEventType.CONTROL_CHANGE, 1, i * 4), -1, pos + i * 8);
+                synth.scheduleEvent(KeyboardEvent.encode(KeyboardEventType.PITCH_BEND, -1, -1),
+                        KeyboardEvent.bendRatio(b & 127, 70), pos);
+                int note = 40 + b % 40;
+                synth.scheduleEvent(KeyboardEvent.encode(KeyboardEventType.NOTE_ON, note, 100),
+                        440 * Math.pow(2, (note - 69) / 12.0), pos + 3);
+                synth.scheduleEvent(KeyboardEvent.encode(KeyboardEventType.NOTE_OFF, note - 7, -1), -1, pos + 100);
+                synth.generate(outputs, BUFFER_SIZE);
+                position[0] = pos + BUFFER_SIZE;
+            }
+        };
+        for (int i = 0; i < WARMUP_RUNS; ++i)
+            blocks.run();
+
+        assertEquals(0, allocatedBytes(blocks), "bytes allocated by event ingestion and rendering");
+        synth.stop();
+    }
+
+    /**
+     * Renders voices that are started and released every block, so voices are allocated, stolen and freed all the time.
+     * Snapshots are applied to all voices in turn, each one for {@link #SNAPSHOT_BLOCKS} blocks.
+     *
+     * @param snapshots       parameters of the voices, generations of the snapshots should differ.
+     * @param singlePrecision true to render voices in single precision.
+     * @return number of bytes allocated by the measured blocks, after warm-up.
+     */
+    private static long polyGeneratorAllocations(ScaleSynthSnapshot[] snapshots, boolean singlePrecision) {
+        var modulation = new ModulationBus();
+        var voices = new ArrayList<ScaleSynthVoice>();
+        var generator = new PolyGenerator(8, () -> {
+            var voice = new ScaleSynthVoice(modulation);
+            voice.apply(snapshots[0]);
+            voices.add(voice);
+            return voice;
+        });
+        generator.setSampleRate(44100);
+        generator.setBufferSize(BUFFER_SIZE);
+        generator.setSinglePrecision(singlePrecision);
+        var outputs = new double[2][BUFFER_SIZE];
+        var floatOutputs = new float[2][BUFFER_SIZE];
+
+        var noteOns = new KeyboardEvent[128];
+        var noteOffs = new KeyboardEvent[128];
+        for (int note = 0; note < 128; ++note) {
+            noteOns[note] = KeyboardEvent.noteOn(note, 440 * Math.pow(2, (note - 69) / 12.0), 100);
+            noteOffs[note] = KeyboardEvent.noteOff(note);
+        }
+
+        Runnable blocks = () -> {
+            for (int b = 0; b < MEASURED_BLOCKS; ++b) {
+                var snapshot = snapshots[b / SNAPSHOT_BLOCKS % snapshots.length];
+                for (int i = 0; i < voices.size(); ++i)
+                    voices.get(i).apply(snapshot);
+                int note = 40 + b % 40;
+                generator.handleKeyboardEvent(noteOns[note]);
+                generator.handleKeyboardEvent(noteOffs[note - 3]);
+                if (singlePrecision)
+                    generator.generate(floatOutputs, 0, BUFFER_SIZE);
+                else
+                    generator.generate(outputs, 0, BUFFER_SIZE);
+            }
+        };
+        for (int i = 0; i < WARMUP_RUNS; ++i)
+            blocks.run();
+
+        return allocatedBytes(blocks);
+    }
+
+    /**
+     * Runs the work and returns how many bytes the current thread allocated meanwhile.
+     *
+     * @param work work to measure.
+     * @return number of allocated bytes.
+     */
+    private static long allocatedBytes(Runnable work) {
+        long threadId = Thread.currentThread().getId();
+        long before = THREADS.getThreadAllocatedBytes(threadId);
+        work.run();
+        return THREADS.getThreadAllocatedBytes(threadId) - before;
+    }
+}
@@ -0,0 +1,99 @@
+package com.scalesynth;
+
+import com.scalesynth.base.KeyboardEvent;
+import com.scalesynth.base.KeyboardEventType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that voices rendered in single precision sound the same as voices rendered in double precision:
+ * the difference should be at the level of float rounding, far below anything audible.
+ */
+class SinglePrecisionTest {
+    private static final int BUFFER_SIZE = 256;
+    private static final int BLOCKS = 400;
+    private static final double MAX_ERROR = 1e-5;
+
+    @Test
+    void blepEngineMatchesDoublePrecision() {
+        assertClose(0, 0, false, 4);
+    }
+
+    @Test
+    void blepEngineWithSyncAndOversamplingMatchesDoublePrecision() {
+        assertClose(0, 2, true, 2);
+    }
+
+    @Test
+    void wavetableEngineMatchesDoublePrecision() {
+        assertClose(1, 0, false, 8);
+    }
+
+    @Test
+    void wavetableEngineWithOversamplingMatchesDoublePrecision() {
+        assertClose(1, 1, false, 2);
+    }
+
+    private static void assertClose(int engine, int oversampling, boolean sync, int unison) {
+        var expected = render(false, engine, oversampling, sync, unison);
+        var actual = render(true, engine, oversampling, sync, unison);
+
+        var error = 0.0;
+        int position = 0;
+        for (int ch = 0; ch < 2; ++ch) {
+            for (int i = 0; i < expected[ch].length; ++i) {
+                var difference = Math.abs(expected[ch][i] - actual[ch][i]);
+                if (difference > error) {
+                    error = difference;
+                    position = i;
+                }
+            }
+        }
+        assertTrue(error < MAX_ERROR, String.format("difference %.3g at sample %d exceeds %.0g", error, position, MAX_ERROR));
+    }
+
+    /**
+     * Renders overlapping notes that are released while others are still held, with a bit of noise.
+     * Both oscillators are audible and the master one is a saw-pulse mix, so all waveforms are covered.
+     *
+     * @param singlePrecision true to render voices in single precision.
+     * @param engine          index of the oscillator engine.
+     * @param oversampling    oversampling parameter (in octaves).
+     * @param sync            true to enable hard sync.
+     * @param unison          number of unison voices.
+     * @return rendered audio, one buffer per channel.
+     */
+    private static float[][] render(boolean singlePrecision, int engine, int oversampling, boolean sync, int unison) {
+        var synth = new ScaleSynth();
+        var parameters = synth.getParameters();
+        parameters.oscillatorEngine.setValue(engine);
+        parameters.oversampling.setValue(oversampling);
+        parameters.syncEnabled.setValue(sync);
+        parameters.unisonVoices.setValue(unison);
+        parameters.noiseAmplitude.setValue(0.05);
+        parameters.masterMix.setValue(0.5);
+        parameters.slaveAmplitude.setValue(0.5);
+        synth.setSampleRate(44100);
+        synth.setBufferSize(BUFFER_SIZE);
+        synth.setSinglePrecision(singlePrecision);
+        synth.setSeed(1);
+
+        for (int i = 0; i < 16; ++i) {
+            int note = 40 + 3 * i;
+            synth.scheduleEvent(KeyboardEvent.encode(KeyboardEventType.NOTE_ON, note, 100),
+                    440 * Math.pow(2, (note - 69) / 12.0), i * 4000);
+            synth.scheduleEvent(KeyboardEvent.encode(KeyboardEventType.NOTE_OFF, note, -1), -1, i * 4000 + 20000);
+        }
+
+        var outputs = new float[2][BLOCKS * BUFFER_SIZE];
+        var buffer = new float[2][BUFFER_SIZE];
+        for (int b = 0; b < BLOCKS; ++b) {
+            if (synth.generate(buffer, BUFFER_SIZE))
+                for (int ch = 0; ch < 2; ++ch)
+                    System.arraycopy(buffer[ch], 0, outputs[ch], b * BUFFER_SIZE, BUFFER_SIZE);
+        }
+        synth.stop();
+        return outputs;
+    }
+}
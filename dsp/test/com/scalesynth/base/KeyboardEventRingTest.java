@@ -0,0 +1,99 @@
+package com.scalesynth.base;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stress test of passing keyboard events from several threads to the audio thread.
+ * <p>
+ * Some producers add events to their own {@link KeyboardEventRing}, others share the queue's own ring,
+ * all of them as fast as they can. A render thread drains the queue like {@link com.scalesynth.ScaleSynth} does
+ * at the start of every block. Every event must be delivered exactly once, in the order its producer added it.
+ * Rejected events (the ring was full) are retried by the producer.
+ */
+class KeyboardEventRingTest {
+    private static final int RING_PRODUCERS = 4;
+    private static final int SHARED_PRODUCERS = 2;
+    private static final int EVENTS_PER_PRODUCER = 500_000;
+    private static final long TIMEOUT_SECONDS = 60;
+
+    @Test
+    void everyEventIsDeliveredOnceAndInOrder() throws InterruptedException {
+        var queue = new KeyboardEventQueue();
+        int producerCount = RING_PRODUCERS + SHARED_PRODUCERS;
+        var producers = new Thread[producerCount];
+        for (int p = 0; p < producerCount; ++p) {
+            int source = p;
+            if (p < RING_PRODUCERS) {
+                var ring = queue.createSource();
+                producers[p] = new Thread(() -> produce(source, (code, freq) -> ring.add(code, freq, KeyboardEventQueue.IMMEDIATELY)));
+            } else {
+                producers[p] = new Thread(() -> produce(source, (code, freq) -> queue.add(code, freq, KeyboardEventQueue.IMMEDIATELY)));
+            }
+            producers[p].setDaemon(true);
+        }
+
+        var next = new long[producerCount];
+        var failure = new AtomicReference<String>();
+        var render = new Thread(() -> {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            long delivered = 0;
+            while (delivered < (long) producerCount * EVENTS_PER_PRODUCER && System.nanoTime() < deadline) {
+                queue.drain();
+                for (var event = queue.poll(); event != null; event = queue.poll()) {
+                    int source = event.getNote();
+                    if (source < 0 || source >= producerCount || (long) event.getFreq() != next[source]) {
+                        failure.compareAndSet(null, String.format("source %d: got event %d, expected %d",
+                                source, (long) event.getFreq(), source >= 0 && source < producerCount ? next[source] : -1));
+                        return;
+                    }
+                    ++next[source];
+                    ++delivered;
+                }
+            }
+        }, "render");
+        render.setDaemon(true);
+
+        render.start();
+        for (var producer : producers)
+            producer.start();
+        render.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS + 5));
+
+        assertEquals(null, failure.get(), "order violation");
+        for (int p = 0; p < producerCount; ++p)
+            assertEquals(EVENTS_PER_PRODUCER, next[p], "events delivered from source " + p);
+
+        // nothing may be delivered twice or appear after all events were taken.
+        for (var producer : producers)
+            producer.join();
+        queue.drain();
+        assertTrue(queue.poll() == null, "extra events after all were delivered");
+    }
+
+    /**
+     * Adds events numbered 0, 1, 2... until all of them are accepted.
+     *
+     * @param source index of the producer, it is sent as the note of the events.
+     * @param sink   adds an event, returns false if it was rejected.
+     */
+    private static void produce(int source, EventSink sink) {
+        for (int i = 0; i < EVENTS_PER_PRODUCER; ) {
+            if (sink.add(KeyboardEvent.encode(KeyboardEventType.CONTROL_CHANGE, source, i & 0x7fff), i))
+                ++i;
+            else
+                Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Something events can be added to.
+     */
+    private interface EventSink {
+        boolean add(long code, double freq);
+    }
+}
@@ -0,0 +1,69 @@
+package com.scalesynth.base;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that components processed one after another share buffers of the arena,
+ * and that a lent arena is not reallocated once it is large enough.
+ */
+class ScratchArenaTest {
+    @Test
+    void releasedBufferIsTakenAgain() {
+        var arena = new ScratchArena();
+        arena.require(2, 256);
+
+        var first = arena.take();
+        var nested = arena.take();
+        assertNotSame(first, nested, "buffers taken at once");
+        arena.release();
+        arena.release();
+
+        assertSame(first, arena.take(), "buffer taken after release");
+        assertEquals(1, first.length);
+        assertEquals(256, first[0].length);
+    }
+
+    @Test
+    void fittingRequirementDoesNotReallocate() {
+        var arena = new ScratchArena();
+        arena.require(1, 1024);
+        var buffer = arena.take();
+        arena.release();
+
+        arena.require(1, 256);
+        arena.require(0, 1024);
+        assertSame(buffer, arena.take(), "buffer after smaller requirements");
+        arena.release();
+        assertEquals(1024, arena.size());
+
+        arena.require(1, 2048);
+        assertEquals(2048, arena.take()[0].length);
+    }
+
+    @Test
+    void singlePrecisionBuffersAreAllocatedOnlyWhenEnabled() {
+        var arena = new ScratchArena();
+        arena.require(1, 256);
+        assertThrows(IllegalStateException.class, arena::takeFloat);
+
+        arena.setSinglePrecision(true);
+        assertEquals(256, arena.takeFloat()[0].length);
+        arena.releaseFloat();
+
+        arena.setSinglePrecision(false);
+        assertThrows(IllegalStateException.class, arena::takeFloat);
+    }
+
+    @Test
+    void takingTooManyBuffersFails() {
+        var arena = new ScratchArena();
+        arena.require(1, 256);
+        arena.take();
+        assertThrows(IllegalStateException.class, arena::take);
+    }
+}
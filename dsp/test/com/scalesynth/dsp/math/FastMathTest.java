@@ -0,0 +1,153 @@
+package com.scalesynth.dsp.math;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the documented error bounds of {@link FastMath} against {@link StrictMath}
+ * with dense sweeps over the documented domain of every function.
+ */
+class FastMathTest {
+    private static final double LN2 = 0.6931471805599453;
+    private static final int STEPS = 2_000_000;
+
+    @Test
+    void exp2RelativeError() {
+        // every table entry is hit many times within one octave, the whole normal range is swept coarser.
+        var error = new MaxError();
+        for (int i = 0; i <= STEPS; ++i) {
+            var x = -1.0 + 2.0 * i / STEPS;
+            error.relative(x, FastMath.exp2(x), StrictMath.pow(2, x));
+        }
+        for (int i = 0; i <= STEPS; ++i) {
+            var x = -1022.0 + 2045.99 * i / STEPS;
+            error.relative(x, FastMath.exp2(x), StrictMath.pow(2, x));
+        }
+        error.assertBelow(1e-14, "exp2");
+    }
+
+    @Test
+    void exp2SpecialValues() {
+        assertEquals(0.0, FastMath.exp2(-1023), "below the normal range");
+        assertEquals(0.0, FastMath.exp2(Double.NEGATIVE_INFINITY), "negative infinity");
+        assertEquals(Double.POSITIVE_INFINITY, FastMath.exp2(1024), "overflow");
+        assertTrue(Double.isNaN(FastMath.exp2(Double.NaN)), "NaN");
+        for (int i = -1022; i < 1024; ++i)
+            assertEquals(StrictMath.pow(2, i), FastMath.exp2(i), "exact power of two");
+    }
+
+    @Test
+    void log2AbsoluteError() {
+        // the reference is split into the exact exponent and the logarithm of the mantissa,
+        // otherwise its own rounding near log2(x) = 1000 would be close to the tested bound.
+        var error = new MaxError();
+        for (int i = 0; i <= STEPS; ++i) {
+            var mantissa = 1.0 + (double) i / STEPS;
+            for (int exponent : new int[]{-1022, -100, -1, 0, 1, 100, 1023}) {
+                var x = Math.scalb(mantissa, exponent);
+                if (x > Double.MAX_VALUE)
+                    continue;
+                var reference = Math.getExponent(x) + StrictMath.log(x / Math.scalb(1.0, Math.getExponent(x))) / LN2;
+                error.absolute(x, FastMath.log2(x), reference);
+            }
+        }
+        error.assertBelow(2e-13, "log2");
+    }
+
+    @Test
+    void log2SpecialValues() {
+        assertEquals(Double.NEGATIVE_INFINITY, FastMath.log2(0), "zero");
+        assertTrue(Double.isNaN(FastMath.log2(-1)), "negative");
+        assertTrue(Double.isNaN(FastMath.log2(Double.NaN)), "NaN");
+        assertEquals(Double.POSITIVE_INFINITY, FastMath.log2(Double.POSITIVE_INFINITY), "infinity");
+        for (int i = -1022; i < 1024; ++i)
+            assertEquals(i, FastMath.log2(Math.scalb(1.0, i)), "exact power of two");
+    }
+
+    @Test
+    void tanPiRelativeError() {
+        // the reference uses the same exact reduction as the function (cotangent beyond a quarter turn),
+        // so rounding of pi * x near the poles doesn't count.
+        var error = new MaxError();
+        for (int period = -2; period <= 2; ++period) {
+            for (int i = 0; i <= STEPS; ++i) {
+                var fraction = -0.49 + 0.98 * i / STEPS;
+                var x = period + fraction;
+                error.relative(x, FastMath.tanPi(x), referenceTanPi(x - Math.rint(x)));
+            }
+        }
+        error.assertBelow(1e-14, "tanPi");
+    }
+
+    @Test
+    void tanPiSpecialValues() {
+        assertEquals(0.0, FastMath.tanPi(0), "zero");
+        assertEquals(0.0, Math.abs(FastMath.tanPi(3)), "integer");
+        assertEquals(1.0, FastMath.tanPi(0.25), 1e-15, "quarter turn");
+        assertTrue(Double.isInfinite(FastMath.tanPi(0.5)), "pole");
+    }
+
+    @Test
+    void semitonesToRatioRelativeError() {
+        // +-20 octaves covers every interval the synthesizer uses.
+        var error = new MaxError();
+        for (int i = 0; i <= STEPS; ++i) {
+            var semitones = -240.0 + 480.0 * i / STEPS;
+            error.relative(semitones, FastMath.semitonesToRatio(semitones), StrictMath.pow(2, semitones / 12));
+        }
+        error.assertBelow(1e-14, "semitonesToRatio");
+    }
+
+    @Test
+    void centsToRatioRelativeError() {
+        var error = new MaxError();
+        for (int i = 0; i <= STEPS; ++i) {
+            var cents = -24000.0 + 48000.0 * i / STEPS;
+            error.relative(cents, FastMath.centsToRatio(cents), StrictMath.pow(2, cents / 1200));
+        }
+        error.assertBelow(1e-14, "centsToRatio");
+    }
+
+    /**
+     * Computes tan(pi * x) for x in [-0.5, 0.5] with {@link StrictMath}.
+     *
+     * @param x argument, in half turns.
+     * @return tangent of {@code pi * x}.
+     */
+    private static double referenceTanPi(double x) {
+        var reduced = Math.abs(x);
+        var result = reduced > 0.25
+                ? 1 / StrictMath.tan(Math.PI * (0.5 - reduced))
+                : StrictMath.tan(Math.PI * reduced);
+        return Math.copySign(result, x);
+    }
+
+    /**
+     * Tracks the largest error of a sweep and the argument it happened at.
+     */
+    private static class MaxError {
+        private double error;
+        private double argument;
+
+        void relative(double x, double actual, double expected) {
+            update(x, Math.abs(actual - expected) / Math.abs(expected));
+        }
+
+        void absolute(double x, double actual, double expected) {
+            update(x, Math.abs(actual - expected));
+        }
+
+        private void update(double x, double value) {
+            if (!(value <= error)) {
+                error = value;
+                argument = x;
+            }
+        }
+
+        void assertBelow(double bound, String function) {
+            assertTrue(error < bound, String.format("%s: error %.3g at %s exceeds %.0g", function, error, argument, bound));
+        }
+    }
+}
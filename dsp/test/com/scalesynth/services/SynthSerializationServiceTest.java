@@ -0,0 +1,53 @@
+package com.scalesynth.services;
+
+import com.scalesynth.ScaleSynthParameters;
+import org.junit.jupiter.api.Test;
+
+import java.beans.XMLEncoder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks loading of presets, including ones saved before some parameters existed.
+ */
+class SynthSerializationServiceTest {
+
+    @Test
+    void savedValuesAreRestored() throws ReflectiveOperationException {
+        var saved = new ScaleSynthParameters();
+        saved.filterCutoff.setValue(1000.0);
+        saved.vibratoRate.setValue(7.0);
+        saved.syncEnabled.setValue(false);
+        var stream = new ByteArrayOutputStream();
+        new SynthSerializationService(saved).save(stream);
+
+        var loaded = new ScaleSynthParameters();
+        new SynthSerializationService(loaded).open(new ByteArrayInputStream(stream.toByteArray()));
+        assertEquals(1000.0, loaded.filterCutoff.getValue());
+        assertEquals(7.0, loaded.vibratoRate.getValue());
+        assertEquals(false, loaded.syncEnabled.getValue());
+    }
+
+    @Test
+    void missingParametersGetDefaults() throws ReflectiveOperationException {
+        // a preset that only knows the cutoff, like one saved before the LFOs were added
+        var state = new HashMap<String, Object>();
+        state.put("filterCutoff", 1000.0);
+        var stream = new ByteArrayOutputStream();
+        var encoder = new XMLEncoder(stream);
+        encoder.writeObject(state);
+        encoder.close();
+
+        var loaded = new ScaleSynthParameters();
+        loaded.vibratoRate.setValue(7.0);
+        new SynthSerializationService(loaded).open(new ByteArrayInputStream(stream.toByteArray()));
+        assertEquals(1000.0, loaded.filterCutoff.getValue());
+        assertEquals(loaded.vibratoRate.getDefault(), loaded.vibratoRate.getValue());
+        assertEquals(loaded.filterLfoRate.getDefault(), loaded.filterLfoRate.getValue());
+        assertEquals(loaded.silenceThreshold.getDefault(), loaded.silenceThreshold.getValue());
+        assertEquals(loaded.syncEnabled.getDefault(), loaded.syncEnabled.getValue());
+    }
+}
@@ -5,10 +5,10 @@ import com.scalesynth.gui.models.KeyEventFilter;
 import com.scalesynth.gui.models.SynthAsioAdapter;
 import com.scalesynth.gui.models.SynthMidiAdapter;
 import com.scalesynth.gui.services.MidiService;
-import com.scalesynth.gui.services.ScaleService;
-import com.scalesynth.gui.services.SynthSerializationService;
 import com.scalesynth.gui.views.*;
 import com.scalesynth.gui.views.*;
+import com.scalesynth.services.ScaleService;
+import com.scalesynth.services.SynthSerializationService;
 import javafx.application.Application;
 import javafx.geometry.Pos;
 import javafx.scene.Parent;
@@ -25,6 +25,8 @@ public class Main extends Application {
     private final ScaleSynth synth = new ScaleSynth();
     private final ScaleService scaleService = new ScaleService();
     private final SynthMidiAdapter midiAdapter = new SynthMidiAdapter(synth, scaleService);
+    // computer and on-screen keyboards send events from the JavaFX thread, so they have their own adapter.
+    private final SynthMidiAdapter keyboardAdapter = new SynthMidiAdapter(synth, scaleService);
     private final SynthAsioAdapter asioAdapter = new SynthAsioAdapter(synth);
     private final SynthSerializationService serializationService = new SynthSerializationService(synth.getParameters());
     private final MidiService midiService = new MidiService();
@@ -55,7 +57,7 @@ public class Main extends Application {
     private Parent createUI() {
         var pane = new BorderPane();
 
-        pane.addEventFilter(KeyEvent.ANY, new KeyEventFilter(midiAdapter));
+        pane.addEventFilter(KeyEvent.ANY, new KeyEventFilter(keyboardAdapter));
 
         var settings = new HBox(15,
                 new SynthSerializationView(serializationService),
@@ -70,7 +72,7 @@ public class Main extends Application {
         pane.setCenter(editor);
         BorderPane.setAlignment(editor, Pos.TOP_CENTER);
 
-        var keyboard = new KeyboardView(midiAdapter);
+        var keyboard = new KeyboardView(keyboardAdapter);
         pane.setBottom(keyboard);
         BorderPane.setAlignment(keyboard, Pos.BOTTOM_CENTER);
 
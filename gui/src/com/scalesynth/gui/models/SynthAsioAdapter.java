@@ -1,30 +1,119 @@
 package com.scalesynth.gui.models;
 
-import com.scalesynth.ScaleSynth;
+import com.scalesynth.audio.*;
 import com.synthbot.jasiohost.*;
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Enables audio output support using ASIO.
+ * <p>
+ * By default audio is rendered right in the driver callback. In render-ahead mode (see {@link #setRenderAhead})
+ * it is rendered by a separate thread a few blocks in advance, and the callback only copies it out.
+ * <p>
+ * It is available as the "asio" {@link AudioBackend} on Windows. Sample rate and buffer size
+ * of the driver are used instead of the requested ones, the device name is the name of the driver.
  */
-public class SynthAsioAdapter implements AsioDriverListener {
-    private final ScaleSynth synth;
+public class SynthAsioAdapter implements AsioDriverListener, AudioBackend {
+    /**
+     * ASIO drivers alternate between two buffers per channel.
+     */
+    private static final int DRIVER_BUFFERS = 2;
+
+    private AudioSource source;
     private AsioDriver driver;
     private AsioChannel leftOutput;
     private AsioChannel rightOutput;
     private int bufferSize;
     private float[][] outputs;
-    private double[][] doubleOutputs;
+    private float[] silence;
+    // number of silent buffers written in a row, capped at the number of driver buffer halves.
+    private int silentBuffers;
+    private int renderAheadBlocks;
+    private WaitStrategy waitStrategy = WaitStrategy.YIELD;
+    private volatile RenderAheadBuffer renderAhead;
+    private volatile long renderedSamples;
+    private volatile long renderNanos;
+
+    /**
+     * Creates a new ASIO backend, the source is passed when it is started.
+     */
+    public SynthAsioAdapter() {
+    }
+
+    /**
+     * Creates a new ASIO wrapper for the source (typically the synthesizer).
+     *
+     * @param source wrapped source.
+     */
+    public SynthAsioAdapter(AudioSource source) {
+        this.source = source;
+    }
+
+    @Override
+    public String getName() {
+        return "asio";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return System.getProperty("os.name").startsWith("Windows");
+    }
+
+    /**
+     * Starts the driver with name {@link AudioSettings#getDevice()}.
+     * Other settings are ignored: the driver uses its own sample rate and buffer size and plays until stopped.
+     *
+     * @param source   audio to output.
+     * @param settings output settings.
+     * @throws IOException thrown when the driver cannot be started.
+     */
+    @Override
+    public void start(AudioSource source, AudioSettings settings) throws IOException {
+        this.source = source;
+        try {
+            start(settings.getDevice());
+        } catch (AsioException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
 
     /**
-     * Creates a new ASIO wrapper for ScaleSynth.
+     * Waits until the driver is stopped with {@link #stop()}.
      *
-     * @param synth wrapped synthesizer.
+     * @throws InterruptedException thrown when the current thread is interrupted.
      */
-    public SynthAsioAdapter(ScaleSynth synth) {
-        this.synth = synth;
+    @Override
+    public synchronized void awaitCompletion() throws InterruptedException {
+        while (driver != null)
+            wait();
+    }
+
+    @Override
+    public long getRenderedSamples() {
+        return renderedSamples;
+    }
+
+    @Override
+    public long getRenderNanos() {
+        return renderNanos;
+    }
+
+    /**
+     * Sets how many blocks are rendered in advance by a separate render thread.
+     * Takes effect when the driver is started next time.
+     *
+     * @param blocks       number of blocks, 0 means that audio is rendered in the driver callback.
+     * @param waitStrategy what the render thread does while all blocks are rendered.
+     */
+    public void setRenderAhead(int blocks, WaitStrategy waitStrategy) {
+        if (blocks < 0)
+            throw new IllegalArgumentException("Number of blocks can't be negative");
+
+        this.renderAheadBlocks = blocks;
+        this.waitStrategy = waitStrategy;
     }
 
     /**
@@ -34,7 +123,11 @@ public class SynthAsioAdapter implements AsioDriverListener {
      * @throws AsioException thrown when device cannot be opened
      */
     public void start(String driverName) throws AsioException {
-        driver = AsioDriver.getDriver(driverName);
+        synchronized (this) {
+            driver = AsioDriver.getDriver(driverName);
+        }
+        renderedSamples = 0;
+        renderNanos = 0;
         start(driver);
     }
 
@@ -49,9 +142,15 @@ public class SynthAsioAdapter implements AsioDriverListener {
         leftOutput = driver.getChannelOutput(0);
         rightOutput = driver.getChannelOutput(1);
         bufferSize = driver.getBufferPreferredSize();
-        synth.setSampleRate((float) driver.getSampleRate());
+        source.setSampleRate((float) driver.getSampleRate());
+        source.setBufferSize(bufferSize);
         outputs = new float[2][bufferSize];
-        doubleOutputs = new double[2][bufferSize];
+        silence = new float[bufferSize];
+        silentBuffers = 0;
+        if (renderAheadBlocks > 0) {
+            renderAhead = new RenderAheadBuffer(source, 2, bufferSize, renderAheadBlocks, waitStrategy);
+            renderAhead.start();
+        }
         driver.createBuffers(new HashSet<>(Set.of(leftOutput, rightOutput)));
         driver.start();
     }
@@ -59,12 +158,27 @@ public class SynthAsioAdapter implements AsioDriverListener {
     /**
      * Stops current driver.
      */
+    @Override
     public void stop() {
         if (driver != null) {
             driver.shutdownAndUnloadDriver();
             leftOutput = null;
             rightOutput = null;
-            driver = null;
+            synchronized (this) {
+                driver = null;
+                notifyAll();
+            }
+        }
+        stopRenderAhead();
+    }
+
+    /**
+     * Stops the render thread if render-ahead mode is used.
+     */
+    private void stopRenderAhead() {
+        if (renderAhead != null) {
+            renderAhead.stop();
+            renderAhead = null;
         }
     }
 
@@ -76,7 +190,7 @@ public class SynthAsioAdapter implements AsioDriverListener {
      */
     @Override
     public void sampleRateDidChange(double sampleRate) {
-        synth.setSampleRate((float) sampleRate);
+        source.setSampleRate((float) sampleRate);
     }
 
     /**
@@ -101,6 +215,7 @@ public class SynthAsioAdapter implements AsioDriverListener {
     public void resetRequest() {
         new Thread(() -> {
             driver.returnToState(AsioDriverState.INITIALIZED);
+            stopRenderAhead();
             start(driver);
         }).start();
     }
@@ -118,12 +233,15 @@ public class SynthAsioAdapter implements AsioDriverListener {
      * The driver has a new preferred buffer size. The host should make an effort to
      * accommodate the driver by returning to the <code>INITIALIZED</code> state and calling
      * <code>AsioDriver.createBuffers()</code>.
+     * <p>
+     * The driver is restarted the same way as in {@link #resetRequest()},
+     * synth buffers are resized in {@code start} before audio is resumed.
      *
      * @param bufferSize The new preferred buffer size.
      */
     @Override
     public void bufferSizeChanged(int bufferSize) {
-        // do nothing.
+        resetRequest();
     }
 
     /**
@@ -148,11 +266,26 @@ public class SynthAsioAdapter implements AsioDriverListener {
      */
     @Override
     public void bufferSwitch(long sampleTime, long samplePosition, Set<AsioChannel> activeChannels) {
-        synth.generate(doubleOutputs, bufferSize);
-        for (int ch = 0; ch < doubleOutputs.length; ++ch)
-            for (int i = 0; i < doubleOutputs[0].length; ++i)
-                outputs[ch][i] = (float) doubleOutputs[ch][i];
-        leftOutput.write(outputs[0]);
-        rightOutput.write(outputs[1]);
+        var renderAhead = this.renderAhead;
+        boolean audible;
+        if (renderAhead != null) {
+            audible = renderAhead.read(outputs);
+        } else {
+            long start = System.nanoTime();
+            audible = source.generate(outputs, bufferSize);
+            renderNanos += System.nanoTime() - start;
+        }
+        renderedSamples += bufferSize;
+
+        if (audible) {
+            silentBuffers = 0;
+            leftOutput.write(outputs[0]);
+            rightOutput.write(outputs[1]);
+        } else if (silentBuffers < DRIVER_BUFFERS) {
+            // once both halves of the driver's double buffer hold silence, there is nothing to write at all.
+            ++silentBuffers;
+            leftOutput.write(silence);
+            rightOutput.write(silence);
+        }
     }
 }
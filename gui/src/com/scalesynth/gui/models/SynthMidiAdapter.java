@@ -2,16 +2,25 @@ package com.scalesynth.gui.models;
 
 import com.scalesynth.ScaleSynth;
 import com.scalesynth.base.KeyboardEvent;
-import com.scalesynth.gui.services.ScaleService;
+import com.scalesynth.base.KeyboardEventRing;
+import com.scalesynth.base.KeyboardEventType;
+import com.scalesynth.services.ScaleService;
 
 import javax.sound.midi.*;
 
 /**
  * This wrapper captures incoming MIDI messages and passes then to synthesizer.
+ * <p>
+ * Every adapter passes events through its own lock-free ring, so each input source (thread)
+ * should have its own adapter.
  */
 public class SynthMidiAdapter implements Receiver {
     private final ScaleSynth synth;
     private final ScaleService scaleService;
+    private final KeyboardEventRing events;
+
+    // Difference between System.nanoTime() and device time stamps (in nanoseconds).
+    private long deviceClockOffset = Long.MAX_VALUE;
 
     /**
      * Creates a new MIDI wrapper for ScaleSynth.
@@ -21,6 +30,7 @@ public class SynthMidiAdapter implements Receiver {
     public SynthMidiAdapter(ScaleSynth synth, ScaleService scaleService) {
         this.synth = synth;
         this.scaleService = scaleService;
+        this.events = synth.createEventSource();
     }
 
     /**
@@ -33,24 +43,57 @@ public class SynthMidiAdapter implements Receiver {
      */
     @Override
     public void send(MidiMessage message, long timeStamp) {
-        if (message.getStatus() == ShortMessage.NOTE_ON) {
-            int note = message.getMessage()[1];
-            double freq = scaleService.getFreq(note);
-            if (freq > 20000)
-                return;
-            int velocity = message.getMessage()[2];
-            synth.handleKeyboardEvent(KeyboardEvent.noteOn(note, freq, velocity));
-        }
-        else if (message.getStatus() == ShortMessage.NOTE_OFF) {
-            int note = message.getMessage()[1];
-            synth.handleKeyboardEvent(KeyboardEvent.noteOff(note));
-        } else if (message.getStatus() == ShortMessage.PITCH_BEND) {
-            var lsb = message.getMessage()[1];
-            var msb = message.getMessage()[2];
-            synth.handleKeyboardEvent(KeyboardEvent.pitchBend(lsb, msb));
+        // data bytes are read with ShortMessage getters, getMessage() would copy the whole message.
+        if (!(message instanceof ShortMessage))
+            return;
+
+        var shortMessage = (ShortMessage) message;
+        int status = shortMessage.getStatus();
+        int data1 = shortMessage.getData1();
+        int data2 = shortMessage.getData2();
+        long samplePosition = synth.getSamplePosition(toNanoTime(timeStamp));
+
+        switch (status) {
+            case ShortMessage.NOTE_ON:
+                double freq = scaleService.getFreq(data1);
+                if (freq > 20000)
+                    return;
+                events.add(KeyboardEvent.encode(KeyboardEventType.NOTE_ON, data1, data2), freq, samplePosition);
+                break;
+            case ShortMessage.NOTE_OFF:
+                events.add(KeyboardEvent.encode(KeyboardEventType.NOTE_OFF, data1, -1), -1, samplePosition);
+                break;
+            case ShortMessage.PITCH_BEND:
+                var ratio = KeyboardEvent.bendRatio(data1, data2);
+                events.add(KeyboardEvent.encode(KeyboardEventType.PITCH_BEND, -1, -1), ratio, samplePosition);
+                break;
+            case ShortMessage.CONTROL_CHANGE:
+                events.add(KeyboardEvent.encode(KeyboardEventType.CONTROL_CHANGE, data1, data2), -1, samplePosition);
+                break;
+            case ShortMessage.CHANNEL_PRESSURE:
+                events.add(KeyboardEvent.encode(KeyboardEventType.CHANNEL_PRESSURE, -1, data1), -1, samplePosition);
+                break;
         }
     }
 
+    /**
+     * Converts device time stamp to {@link System#nanoTime()} value.
+     * <p>
+     * Device clock has some unknown offset from the system clock. Every message arrives a bit after
+     * its time stamp, so the smallest observed difference is the best estimate of that offset.
+     *
+     * @param timeStamp the time-stamp of the message, in microseconds (or -1).
+     * @return the time of the message.
+     */
+    private synchronized long toNanoTime(long timeStamp) {
+        long now = System.nanoTime();
+        if (timeStamp == -1)
+            return now;
+
+        deviceClockOffset = Math.min(deviceClockOffset, now - timeStamp * 1000);
+        return timeStamp * 1000 + deviceClockOffset;
+    }
+
     /**
      * Indicates that the application has finished using the receiver, and that
      * limited resources it requires may be released or made available.
@@ -1,5 +1,6 @@
 package com.scalesynth.gui.views;
 
+import com.scalesynth.audio.WaitStrategy;
 import com.scalesynth.gui.models.SynthAsioAdapter;
 import com.synthbot.jasiohost.AsioDriver;
 import com.synthbot.jasiohost.AsioException;
@@ -20,6 +21,8 @@ import java.util.Objects;
 public class AsioSettingsView extends Parent {
     private final SynthAsioAdapter asioAdapter;
     private final ComboBox<String> comboBox;
+    private final ComboBox<Integer> renderAheadComboBox;
+    private final ComboBox<WaitStrategy> waitStrategyComboBox;
 
     public AsioSettingsView(SynthAsioAdapter asioAdapter) {
         this.asioAdapter = Objects.requireNonNull(asioAdapter);
@@ -31,7 +34,19 @@ public class AsioSettingsView extends Parent {
         comboBox.setMaxWidth(150);
         comboBox.setMinWidth(150);
 
-        var hbox = new HBox(5, new Label("Audio outputs:"), comboBox);
+        // 0 blocks means rendering in the driver callback.
+        renderAheadComboBox = new ComboBox<>();
+        renderAheadComboBox.getItems().setAll(0, 1, 2, 4, 8);
+        renderAheadComboBox.getSelectionModel().selectFirst();
+        renderAheadComboBox.getSelectionModel().selectedItemProperty().addListener(x -> handleRenderAheadChanged());
+
+        waitStrategyComboBox = new ComboBox<>();
+        waitStrategyComboBox.getItems().setAll(WaitStrategy.values());
+        waitStrategyComboBox.getSelectionModel().select(WaitStrategy.YIELD);
+        waitStrategyComboBox.getSelectionModel().selectedItemProperty().addListener(x -> handleRenderAheadChanged());
+
+        var hbox = new HBox(5, new Label("Audio outputs:"), comboBox,
+                new Label("Render ahead:"), renderAheadComboBox, waitStrategyComboBox);
         hbox.setAlignment(Pos.CENTER);
         getChildren().add(hbox);
     }
@@ -66,6 +81,29 @@ public class AsioSettingsView extends Parent {
         }
     }
 
+    /**
+     * Passes render-ahead settings to the adapter and restarts the selected driver with them.
+     */
+    private void handleRenderAheadChanged() {
+        var blocks = renderAheadComboBox.getSelectionModel().getSelectedItem();
+        var waitStrategy = waitStrategyComboBox.getSelectionModel().getSelectedItem();
+        if (blocks == null || waitStrategy == null)
+            return;
+
+        asioAdapter.setRenderAhead(blocks, waitStrategy);
+        var driverName = comboBox.getSelectionModel().getSelectedItem();
+        if (driverName == null || driverName.equals("Update") || driverName.equals("Control Panel..."))
+            return;
+
+        try {
+            asioAdapter.stop();
+            asioAdapter.start(driverName);
+        } catch (AsioException e) {
+            new Alert(Alert.AlertType.ERROR, e.getMessage()).showAndWait();
+            Platform.runLater(() -> comboBox.getSelectionModel().clearSelection());
+        }
+    }
+
     private void updateComboBoxItems() {
         var items = comboBox.getItems();
         items.setAll(AsioDriver.getDriverNames());
@@ -58,6 +58,7 @@ public class EditorView extends Parent {
         pane.add(createFilterEditor(), 3, 0, 1, 3);
         pane.add(createAmpEgEditor(), 4, 0);
         pane.add(createFilterEgEditor(), 4, 1);
+        pane.add(createLfoEditor(), 4, 2);
 
         return pane;
     }
@@ -170,7 +171,7 @@ public class EditorView extends Parent {
         var pane = new GridPane();
         pane.setStyle(BASE_EDITOR_STYLE + "-fx-background-color: linear-gradient(#c4ffdf, #c5ffd4);");
         pane.getColumnConstraints().addAll(createColumns(1));
-        pane.getRowConstraints().addAll(createRows(5));
+        pane.getRowConstraints().addAll(createRows(6));
 
         var accentColor = Color.valueOf("#35d295");
 
@@ -195,6 +196,10 @@ public class EditorView extends Parent {
         var driftKnob = new Knob<>(drift, LinearParameterTransform.of(drift), accentColor);
         pane.add(driftKnob, 0, 4);
 
+        var engine = parameters.oscillatorEngine;
+        var engineKnob = new Knob<>(engine, IntegerParameterTransform.of(engine), accentColor);
+        pane.add(engineKnob, 0, 5);
+
         return pane;
     }
 
@@ -206,7 +211,7 @@ public class EditorView extends Parent {
         var pane = new GridPane();
         pane.setStyle(BASE_EDITOR_STYLE + "-fx-background-color: linear-gradient(#bdffee, #c3faff);");
         pane.getColumnConstraints().addAll(createColumns(1));
-        pane.getRowConstraints().addAll(createRows(4));
+        pane.getRowConstraints().addAll(createRows(6));
 
         var accentColor = Color.valueOf("#00d5d2");
 
@@ -227,6 +232,14 @@ public class EditorView extends Parent {
         var noiseKnob = new Knob<>(noise, LogarithmicParameterTransform.of(noise), accentColor);
         pane.add(noiseKnob, 0, 3);
 
+        var oversampling = parameters.oversampling;
+        var oversamplingKnob = new Knob<>(oversampling, IntegerParameterTransform.of(oversampling), accentColor);
+        pane.add(oversamplingKnob, 0, 4);
+
+        var silence = parameters.silenceThreshold;
+        var silenceKnob = new Knob<>(silence, LinearParameterTransform.of(silence), accentColor);
+        pane.add(silenceKnob, 0, 5);
+
         return pane;
     }
 
@@ -345,4 +358,40 @@ public class EditorView extends Parent {
 
         return pane;
     }
+
+    /**
+     * Returns LFO editor.
+     * @return LFO editor.
+     */
+    private Node createLfoEditor() {
+        var pane = new GridPane();
+        pane.setStyle(BASE_EDITOR_STYLE + "-fx-background-color: linear-gradient(#e2d4ff, #d9ccff);");
+        pane.getColumnConstraints().addAll(createColumns(4));
+        pane.getRowConstraints().addAll(createRows(2));
+
+        var accentColor = Color.valueOf("#9a7bea");
+
+        var label = new Label("LFO");
+        label.setStyle(BASE_LABEL_STYLE);
+        label.setTextFill(accentColor.darker());
+        pane.add(label, 0 ,0, 4, 1);
+
+        var vibratoRate = parameters.vibratoRate;
+        var vibratoRateKnob = new Knob<>(vibratoRate, LogarithmicParameterTransform.of(vibratoRate), accentColor);
+        pane.add(vibratoRateKnob, 0, 1);
+
+        var vibratoDepth = parameters.vibratoDepth;
+        var vibratoDepthKnob = new Knob<>(vibratoDepth, LinearParameterTransform.of(vibratoDepth), accentColor);
+        pane.add(vibratoDepthKnob, 1, 1);
+
+        var filterRate = parameters.filterLfoRate;
+        var filterRateKnob = new Knob<>(filterRate, LogarithmicParameterTransform.of(filterRate), accentColor);
+        pane.add(filterRateKnob, 2, 1);
+
+        var filterAmount = parameters.filterLfoAmount;
+        var filterAmountKnob = new Knob<>(filterAmount, LinearParameterTransform.of(filterAmount), accentColor);
+        pane.add(filterAmountKnob, 3, 1);
+
+        return pane;
+    }
 }
@@ -1,6 +1,6 @@
 package com.scalesynth.gui.views;
 
-import com.scalesynth.gui.services.SynthSerializationService;
+import com.scalesynth.services.SynthSerializationService;
 import javafx.event.ActionEvent;
 import javafx.geometry.Pos;
 import javafx.scene.Parent;
@@ -7,4 +7,6 @@ module scalesynth.gui {
     requires scalesynth.scl;
 
     exports com.scalesynth.gui;
+
+    provides com.scalesynth.audio.AudioBackend with com.scalesynth.gui.models.SynthAsioAdapter;
 }
\ No newline at end of file